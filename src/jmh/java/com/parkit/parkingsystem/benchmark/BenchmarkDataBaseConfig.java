@@ -0,0 +1,57 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.config.ConnectionPoolConfig;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.SchemaMigrator;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+//in-memory H2 database in MySQL mode, standing in for the production MySQL server
+public class BenchmarkDataBaseConfig extends DataBaseConfig {
+
+    private final String url;
+
+    public BenchmarkDataBaseConfig(String name) {
+        this.url = "jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+    }
+
+    @Override
+    protected ConnectionPoolConfig getConnectionPoolConfig() {
+        ConnectionPoolConfig config = new ConnectionPoolConfig();
+        config.setDriverClassName("org.h2.Driver");
+        config.setUrl(url);
+        config.setUser("sa");
+        config.setPassword("");
+        config.setMinSize(1);
+        config.setMaxSize(8);
+        return config;
+    }
+
+    public void createSchema(int nbParkingSpots) throws Exception {
+        createSchema(nbParkingSpots, SchemaMigrator.getLatestVersion());
+    }
+
+    //the schema as migrated up to that version, so runs with and without the later indexes can be compared
+    public void createSchema(int nbParkingSpots, int schemaVersion) throws Exception {
+        Connection con = getConnection();
+        try {
+            try(Statement statement = con.createStatement()){
+                statement.execute("drop all objects");
+            }
+            new SchemaMigrator(getConnectionPool()).migrate(schemaVersion);
+            //one bike spot for every four car spots
+            try(PreparedStatement ps = con.prepareStatement("insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(?,true,?)")){
+                for(int number = 1; number <= nbParkingSpots; number++){
+                    ps.setInt(1, number);
+                    ps.setString(2, number % 5 == 0 ? "BIKE" : "CAR");
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        } finally {
+            closeConnection(con);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.util.InputReaderUtil;
+
+//answers the shell prompts without a console, so workflows can be driven from a benchmark
+public class ScriptedInputReaderUtil extends InputReaderUtil {
+
+    private int selection;
+    private String vehicleRegNumber;
+
+    public void setSelection(int selection) {
+        this.selection = selection;
+    }
+
+    public void setVehicleRegNumber(String vehicleRegNumber) {
+        this.vehicleRegNumber = vehicleRegNumber;
+    }
+
+    @Override
+    public int readSelection() {
+        return selection;
+    }
+
+    @Override
+    public String readVehicleRegistrationNumber() {
+        return vehicleRegNumber;
+    }
+}
@@ -0,0 +1,81 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+//fills the ticket and vehicle_visit tables with a closed ticket history spread over a pool of vehicles,
+//one visit a day per vehicle going back in time. The parking spots must already exist.
+//java -cp target/benchmarks.jar com.parkit.parkingsystem.benchmark.TicketDataGenerator <nbTickets> [nbVehicles] [nbParkingSpots]
+//loads the prod data base configured in DataBaseConfig.
+public class TicketDataGenerator {
+
+    private static final int BATCH_SIZE = 10000;
+
+    private final DataBaseConfig dataBaseConfig;
+
+    public TicketDataGenerator(DataBaseConfig dataBaseConfig) {
+        this.dataBaseConfig = dataBaseConfig;
+    }
+
+    public static String vehicleRegNumber(int vehicle) {
+        return "V" + vehicle;
+    }
+
+    public void generate(int nbTickets, int nbVehicles, int nbParkingSpots) throws Exception {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        Connection con = dataBaseConfig.getConnection();
+        try {
+            con.setAutoCommit(false);
+            try(PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET)){
+                for(int i = 0; i < nbTickets; i++){
+                    int vehicle = i % nbVehicles;
+                    LocalDateTime inTime = now.minusDays(i / nbVehicles + 1).plusSeconds(vehicle % 86400);
+                    ps.setInt(1, i % nbParkingSpots + 1);
+                    ps.setString(2, vehicleRegNumber(vehicle));
+                    ps.setDouble(3, 1.5);
+                    ps.setTimestamp(4, Timestamp.valueOf(inTime));
+                    ps.setTimestamp(5, Timestamp.valueOf(inTime.plusHours(1)));
+                    ps.addBatch();
+                    if((i + 1) % BATCH_SIZE == 0){
+                        ps.executeBatch();
+                        con.commit();
+                    }
+                }
+                ps.executeBatch();
+            }
+            try(PreparedStatement ps = con.prepareStatement("insert into vehicle_visit(VEHICLE_REG_NUMBER, NB_TICKET) values(?,?)")){
+                for(int vehicle = 0; vehicle < Math.min(nbVehicles, nbTickets); vehicle++){
+                    ps.setString(1, vehicleRegNumber(vehicle));
+                    ps.setInt(2, nbTickets / nbVehicles + (vehicle < nbTickets % nbVehicles ? 1 : 0));
+                    ps.addBatch();
+                    if((vehicle + 1) % BATCH_SIZE == 0){
+                        ps.executeBatch();
+                    }
+                }
+                ps.executeBatch();
+            }
+            con.commit();
+        } catch (Exception ex){
+            con.rollback();
+            throw ex;
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int nbTickets = Integer.parseInt(args[0]);
+        int nbVehicles = args.length > 1 ? Integer.parseInt(args[1]) : Math.max(nbTickets / 100, 1);
+        int nbParkingSpots = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        try {
+            new TicketDataGenerator(new DataBaseConfig()).generate(nbTickets, nbVehicles, nbParkingSpots);
+        } finally {
+            DataBaseConfig.closeConnectionPools();
+        }
+    }
+}
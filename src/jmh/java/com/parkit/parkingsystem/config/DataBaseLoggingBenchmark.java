@@ -0,0 +1,79 @@
+package com.parkit.parkingsystem.config;
+
+import com.parkit.parkingsystem.benchmark.BenchmarkDataBaseConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.config.builder.api.ConfigurationBuilder;
+import org.apache.logging.log4j.core.config.builder.api.ConfigurationBuilderFactory;
+import org.apache.logging.log4j.core.config.builder.impl.BuiltConfiguration;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+//per-request logging cost of a DAO query, which opens and closes a connection, a statement and a result set.
+//level DEBUG with the sync appender is what every request paid when those lines were logged at INFO;
+//level INFO with the async logger is the production profile.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DataBaseLoggingBenchmark {
+
+    @Param({"DEBUG", "INFO"})
+    public String level;
+
+    @Param({"sync", "async"})
+    public String appender;
+
+    private ParkingSpotDAO parkingSpotDAO;
+    private Path logDirectory;
+
+    @Setup(org.openjdk.jmh.annotations.Level.Trial)
+    public void setUp() throws Exception {
+        logDirectory = Files.createTempDirectory("parkit-logging-benchmark");
+        configureLogging(Level.valueOf(level), appender.equals("async"), logDirectory.resolve("benchmark.log").toString());
+
+        BenchmarkDataBaseConfig dataBaseConfig = new BenchmarkDataBaseConfig("logging_" + level + "_" + appender);
+        dataBaseConfig.createSchema(1000);
+        parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+    }
+
+    @TearDown(org.openjdk.jmh.annotations.Level.Trial)
+    public void tearDown() throws Exception {
+        DataBaseConfig.closeConnectionPools();
+        ((LoggerContext) LogManager.getContext(false)).stop();
+        try(Stream<Path> files = Files.list(logDirectory)){
+            files.forEach(file -> file.toFile().delete());
+        }
+        Files.deleteIfExists(logDirectory);
+    }
+
+    @Benchmark
+    public int getNextAvailableSlot() {
+        return parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR);
+    }
+
+    private static void configureLogging(Level level, boolean async, String fileName) {
+        ConfigurationBuilder<BuiltConfiguration> builder = ConfigurationBuilderFactory.newConfigurationBuilder();
+        builder.setStatusLevel(Level.ERROR);
+        builder.add(builder.newAppender("File", "RandomAccessFile")
+                .addAttribute("fileName", fileName)
+                .addAttribute("immediateFlush", !async)
+                .add(builder.newLayout("PatternLayout").addAttribute("pattern", "%d{DEFAULT} %-5p [%t] %c{1} - %m%n")));
+        if(async){
+            builder.add(builder.newAsyncRootLogger(level).addAttribute("includeLocation", false).add(builder.newAppenderRef("File")));
+        }else{
+            builder.add(builder.newRootLogger(level).add(builder.newAppenderRef("File")));
+        }
+        ((LoggerContext) LogManager.getContext(false)).setConfiguration(builder.build());
+    }
+}
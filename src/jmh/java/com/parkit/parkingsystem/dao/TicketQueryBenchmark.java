@@ -0,0 +1,66 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.benchmark.BenchmarkDataBaseConfig;
+import com.parkit.parkingsystem.benchmark.TicketDataGenerator;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+//ticket and parking lookups straight to the data base as the ticket history grows, on the baseline schema (1)
+//and with the lookup indexes (2). The 10M tickets run needs a large heap:
+//java -jar target/benchmarks.jar TicketQueryBenchmark -p nbTickets=10000000 -jvmArgs -Xmx8g
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TicketQueryBenchmark {
+
+    private static final int NB_PARKING_SPOTS = 1000;
+
+    @Param({"1000000"})
+    public int nbTickets;
+
+    @Param({"1", "2"})
+    public int schemaVersion;
+
+    private ParkingSpotDAO parkingSpotDAO;
+    private TicketDAO ticketDAO;
+    private int nbVehicles;
+    private int vehicle;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkDataBaseConfig dataBaseConfig = new BenchmarkDataBaseConfig("tickets_" + nbTickets + "_" + schemaVersion);
+        dataBaseConfig.createSchema(NB_PARKING_SPOTS, schemaVersion);
+        nbVehicles = Math.max(nbTickets / 100, 1);
+        new TicketDataGenerator(dataBaseConfig).generate(nbTickets, nbVehicles, NB_PARKING_SPOTS);
+        parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        DataBaseConfig.closeConnectionPools();
+    }
+
+    @Benchmark
+    public Object getTicket() {
+        return ticketDAO.getTicket(TicketDataGenerator.vehicleRegNumber(vehicle++ % nbVehicles));
+    }
+
+    @Benchmark
+    public int getNbTicket() {
+        return ticketDAO.getNbTicket(TicketDataGenerator.vehicleRegNumber(vehicle++ % nbVehicles));
+    }
+
+    @Benchmark
+    public int getNextAvailableSlot() {
+        return parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR);
+    }
+}
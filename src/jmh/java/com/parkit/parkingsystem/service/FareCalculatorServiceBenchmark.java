@@ -0,0 +1,52 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FareCalculatorServiceBenchmark {
+
+    @State(Scope.Thread)
+    public static class TicketState {
+
+        @Param({"CAR", "BIKE"})
+        public ParkingType parkingType;
+
+        @Param({"false", "true"})
+        public boolean discount;
+
+        private Ticket ticket;
+
+        @Setup
+        public void setUp() {
+            LocalDateTime outTime = LocalDateTime.of(2020, 1, 1, 18, 0);
+            ticket = new Ticket();
+            ticket.setParkingSpot(new ParkingSpot(1, parkingType, false));
+            ticket.setInTime(outTime.minusMinutes(197));
+            ticket.setOutTime(outTime);
+        }
+    }
+
+    private final FareCalculatorService fareCalculatorService = new FareCalculatorService();
+
+    @Benchmark
+    public double calculateFare(TicketState state) {
+        fareCalculatorService.calculateFare(state.ticket, state.discount);
+        return state.ticket.getPrice();
+    }
+
+    @Benchmark
+    public long calculateFareInCents(TicketState state) {
+        return fareCalculatorService.calculateFareInCents(state.parkingType, 197, state.discount);
+    }
+}
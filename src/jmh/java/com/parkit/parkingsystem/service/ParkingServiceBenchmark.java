@@ -0,0 +1,93 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.benchmark.BenchmarkDataBaseConfig;
+import com.parkit.parkingsystem.benchmark.ScriptedInputReaderUtil;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+//entry/exit workflows and the DAO calls behind them, against an embedded database
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParkingServiceBenchmark {
+
+    private static final int NB_PARKING_SPOTS = 1000;
+
+    //with in-memory indexes and caches loaded, as the shell runs, or straight to the database
+    @Param({"true", "false"})
+    public boolean inMemoryState;
+
+    private ParkingSpotDAO parkingSpotDAO;
+    private TicketDAO ticketDAO;
+    private ParkingService parkingService;
+    private ScriptedInputReaderUtil inputReaderUtil;
+    private PrintStream console;
+    private int vehicle;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkDataBaseConfig dataBaseConfig = new BenchmarkDataBaseConfig("bench_" + inMemoryState);
+        dataBaseConfig.createSchema(NB_PARKING_SPOTS);
+        parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        if(inMemoryState){
+            parkingSpotDAO.loadParkingSpotIndex();
+            ticketDAO.loadActiveTicketCache(10000);
+            ticketDAO.initVisitCounterCache(10000);
+        }
+        inputReaderUtil = new ScriptedInputReaderUtil();
+        inputReaderUtil.setSelection(1);
+        parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO);
+
+        //the workflows print their receipts, keep that out of the measurement
+        console = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+
+        inputReaderUtil.setVehicleRegNumber("PARKED");
+        parkingService.processIncomingVehicle();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(console);
+        DataBaseConfig.closeConnectionPools();
+    }
+
+    @Benchmark
+    public void entryExitCycle() {
+        inputReaderUtil.setVehicleRegNumber("CAR" + (vehicle++ % 100));
+        parkingService.processIncomingVehicle();
+        parkingService.processExitingVehicle();
+    }
+
+    @Benchmark
+    public int getNextAvailableSlot() {
+        return parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR);
+    }
+
+    @Benchmark
+    public Object getTicket() {
+        return ticketDAO.getTicket("PARKED");
+    }
+
+    @Benchmark
+    public int getNbTicket() {
+        return ticketDAO.getNbTicket("PARKED");
+    }
+}
@@ -1,13 +1,43 @@
 package com.parkit.parkingsystem;
 
+import com.parkit.parkingsystem.api.ParkingHttpServer;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.metrics.MetricsEndpoint;
+import com.parkit.parkingsystem.service.IngestionShell;
 import com.parkit.parkingsystem.service.InteractiveShell;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 public class App {
     private static final Logger logger = LogManager.getLogger("App");
-    public static void main(String args[]){
+    public static void main(String args[]) throws Exception {
         logger.info("Initializing Parking System");
-        InteractiveShell.loadInterface();
+        if(args.length == 2 && args[0].equals("--http")){
+            //the API serves its own /metrics/prometheus
+            ParkingHttpServer.loadServer(Integer.parseInt(args[1]));
+            return;
+        }
+        MetricsEndpoint metricsEndpoint = startMetricsEndpoint();
+        try{
+            if(args.length == 2 && args[0].equals("--ingest")){
+                IngestionShell.loadIngestion(args[1]);
+            }else{
+                InteractiveShell.loadInterface();
+            }
+        }finally{
+            if(metricsEndpoint != null){
+                metricsEndpoint.stop();
+            }
+        }
+    }
+
+    private static MetricsEndpoint startMetricsEndpoint() throws Exception {
+        Integer metricsPort = Integer.getInteger("parkit.metrics.port");
+        if(!Metrics.isEnabled() || metricsPort == null){
+            return null;
+        }
+        MetricsEndpoint metricsEndpoint = new MetricsEndpoint(metricsPort);
+        metricsEndpoint.start();
+        return metricsEndpoint;
     }
 }
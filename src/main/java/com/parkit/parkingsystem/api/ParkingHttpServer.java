@@ -0,0 +1,399 @@
+package com.parkit.parkingsystem.api;
+
+import com.parkit.parkingsystem.cache.TicketEventViews;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketAnalyticsDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketWriteBehindQueue;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.model.DailyParkingStats;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.FacilityRouter;
+import com.parkit.parkingsystem.service.GateService;
+import com.parkit.parkingsystem.service.InteractiveShell;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.service.TicketAnalyticsService;
+import com.parkit.parkingsystem.util.LatencyHistogram;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+//embedded JSON API for barrier hardware and pay stations, on the JDK http server (NIO selector, keep-alive).
+//  POST /entry?type=CAR&vehicle=AB-123-CD   201 with the ticket, 409 when no spot of that type is free
+//                                           (&facility=<id> in a multi-facility deployment, see FacilityRouter)
+//  POST /exit?vehicle=AB-123-CD             200 with the priced ticket, 409 when the vehicle has no open ticket
+//  GET  /quote?vehicle=AB-123-CD            200 with the fare if the vehicle left now, 404 without open ticket
+//a missing or invalid parameter is a 400, a data base failure a 503 and any other error a 500; nothing is written then.
+//  GET  /availability                       free spots per parking type
+//  GET  /occupancy                          parked vehicles per parking type, from the ticket event log
+//  GET  /metrics                            request count and latency percentiles per endpoint, in microseconds
+//  GET  /metrics/prometheus                 DAO and service timers and counters, in Prometheus text format
+//  GET  /stats?from=2020-01-01&to=2020-01-31 revenue, stays, peak occupancy and discounts per day and parking type
+public class ParkingHttpServer {
+
+    private static final Logger logger = LogManager.getLogger("ParkingHttpServer");
+
+    private static final String JSON_CONTENT_TYPE = "application/json; charset=utf-8";
+    private static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    //width of the VEHICLE_REG_NUMBER column
+    private static final int MAX_VEHICLE_REG_NUMBER_LENGTH = 10;
+
+    private final ParkingService parkingService;
+    private final TicketAnalyticsService ticketAnalyticsService;
+    private final FacilityRouter facilityRouter;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, LatencyHistogram> latencies = new LinkedHashMap<>();
+
+    public ParkingHttpServer(ParkingService parkingService, InetSocketAddress address, ExecutorService executor) throws IOException {
+        this(parkingService, null, address, executor);
+    }
+
+    public ParkingHttpServer(ParkingService parkingService, TicketAnalyticsService ticketAnalyticsService, InetSocketAddress address,
+                             ExecutorService executor) throws IOException {
+        this(parkingService, ticketAnalyticsService, null, address, executor);
+    }
+
+    //with a facility router, gate calls go to the facilities instead of the single parking service
+    public ParkingHttpServer(ParkingService parkingService, TicketAnalyticsService ticketAnalyticsService, FacilityRouter facilityRouter,
+                             InetSocketAddress address, ExecutorService executor) throws IOException {
+        this.parkingService = parkingService;
+        this.ticketAnalyticsService = ticketAnalyticsService;
+        this.facilityRouter = facilityRouter;
+        this.executor = executor;
+        this.server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        route("/entry", "POST", this::entry);
+        route("/exit", "POST", this::exit);
+        route("/quote", "GET", this::quote);
+        route("/availability", "GET", exchange -> availability());
+        route("/occupancy", "GET", exchange -> occupancy());
+        route("/metrics", "GET", exchange -> metrics());
+        route("/metrics/prometheus", "GET", exchange -> new Response(200, Metrics.toPrometheus(), PROMETHEUS_CONTENT_TYPE));
+        route("/stats", "GET", this::stats);
+    }
+
+    //runs the API until the process is stopped; binds to localhost unless parkit.http.host says otherwise
+    public static void loadServer(int port) throws IOException {
+        FacilityRouter facilityRouter = InteractiveShell.createFacilityRouter();
+        if(facilityRouter != null){
+            ParkingHttpServer httpServer = new ParkingHttpServer(null, null, facilityRouter,
+                    new InetSocketAddress(System.getProperty("parkit.http.host", "localhost"), port),
+                    GateService.newGateExecutor(Integer.getInteger("parkit.http.threads", 32)));
+            Runtime.getRuntime().addShutdownHook(new Thread(httpServer::stop, "http-api-shutdown"));
+            httpServer.start();
+            return;
+        }
+        TicketDAO ticketDAO = InteractiveShell.createTicketDAO();
+        ParkingSpotDAO parkingSpotDAO = InteractiveShell.createParkingSpotDAO();
+        InteractiveShell.startSnapshotVerification(parkingSpotDAO, ticketDAO);
+        ParkingService parkingService = new ParkingService(null, parkingSpotDAO, ticketDAO);
+        InteractiveShell.attachTicketEventLog(parkingService);
+        ParkingHttpServer httpServer = new ParkingHttpServer(parkingService, startTicketAnalytics(),
+                new InetSocketAddress(System.getProperty("parkit.http.host", "localhost"), port),
+                GateService.newGateExecutor(Integer.getInteger("parkit.http.threads", 32)));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            httpServer.stop();
+            TicketWriteBehindQueue writeBehindQueue = ticketDAO.getWriteBehindQueue();
+            if(writeBehindQueue != null){
+                writeBehindQueue.close();
+            }
+        }, "http-api-shutdown"));
+        httpServer.start();
+    }
+
+    //off unless a refresh period is given, the first refresh reads the whole ticket history
+    private static TicketAnalyticsService startTicketAnalytics() {
+        Long refreshMinutes = Long.getLong("parkit.analytics.refreshMinutes");
+        if(refreshMinutes == null){
+            return null;
+        }
+        TicketAnalyticsService ticketAnalyticsService = new TicketAnalyticsService(new TicketAnalyticsDAO(),
+                Integer.getInteger("parkit.analytics.maxDays", 400), Integer.getInteger("parkit.analytics.fetchSize", 1000));
+        ticketAnalyticsService.start(refreshMinutes);
+        return ticketAnalyticsService;
+    }
+
+    public void start() {
+        server.start();
+        logger.info("HTTP API listening on {}", server.getAddress());
+    }
+
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private Response entry(HttpExchange exchange) throws Exception {
+        Map<String, String> parameters = getParameters(exchange);
+        String vehicleRegNumber = getVehicleRegNumber(parameters);
+        String type = parameters.get("type");
+        if(vehicleRegNumber == null || type == null){
+            return Response.error(400, "type and a vehicle of 1 to " + MAX_VEHICLE_REG_NUMBER_LENGTH + " characters are required");
+        }
+        ParkingType parkingType;
+        try {
+            parkingType = ParkingType.valueOf(type.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return Response.error(400, "Unknown parking type: " + type);
+        }
+        Ticket ticket;
+        if(facilityRouter != null){
+            String facilityId = parameters.get("facility");
+            if(facilityId == null){
+                return Response.error(400, "facility is required");
+            }
+            if(!facilityRouter.getFacilityIds().contains(facilityId)){
+                return Response.error(404, "Unknown facility: " + facilityId);
+            }
+            ticket = facilityRouter.parkVehicle(facilityId, parkingType, vehicleRegNumber);
+        }else{
+            ticket = parkingService.parkVehicle(parkingType, vehicleRegNumber);
+        }
+        return ticket == null ? Response.error(409, "No parking spot available") : new Response(201, toJson(ticket));
+    }
+
+    private Response exit(HttpExchange exchange) throws Exception {
+        String vehicleRegNumber = getVehicleRegNumber(getParameters(exchange));
+        if(vehicleRegNumber == null){
+            return Response.error(400, "A vehicle of 1 to " + MAX_VEHICLE_REG_NUMBER_LENGTH + " characters is required");
+        }
+        Ticket ticket = facilityRouter != null ? facilityRouter.exitVehicle(vehicleRegNumber) : parkingService.exitVehicle(vehicleRegNumber);
+        return ticket == null ? Response.error(409, "No open ticket for " + vehicleRegNumber) : new Response(200, toJson(ticket));
+    }
+
+    private Response quote(HttpExchange exchange) throws Exception {
+        String vehicleRegNumber = getVehicleRegNumber(getParameters(exchange));
+        if(vehicleRegNumber == null){
+            return Response.error(400, "A vehicle of 1 to " + MAX_VEHICLE_REG_NUMBER_LENGTH + " characters is required");
+        }
+        Ticket ticket = facilityRouter != null ? facilityRouter.quoteFare(vehicleRegNumber) : parkingService.quoteFare(vehicleRegNumber);
+        return ticket == null ? Response.error(404, "No open ticket for " + vehicleRegNumber) : new Response(200, toJson(ticket));
+    }
+
+    //per facility in a multi-facility deployment
+    private Response availability() {
+        if(facilityRouter == null){
+            return new Response(200, availability(parkingService));
+        }
+        StringBuilder json = new StringBuilder("{");
+        for(String facilityId : facilityRouter.getFacilityIds()){
+            if(json.length() > 1){
+                json.append(',');
+            }
+            json.append(quote(facilityId)).append(':').append(availability(facilityRouter.getParkingService(facilityId)));
+        }
+        return new Response(200, json.append('}').toString());
+    }
+
+    private static String availability(ParkingService parkingService) {
+        StringBuilder json = new StringBuilder("{");
+        for(ParkingType parkingType : ParkingType.values()){
+            if(json.length() > 1){
+                json.append(',');
+            }
+            json.append('"').append(parkingType).append("\":").append(parkingService.getAvailableSpotCount(parkingType));
+        }
+        return json.append('}').toString();
+    }
+
+    private Response occupancy() {
+        TicketEventViews views = parkingService == null ? null : parkingService.getTicketEventViews();
+        if(views == null){
+            return Response.error(404, "The ticket event log is not enabled");
+        }
+        StringBuilder json = new StringBuilder("{");
+        for(ParkingType parkingType : ParkingType.values()){
+            if(json.length() > 1){
+                json.append(',');
+            }
+            json.append('"').append(parkingType).append("\":").append(views.getOccupancy(parkingType));
+        }
+        return new Response(200, json.append('}').toString());
+    }
+
+    private Response metrics() {
+        StringBuilder json = new StringBuilder("{");
+        for(Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()){
+            LatencyHistogram histogram = entry.getValue();
+            if(json.length() > 1){
+                json.append(',');
+            }
+            json.append('"').append(entry.getKey()).append("\":{\"count\":").append(histogram.getCount())
+                    .append(",\"p50\":").append(TimeUnit.NANOSECONDS.toMicros(histogram.getPercentile(50)))
+                    .append(",\"p99\":").append(TimeUnit.NANOSECONDS.toMicros(histogram.getPercentile(99)))
+                    .append(",\"max\":").append(TimeUnit.NANOSECONDS.toMicros(histogram.getMax())).append('}');
+        }
+        return new Response(200, json.append('}').toString());
+    }
+
+    //the last 30 days unless from and to are given
+    private Response stats(HttpExchange exchange) throws Exception {
+        if(ticketAnalyticsService == null){
+            return Response.error(404, "Analytics are not enabled");
+        }
+        Map<String, String> parameters = getParameters(exchange);
+        LocalDate to;
+        LocalDate from;
+        try {
+            to = parameters.containsKey("to") ? LocalDate.parse(parameters.get("to")) : LocalDate.now();
+            from = parameters.containsKey("from") ? LocalDate.parse(parameters.get("from")) : to.minusDays(29);
+        } catch (DateTimeParseException e) {
+            return Response.error(400, "Dates are expected as yyyy-MM-dd");
+        }
+        StringBuilder json = new StringBuilder("[");
+        for(DailyParkingStats dailyStats : ticketAnalyticsService.getDailyStats(from, to)){
+            if(json.length() > 1){
+                json.append(',');
+            }
+            json.append("{\"date\":").append(quote(dailyStats.getDate().toString()))
+                    .append(",\"parkingType\":").append(quote(dailyStats.getParkingType().toString()))
+                    .append(",\"tickets\":").append(dailyStats.getTicketCount())
+                    .append(",\"revenue\":").append(dailyStats.getRevenueInCents() / 100.0)
+                    .append(",\"averageStayMinutes\":").append(Math.round(dailyStats.getAverageStayMinutes()))
+                    .append(",\"peakOccupancy\":").append(dailyStats.getPeakOccupancy())
+                    .append(",\"discountedTickets\":").append(dailyStats.getDiscountedTicketCount())
+                    .append(",\"discount\":").append(dailyStats.getDiscountInCents() / 100.0).append('}');
+        }
+        return new Response(200, json.append(']').toString());
+    }
+
+    private void route(String path, String method, Handler handler) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        latencies.put(path, histogram);
+        server.createContext(path, exchange -> {
+            long start = System.nanoTime();
+            Response response;
+            try {
+                if(!exchange.getRequestMethod().equalsIgnoreCase(method)){
+                    response = Response.error(405, "Use " + method);
+                }else{
+                    response = handler.handle(exchange);
+                }
+            } catch (SQLException e) {
+                logger.error("Data base failure handling {}", exchange.getRequestURI(), e);
+                response = Response.error(503, "Data base unavailable");
+            } catch (Exception e) {
+                logger.error("Error handling {}", exchange.getRequestURI(), e);
+                response = Response.error(500, "Internal error");
+            }
+            //recorded before the reply goes out, so a client reading /metrics right after sees its own call
+            histogram.record(System.nanoTime() - start);
+            send(exchange, response);
+        });
+    }
+
+    private static void send(HttpExchange exchange, Response response) throws IOException {
+        byte[] body = response.body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", response.contentType);
+        exchange.sendResponseHeaders(response.status, body.length);
+        try(OutputStream out = exchange.getResponseBody()){
+            out.write(body);
+        }
+    }
+
+    private static Map<String, String> getParameters(HttpExchange exchange) throws UnsupportedEncodingException {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if(query == null){
+            return parameters;
+        }
+        for(String pair : query.split("&")){
+            int separator = pair.indexOf('=');
+            if(separator > 0){
+                parameters.put(URLDecoder.decode(pair.substring(0, separator), "UTF-8"),
+                        URLDecoder.decode(pair.substring(separator + 1), "UTF-8"));
+            }
+        }
+        return parameters;
+    }
+
+    //trimmed, or null when missing, blank or too long to be stored
+    private static String getVehicleRegNumber(Map<String, String> parameters) {
+        String vehicleRegNumber = parameters.get("vehicle");
+        if(vehicleRegNumber == null){
+            return null;
+        }
+        vehicleRegNumber = vehicleRegNumber.trim();
+        return vehicleRegNumber.isEmpty() || vehicleRegNumber.length() > MAX_VEHICLE_REG_NUMBER_LENGTH ? null : vehicleRegNumber;
+    }
+
+    static String toJson(Ticket ticket) {
+        StringBuilder json = new StringBuilder("{\"vehicleRegNumber\":").append(quote(ticket.getVehicleRegNumber()));
+        if(ticket.getParkingSpot() != null){
+            json.append(",\"parkingNumber\":").append(ticket.getParkingSpot().getId())
+                    .append(",\"parkingType\":").append(quote(String.valueOf(ticket.getParkingSpot().getParkingType())));
+        }
+        json.append(",\"inTime\":").append(ticket.getInTime() == null ? "null" : quote(ticket.getInTime().toString()))
+                .append(",\"outTime\":").append(ticket.getOutTime() == null ? "null" : quote(ticket.getOutTime().toString()))
+                .append(",\"price\":").append(ticket.getPrice());
+        return json.append('}').toString();
+    }
+
+    private static String quote(String value) {
+        if(value == null){
+            return "null";
+        }
+        StringBuilder quoted = new StringBuilder("\"");
+        for(char c : value.toCharArray()){
+            if(c == '"' || c == '\\'){
+                quoted.append('\\').append(c);
+            }else if(c < 0x20){
+                quoted.append(String.format("\\u%04x", (int) c));
+            }else{
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    private interface Handler {
+        Response handle(HttpExchange exchange) throws Exception;
+    }
+
+    private static class Response {
+        private final int status;
+        private final String body;
+        private final String contentType;
+
+        Response(int status, String body) {
+            this(status, body, JSON_CONTENT_TYPE);
+        }
+
+        Response(int status, String body, String contentType) {
+            this.status = status;
+            this.body = body;
+            this.contentType = contentType;
+        }
+
+        static Response error(int status, String message) {
+            return new Response(status, "{\"error\":" + quote(message) + "}");
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.parkit.parkingsystem.cache;
+
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+//open tickets (no out time yet) by vehicle registration number, least recently used entries go first when full.
+//tickets are copied in and out, so callers mutating their ticket never change the cached one.
+public class ActiveTicketCache {
+
+    private final int maxSize;
+    private final Map<String, Ticket> tickets;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public ActiveTicketCache(int maxSize) {
+        if(maxSize < 1){
+            throw new IllegalArgumentException("Invalid cache size: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.tickets = new LinkedHashMap<String, Ticket>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Ticket> eldest) {
+                if(size() > ActiveTicketCache.this.maxSize){
+                    evictionCount.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public Ticket get(String vehicleRegNumber) {
+        Ticket ticket;
+        synchronized (tickets) {
+            ticket = tickets.get(vehicleRegNumber);
+        }
+        if(ticket == null){
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return copy(ticket);
+    }
+
+    //returns the ticket it replaced, so a rolled back change can put it back
+    public Ticket put(Ticket ticket) {
+        if(ticket.getOutTime() != null){
+            return remove(ticket.getVehicleRegNumber());
+        }
+        Ticket copy = copy(ticket);
+        synchronized (tickets) {
+            return tickets.put(copy.getVehicleRegNumber(), copy);
+        }
+    }
+
+    public Ticket remove(String vehicleRegNumber) {
+        synchronized (tickets) {
+            return tickets.remove(vehicleRegNumber);
+        }
+    }
+
+    public int size() {
+        synchronized (tickets) {
+            return tickets.size();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "size=" + size() + "/" + maxSize + ", hits=" + hitCount.get() + ", misses=" + missCount.get()
+                + ", evictions=" + evictionCount.get();
+    }
+
+    private static Ticket copy(Ticket ticket) {
+        Ticket copy = new Ticket();
+        copy.setId(ticket.getId());
+        ParkingSpot parkingSpot = ticket.getParkingSpot();
+        copy.setParkingSpot(new ParkingSpot(parkingSpot.getId(), parkingSpot.getParkingType(), parkingSpot.isAvailable()));
+        copy.setVehicleRegNumber(ticket.getVehicleRegNumber());
+        copy.setPrice(ticket.getPrice());
+        copy.setInTime(ticket.getInTime());
+        copy.setOutTime(ticket.getOutTime());
+        return copy;
+    }
+}
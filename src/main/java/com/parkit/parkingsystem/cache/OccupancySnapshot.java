@@ -0,0 +1,280 @@
+package com.parkit.parkingsystem.cache;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//spot occupancy and open tickets in a memory-mapped file, one 32 byte record per parking number, so a restart
+//can rebuild the index and the ticket cache without querying the data base.
+//every change is written in place as it happens; the page cache keeps it if the JVM dies, and force() pushes it
+//to disk. The state byte of a record is written last, so a torn record shows its old state. The data base stays
+//the source of truth: a section is only trusted when its valid flag is set, and callers check it against the data base.
+public class OccupancySnapshot implements AutoCloseable {
+
+    public static final int SPOTS_VALID = 1;
+    public static final int TICKETS_VALID = 2;
+
+    private static final int MAGIC = 0x504B534E;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_SIZE = 32;
+    private static final int MAX_REG_NUMBER_LENGTH = 16;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    //state byte: bit 0 available, bit 1 open ticket, bits 2-7 ordinal + 1 of the spot type (0 when not a spot)
+    private static final int AVAILABLE = 1;
+    private static final int OPEN_TICKET = 2;
+    private static final ParkingType[] PARKING_TYPES = ParkingType.values();
+
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int capacity;
+
+    private OccupancySnapshot(FileChannel channel) throws IOException {
+        this.channel = channel;
+        if(channel.size() >= HEADER_SIZE){
+            map(HEADER_SIZE);
+            int fileCapacity = buffer.getInt(12);
+            if(buffer.getInt(0) == MAGIC && buffer.getInt(4) == VERSION && fileCapacity > 0
+                    && channel.size() >= HEADER_SIZE + (long) fileCapacity * RECORD_SIZE){
+                map(HEADER_SIZE + (long) fileCapacity * RECORD_SIZE);
+                capacity = fileCapacity;
+                return;
+            }
+        }
+        //new or unreadable file: start empty with nothing valid
+        channel.truncate(0);
+        map(HEADER_SIZE + (long) INITIAL_CAPACITY * RECORD_SIZE);
+        clear(0, buffer.capacity());
+        capacity = INITIAL_CAPACITY;
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(12, capacity);
+    }
+
+    public static OccupancySnapshot open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            return new OccupancySnapshot(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public synchronized boolean isValid(int section) {
+        return (buffer.getInt(8) & section) == section;
+    }
+
+    public synchronized void setValid(int section, boolean valid) {
+        int flags = buffer.getInt(8);
+        buffer.putInt(8, valid ? flags | section : flags & ~section);
+    }
+
+    public synchronized void setSpot(int number, ParkingType parkingType, boolean available) throws IOException {
+        int position = record(number);
+        int state = buffer.get(position) & OPEN_TICKET;
+        buffer.put(position, (byte) (state | (parkingType.ordinal() + 1) << 2 | (available ? AVAILABLE : 0)));
+    }
+
+    //tickets are kept by parking number, a spot holds one open ticket at most
+    public synchronized void putOpenTicket(Ticket ticket) throws IOException {
+        int position = record(ticket.getParkingSpot().getId());
+        byte[] regNumber = ticket.getVehicleRegNumber().getBytes(StandardCharsets.UTF_8);
+        int state = buffer.get(position) & ~OPEN_TICKET;
+        buffer.put(position, (byte) state);
+        if(regNumber.length > MAX_REG_NUMBER_LENGTH){
+            return;
+        }
+        buffer.put(position + 1, (byte) regNumber.length);
+        buffer.putInt(position + 4, ticket.getId());
+        buffer.putLong(position + 8, ticket.getInTime().toEpochSecond(ZoneOffset.UTC));
+        for(int i = 0; i < regNumber.length; i++){
+            buffer.put(position + 16 + i, regNumber[i]);
+        }
+        buffer.put(position, (byte) (state | OPEN_TICKET));
+    }
+
+    public synchronized void removeOpenTicket(int parkingNumber) throws IOException {
+        int position = record(parkingNumber);
+        buffer.put(position, (byte) (buffer.get(position) & ~OPEN_TICKET));
+    }
+
+    //replaces every spot with the state of the index
+    public synchronized void writeSpots(ParkingSpotIndex index) throws IOException {
+        setValid(SPOTS_VALID, false);
+        int maxParkingNumber = index.getMaxParkingNumber();
+        if(maxParkingNumber > 0){
+            record(maxParkingNumber);
+        }
+        for(int number = 1; number < capacity; number++){
+            int position = HEADER_SIZE + number * RECORD_SIZE;
+            int state = buffer.get(position) & OPEN_TICKET;
+            ParkingType parkingType = number <= maxParkingNumber ? index.getParkingType(number) : null;
+            if(parkingType != null){
+                state |= (parkingType.ordinal() + 1) << 2 | (index.isAvailable(number, parkingType) ? AVAILABLE : 0);
+            }
+            buffer.put(position, (byte) state);
+        }
+        setValid(SPOTS_VALID, true);
+    }
+
+    //replaces every open ticket
+    public synchronized void writeOpenTickets(List<Ticket> tickets) throws IOException {
+        setValid(TICKETS_VALID, false);
+        for(int number = 1; number < capacity; number++){
+            int position = HEADER_SIZE + number * RECORD_SIZE;
+            buffer.put(position, (byte) (buffer.get(position) & ~OPEN_TICKET));
+        }
+        for(Ticket ticket : tickets){
+            putOpenTicket(ticket);
+        }
+        setValid(TICKETS_VALID, true);
+    }
+
+    //parking numbers whose spot or open ticket differs from the data base state given, in increasing order.
+    //tickets are matched on vehicle and in time, the ID of a ticket still queued for write-behind is not known yet
+    public synchronized int[] findDifferences(ParkingSpotIndex index, List<Ticket> openTickets) {
+        Map<Integer, Ticket> ticketsByParkingNumber = new HashMap<>();
+        for(Ticket ticket : openTickets){
+            ticketsByParkingNumber.put(ticket.getParkingSpot().getId(), ticket);
+        }
+        int[] differences = new int[16];
+        int nbDifferences = 0;
+        int maxParkingNumber = Math.max(capacity - 1, index.getMaxParkingNumber());
+        for(int number = 1; number <= maxParkingNumber; number++){
+            int state = number < capacity ? buffer.get(HEADER_SIZE + number * RECORD_SIZE) & 0xFF : 0;
+            ParkingType parkingType = number <= index.getMaxParkingNumber() ? index.getParkingType(number) : null;
+            int expected = 0;
+            if(parkingType != null){
+                expected = (parkingType.ordinal() + 1) << 2 | (index.isAvailable(number, parkingType) ? AVAILABLE : 0);
+            }
+            Ticket ticket = ticketsByParkingNumber.get(number);
+            boolean different = (state & ~OPEN_TICKET) != expected
+                    || ((state & OPEN_TICKET) != 0) != (ticket != null)
+                    || (ticket != null && !isSameTicket(number, ticket));
+            if(different){
+                if(nbDifferences == differences.length){
+                    differences = Arrays.copyOf(differences, nbDifferences * 2);
+                }
+                differences[nbDifferences++] = number;
+            }
+        }
+        return Arrays.copyOf(differences, nbDifferences);
+    }
+
+    public synchronized ParkingSpotIndex toParkingSpotIndex() {
+        int maxParkingNumber = 0;
+        for(int number = 1; number < capacity; number++){
+            if(getParkingType(number) != null){
+                maxParkingNumber = number;
+            }
+        }
+        ParkingSpotIndex index = new ParkingSpotIndex(maxParkingNumber);
+        for(int number = 1; number <= maxParkingNumber; number++){
+            ParkingType parkingType = getParkingType(number);
+            if(parkingType != null){
+                index.setAvailable(number, parkingType, (buffer.get(HEADER_SIZE + number * RECORD_SIZE) & AVAILABLE) != 0);
+            }
+        }
+        return index;
+    }
+
+    //open tickets on known spots, in parking number order
+    public synchronized List<Ticket> getOpenTickets() {
+        List<Ticket> tickets = new ArrayList<>();
+        for(int number = 1; number < capacity; number++){
+            int position = HEADER_SIZE + number * RECORD_SIZE;
+            ParkingType parkingType = getParkingType(number);
+            if((buffer.get(position) & OPEN_TICKET) == 0 || parkingType == null){
+                continue;
+            }
+            byte[] regNumber = new byte[buffer.get(position + 1)];
+            for(int i = 0; i < regNumber.length; i++){
+                regNumber[i] = buffer.get(position + 16 + i);
+            }
+            Ticket ticket = new Ticket();
+            ticket.setId(buffer.getInt(position + 4));
+            ticket.setParkingSpot(new ParkingSpot(number, parkingType, false));
+            ticket.setVehicleRegNumber(new String(regNumber, StandardCharsets.UTF_8));
+            ticket.setInTime(LocalDateTime.ofEpochSecond(buffer.getLong(position + 8), 0, ZoneOffset.UTC));
+            tickets.add(ticket);
+        }
+        return tickets;
+    }
+
+    public synchronized void force() {
+        buffer.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private boolean isSameTicket(int number, Ticket ticket) {
+        int position = HEADER_SIZE + number * RECORD_SIZE;
+        byte[] regNumber = ticket.getVehicleRegNumber().getBytes(StandardCharsets.UTF_8);
+        if(buffer.get(position + 1) != regNumber.length
+                || buffer.getLong(position + 8) != ticket.getInTime().toEpochSecond(ZoneOffset.UTC)){
+            return false;
+        }
+        for(int i = 0; i < regNumber.length; i++){
+            if(buffer.get(position + 16 + i) != regNumber[i]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ParkingType getParkingType(int number) {
+        int type = (buffer.get(HEADER_SIZE + number * RECORD_SIZE) & 0xFF) >>> 2;
+        return type == 0 || type > PARKING_TYPES.length ? null : PARKING_TYPES[type - 1];
+    }
+
+    //position of the record of that spot, growing the file when the number is past its end
+    private int record(int number) throws IOException {
+        if(number <= 0){
+            throw new IllegalArgumentException("Invalid parking number: " + number);
+        }
+        if(number >= capacity){
+            int newCapacity = capacity;
+            while(number >= newCapacity){
+                newCapacity *= 2;
+            }
+            map(HEADER_SIZE + (long) newCapacity * RECORD_SIZE);
+            clear(HEADER_SIZE + capacity * RECORD_SIZE, buffer.capacity());
+            capacity = newCapacity;
+            buffer.putInt(12, capacity);
+        }
+        return HEADER_SIZE + number * RECORD_SIZE;
+    }
+
+    //the content of a file extended by map() is unspecified
+    private void clear(int from, int to) {
+        for(int i = from; i < to; i++){
+            buffer.put(i, (byte) 0);
+        }
+    }
+
+    private void map(long size) throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        buffer.order(ByteOrder.BIG_ENDIAN);
+    }
+}
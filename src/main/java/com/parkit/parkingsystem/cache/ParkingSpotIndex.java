@@ -0,0 +1,104 @@
+package com.parkit.parkingsystem.cache;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+//lock-free: every operation is a CAS on one 64-spot word of the bitmap of its ParkingType.
+//a free spot counter per type moves only with a bit that actually changed, so display boards read it in O(1).
+//the type of each spot is one byte indexed by its number, so a facility with millions of spots is held
+//in a few primitive arrays rather than one object per spot.
+public class ParkingSpotIndex {
+
+    private static final ParkingType[] PARKING_TYPES = ParkingType.values();
+
+    private final SpotBitmap[] availableSpots;
+    private final AtomicInteger[] availableCounts;
+    //ordinal + 1 of the type of each spot, 0 for numbers that are not a spot
+    private final byte[] spotTypes;
+
+    public ParkingSpotIndex(int maxParkingNumber) {
+        ParkingType[] parkingTypes = ParkingType.values();
+        availableSpots = new SpotBitmap[parkingTypes.length];
+        availableCounts = new AtomicInteger[parkingTypes.length];
+        for(int i = 0; i < parkingTypes.length; i++){
+            availableSpots[i] = new SpotBitmap(maxParkingNumber + 1);
+            availableCounts[i] = new AtomicInteger();
+        }
+        spotTypes = new byte[availableSpots[0].capacity()];
+    }
+
+    //numbers above getMaxParkingNumber() cannot be indexed: they are ignored here, and never available or claimable
+    public void setAvailable(int number, ParkingType parkingType, boolean available) {
+        if(!inRange(number)){
+            return;
+        }
+        if(available){
+            release(number, parkingType);
+        }else{
+            claim(number, parkingType);
+        }
+        spotTypes[number] = (byte) (parkingType.ordinal() + 1);
+    }
+
+    public boolean isAvailable(int number, ParkingType parkingType) {
+        return inRange(number) && availableSpots[parkingType.ordinal()].get(number);
+    }
+
+    //false for a spot added to the parking table after the index was loaded, which is then handled by SQL alone
+    public boolean contains(int number) {
+        return getParkingType(number) != null;
+    }
+
+    //highest number a spot can have in this index
+    public int getMaxParkingNumber() {
+        return spotTypes.length - 1;
+    }
+
+    //null when there is no spot with that number
+    public ParkingType getParkingType(int number) {
+        if(!inRange(number) || spotTypes[number] == 0){
+            return null;
+        }
+        return PARKING_TYPES[spotTypes[number] - 1];
+    }
+
+    public int countAvailable(ParkingType parkingType) {
+        return availableCounts[parkingType.ordinal()].get();
+    }
+
+    //returns 0 when no spot of that type is free, like the min() query it replaces
+    public int getLowestAvailable(ParkingType parkingType) {
+        int number = availableSpots[parkingType.ordinal()].lowest();
+        return number > 0 ? number : 0;
+    }
+
+    //atomically takes the lowest free spot, returns 0 when the type is full
+    public int claimLowestAvailable(ParkingType parkingType) {
+        int number = availableSpots[parkingType.ordinal()].claimLowest();
+        if(number > 0){
+            availableCounts[parkingType.ordinal()].decrementAndGet();
+            return number;
+        }
+        return 0;
+    }
+
+    //atomically takes the given spot, false if another caller holds it already
+    public boolean claim(int number, ParkingType parkingType) {
+        if(inRange(number) && availableSpots[parkingType.ordinal()].clear(number)){
+            availableCounts[parkingType.ordinal()].decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    public void release(int number, ParkingType parkingType) {
+        if(inRange(number) && availableSpots[parkingType.ordinal()].set(number)){
+            availableCounts[parkingType.ordinal()].incrementAndGet();
+        }
+    }
+
+    private boolean inRange(int number) {
+        return number > 0 && number < spotTypes.length;
+    }
+}
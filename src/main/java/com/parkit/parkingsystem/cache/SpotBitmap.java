@@ -0,0 +1,112 @@
+package com.parkit.parkingsystem.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+//one bit per free spot number, plus a summary bit per 64-spot word so the lowest free spot is found without a full scan.
+//every change is a CAS on a single word, so gates only contend when they touch the same 64 spots.
+class SpotBitmap {
+
+    private final AtomicLongArray words;
+    //a summary bit may be stale-set for an empty word, but is never clear while its word has a free spot
+    private final AtomicLongArray summary;
+
+    SpotBitmap(int capacity) {
+        int nbWords = (capacity + 63) >>> 6;
+        words = new AtomicLongArray(Math.max(nbWords, 1));
+        summary = new AtomicLongArray(Math.max((nbWords + 63) >>> 6, 1));
+    }
+
+    int capacity() {
+        return words.length() << 6;
+    }
+
+    //false when the spot was already free
+    boolean set(int number) {
+        int word = number >>> 6;
+        long bit = 1L << number;
+        long current;
+        do {
+            current = words.get(word);
+            if((current & bit) != 0){
+                setSummary(word);
+                return false;
+            }
+        } while(!words.compareAndSet(word, current, current | bit));
+        setSummary(word);
+        return true;
+    }
+
+    boolean clear(int number) {
+        int word = number >>> 6;
+        long bit = 1L << number;
+        long current;
+        do {
+            current = words.get(word);
+            if((current & bit) == 0){
+                return false;
+            }
+        } while(!words.compareAndSet(word, current, current & ~bit));
+        return true;
+    }
+
+    boolean get(int number) {
+        return (words.get(number >>> 6) & (1L << number)) != 0;
+    }
+
+    int lowest() {
+        for(int i = 0; i < summary.length(); i++){
+            long summaryBits = summary.get(i);
+            while(summaryBits != 0){
+                int word = (i << 6) + Long.numberOfTrailingZeros(summaryBits);
+                long bits = words.get(word);
+                if(bits != 0){
+                    return (word << 6) + Long.numberOfTrailingZeros(bits);
+                }
+                clearSummaryIfEmpty(word);
+                summaryBits &= summaryBits - 1;
+            }
+        }
+        return -1;
+    }
+
+    int claimLowest() {
+        for(int i = 0; i < summary.length(); i++){
+            long summaryBits = summary.get(i);
+            while(summaryBits != 0){
+                int word = (i << 6) + Long.numberOfTrailingZeros(summaryBits);
+                long bits;
+                while((bits = words.get(word)) != 0){
+                    long lowestBit = Long.lowestOneBit(bits);
+                    if(words.compareAndSet(word, bits, bits & ~lowestBit)){
+                        return (word << 6) + Long.numberOfTrailingZeros(lowestBit);
+                    }
+                }
+                clearSummaryIfEmpty(word);
+                summaryBits &= summaryBits - 1;
+            }
+        }
+        return -1;
+    }
+
+    private void setSummary(int word) {
+        int index = word >>> 6;
+        long bit = 1L << word;
+        long current;
+        do {
+            current = summary.get(index);
+        } while((current & bit) == 0 && !summary.compareAndSet(index, current, current | bit));
+    }
+
+    private void clearSummaryIfEmpty(int word) {
+        int index = word >>> 6;
+        long bit = 1L << word;
+        long current;
+        do {
+            current = summary.get(index);
+        } while((current & bit) != 0 && !summary.compareAndSet(index, current, current & ~bit));
+        //a release may have raced with the clear, put the bit back so the spot stays reachable
+        if(words.get(word) != 0){
+            setSummary(word);
+        }
+    }
+}
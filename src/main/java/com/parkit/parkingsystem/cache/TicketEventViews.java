@@ -0,0 +1,91 @@
+package com.parkit.parkingsystem.cache;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.model.TicketEvent;
+
+import java.util.HashMap;
+import java.util.Map;
+
+//state derived from the ticket event log: open tickets by vehicle, vehicles parked per type and tickets per vehicle.
+//built by replaying the log at startup, then kept current by applying each committed event.
+public class TicketEventViews {
+
+    private final Map<String, Ticket> openTickets = new HashMap<>();
+    private final int[] occupancy = new int[ParkingType.values().length];
+    private final Map<String, Integer> visitCounts = new HashMap<>();
+    private int lastEventId;
+    private long eventCount;
+
+    public synchronized void apply(TicketEvent event) {
+        lastEventId = Math.max(lastEventId, event.getId());
+        eventCount++;
+        switch (event.getType()) {
+            case ENTERED: {
+                Ticket ticket = new Ticket();
+                ticket.setId(event.getTicketId());
+                ticket.setParkingSpot(new ParkingSpot(event.getParkingNumber(), event.getParkingType(), false));
+                ticket.setVehicleRegNumber(event.getVehicleRegNumber());
+                ticket.setInTime(event.getTime());
+                if(openTickets.put(event.getVehicleRegNumber(), ticket) == null){
+                    occupancy[event.getParkingType().ordinal()]++;
+                }
+                visitCounts.merge(event.getVehicleRegNumber(), 1, Integer::sum);
+                break;
+            }
+            case PRICED: {
+                Ticket ticket = openTickets.get(event.getVehicleRegNumber());
+                if(ticket != null){
+                    ticket.setPrice(event.getPrice());
+                    ticket.setOutTime(event.getTime());
+                }
+                break;
+            }
+            case EXITED: {
+                if(openTickets.remove(event.getVehicleRegNumber()) != null){
+                    occupancy[event.getParkingType().ordinal()]--;
+                }
+                break;
+            }
+        }
+    }
+
+    //a copy of the vehicle's open ticket, null when it has none
+    public synchronized Ticket getOpenTicket(String vehicleRegNumber) {
+        Ticket ticket = openTickets.get(vehicleRegNumber);
+        if(ticket == null){
+            return null;
+        }
+        Ticket copy = new Ticket();
+        copy.setId(ticket.getId());
+        copy.setParkingSpot(new ParkingSpot(ticket.getParkingSpot().getId(), ticket.getParkingSpot().getParkingType(), false));
+        copy.setVehicleRegNumber(ticket.getVehicleRegNumber());
+        copy.setPrice(ticket.getPrice());
+        copy.setInTime(ticket.getInTime());
+        copy.setOutTime(ticket.getOutTime());
+        return copy;
+    }
+
+    public synchronized int getOpenTicketCount() {
+        return openTickets.size();
+    }
+
+    public synchronized int getOccupancy(ParkingType parkingType) {
+        return occupancy[parkingType.ordinal()];
+    }
+
+    public synchronized int getVisitCount(String vehicleRegNumber) {
+        return visitCounts.getOrDefault(vehicleRegNumber, 0);
+    }
+
+    public synchronized int getLastEventId() {
+        return lastEventId;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return eventCount + " events up to " + lastEventId + ", " + openTickets.size() + " open tickets, "
+                + visitCounts.size() + " vehicles";
+    }
+}
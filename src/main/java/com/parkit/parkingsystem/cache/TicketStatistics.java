@@ -0,0 +1,309 @@
+package com.parkit.parkingsystem.cache;
+
+import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.DailyParkingStats;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+//per day and parking type aggregates of the ticket history, in primitive arrays that only grow with the number of
+//days kept (maxDays). occupancy is kept as arrivals minus departures per minute, peaks are summed up on read.
+//tickets are fed in by ID: new ones above the high-water mark, and the ones still open below it once they close.
+//IDs are not committed in order, so the IDs under the mark a read of new tickets did not see are looked up again.
+public class TicketStatistics {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final ParkingType[] PARKING_TYPES = ParkingType.values();
+    private static final int NB_TYPES = PARKING_TYPES.length;
+    //uncommitted tickets are the last ones handed out, so only the IDs that close to the mark can be skipped ones
+    private static final int SKIPPED_ID_WINDOW = 1000;
+    //refreshes a skipped ID is looked up in before it is taken for a rolled back or deleted ticket
+    private static final int SKIPPED_ID_CHECKS = 3;
+
+    private final int maxDays;
+
+    //day d of type t is at d * NB_TYPES + t, its minute m in occupancyDeltas at (d * NB_TYPES + t) * MINUTES_PER_DAY + m
+    private int[] ticketCounts = new int[0];
+    private long[] revenuesInCents = new long[0];
+    private long[] stayMinutes = new long[0];
+    private int[] discountedCounts = new int[0];
+    private long[] discountsInCents = new long[0];
+    private int[] occupancyDeltas = new int[0];
+    //vehicles parked at the start of the first day kept
+    private final int[] baseOccupancy = new int[NB_TYPES];
+    private long firstDay;
+    private int nbDays;
+
+    private int highWaterMark;
+    //open tickets at or below the high-water mark, sorted before each lookup
+    private int[] pendingIds = new int[64];
+    private int nbPending;
+    private boolean pendingSorted = true;
+    //IDs under the high-water mark not seen yet, in ID order, with the lookups each has left
+    private int[] skippedIds = new int[16];
+    private int[] skippedChecksLeft = new int[16];
+    private int nbSkipped;
+    //IDs seen by the read of new tickets in progress, from the high-water mark it started at
+    private BitSet newIds;
+    private int newIdsFrom;
+
+    public TicketStatistics(int maxDays) {
+        if(maxDays < 1){
+            throw new IllegalArgumentException("Invalid number of days: " + maxDays);
+        }
+        this.maxDays = maxDays;
+    }
+
+    //a ticket above the high-water mark, or a skipped one: an open one counts as parked until it is closed
+    public synchronized void addTicket(int id, ParkingType parkingType, LocalDateTime inTime, LocalDateTime outTime,
+                                       long priceInCents, boolean discount) {
+        if(newIds != null && id > newIdsFrom){
+            newIds.set(id - newIdsFrom - 1);
+        }else{
+            removeSkipped(id);
+        }
+        highWaterMark = Math.max(highWaterMark, id);
+        addOccupancy(parkingType, inTime, 1);
+        if(outTime == null){
+            if(nbPending == pendingIds.length){
+                pendingIds = Arrays.copyOf(pendingIds, nbPending * 2);
+            }
+            pendingSorted = pendingSorted && (nbPending == 0 || pendingIds[nbPending - 1] < id);
+            pendingIds[nbPending++] = id;
+        }else{
+            close(parkingType, inTime, outTime, priceInCents, discount);
+        }
+    }
+
+    //a ticket closed since it was added open, ignored when it was not pending
+    public synchronized boolean closeTicket(int id, ParkingType parkingType, LocalDateTime inTime, LocalDateTime outTime,
+                                            long priceInCents, boolean discount) {
+        sortPending();
+        int position = Arrays.binarySearch(pendingIds, 0, nbPending, id);
+        if(position < 0){
+            return false;
+        }
+        System.arraycopy(pendingIds, position + 1, pendingIds, position, nbPending - position - 1);
+        nbPending--;
+        close(parkingType, inTime, outTime, priceInCents, discount);
+        return true;
+    }
+
+    public synchronized int getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    public synchronized int getPendingCount() {
+        return nbPending;
+    }
+
+    //the open tickets below the high-water mark, in ID order
+    public synchronized int[] getPendingIds() {
+        sortPending();
+        return Arrays.copyOf(pendingIds, nbPending);
+    }
+
+    //before the tickets above the high-water mark are added
+    public synchronized void beginNewTickets() {
+        newIds = new BitSet();
+        newIdsFrom = highWaterMark;
+    }
+
+    //the IDs under the new mark that were not read may belong to tickets that had not committed yet
+    public synchronized void endNewTickets() {
+        for(int id = Math.max(newIdsFrom, highWaterMark - SKIPPED_ID_WINDOW) + 1; id < highWaterMark; id++){
+            if(!newIds.get(id - newIdsFrom - 1)){
+                if(nbSkipped == skippedIds.length){
+                    skippedIds = Arrays.copyOf(skippedIds, nbSkipped * 2);
+                    skippedChecksLeft = Arrays.copyOf(skippedChecksLeft, nbSkipped * 2);
+                }
+                skippedIds[nbSkipped] = id;
+                skippedChecksLeft[nbSkipped++] = SKIPPED_ID_CHECKS;
+            }
+        }
+        newIds = null;
+    }
+
+    public synchronized int[] getSkippedIds() {
+        return Arrays.copyOf(skippedIds, nbSkipped);
+    }
+
+    //after a lookup of the skipped IDs: the ones still missing have one check less, and are dropped after the last
+    public synchronized void expireSkippedIds() {
+        int kept = 0;
+        for(int i = 0; i < nbSkipped; i++){
+            if(--skippedChecksLeft[i] > 0){
+                skippedIds[kept] = skippedIds[i];
+                skippedChecksLeft[kept++] = skippedChecksLeft[i];
+            }
+        }
+        nbSkipped = kept;
+    }
+
+    //days of the window between from and to, both included
+    public synchronized List<DailyParkingStats> getDailyStats(LocalDate from, LocalDate to) {
+        List<DailyParkingStats> stats = new ArrayList<>();
+        int[] occupancy = baseOccupancy.clone();
+        for(int day = 0; day < nbDays; day++){
+            LocalDate date = LocalDate.ofEpochDay(firstDay + day);
+            boolean inRange = !date.isBefore(from) && !date.isAfter(to);
+            for(int type = 0; type < NB_TYPES; type++){
+                int slot = day * NB_TYPES + type;
+                int offset = slot * MINUTES_PER_DAY;
+                int peak = occupancy[type];
+                for(int minute = 0; minute < MINUTES_PER_DAY; minute++){
+                    occupancy[type] += occupancyDeltas[offset + minute];
+                    peak = Math.max(peak, occupancy[type]);
+                }
+                if(inRange){
+                    stats.add(new DailyParkingStats(date, PARKING_TYPES[type], ticketCounts[slot], revenuesInCents[slot],
+                            stayMinutes[slot], discountedCounts[slot], discountsInCents[slot], peak));
+                }
+            }
+            if(date.isAfter(to)){
+                break;
+            }
+        }
+        return stats;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return nbDays + " days up to ticket " + highWaterMark + ", " + nbPending + " open, " + nbSkipped + " skipped";
+    }
+
+    private void close(ParkingType parkingType, LocalDateTime inTime, LocalDateTime outTime, long priceInCents, boolean discount) {
+        addOccupancy(parkingType, outTime, -1);
+        int day = toDayIndex(Math.floorDiv(toEpochMinute(outTime), MINUTES_PER_DAY));
+        if(day < 0){
+            return;
+        }
+        int slot = day * NB_TYPES + parkingType.ordinal();
+        ticketCounts[slot]++;
+        revenuesInCents[slot] += priceInCents;
+        stayMinutes[slot] += ChronoUnit.MINUTES.between(inTime, outTime);
+        if(discount){
+            discountedCounts[slot]++;
+            //the price charged is the full fare less the discount, so this is what the discount cost on it
+            discountsInCents[slot] += (priceInCents * Fare.RECURRING_USER_DISCOUNT_PERCENT
+                    + (100 - Fare.RECURRING_USER_DISCOUNT_PERCENT) / 2) / (100 - Fare.RECURRING_USER_DISCOUNT_PERCENT);
+        }
+    }
+
+    private void addOccupancy(ParkingType parkingType, LocalDateTime time, int delta) {
+        long epochMinute = toEpochMinute(time);
+        int day = toDayIndex(Math.floorDiv(epochMinute, MINUTES_PER_DAY));
+        if(day < 0){
+            baseOccupancy[parkingType.ordinal()] += delta;
+            return;
+        }
+        occupancyDeltas[(day * NB_TYPES + parkingType.ordinal()) * MINUTES_PER_DAY
+                + (int) Math.floorMod(epochMinute, MINUTES_PER_DAY)] += delta;
+    }
+
+    //index of the day in the arrays, growing the window to it; -1 for a day older than the window
+    private int toDayIndex(long epochDay) {
+        if(nbDays == 0){
+            firstDay = epochDay;
+            resize(1, 0);
+            nbDays = 1;
+            return 0;
+        }
+        if(epochDay < firstDay){
+            long lastDay = firstDay + nbDays - 1;
+            if(lastDay - epochDay >= maxDays){
+                return -1;
+            }
+            int shift = (int) (firstDay - epochDay);
+            resize(nbDays + shift, shift);
+            firstDay = epochDay;
+            nbDays += shift;
+            return 0;
+        }
+        if(epochDay - firstDay >= maxDays){
+            dropOldestDays(epochDay - firstDay - maxDays + 1);
+        }
+        int day = (int) (epochDay - firstDay);
+        if(day >= nbDays){
+            if(day >= ticketCounts.length / NB_TYPES){
+                resize(Math.min(Math.max(day + 1, nbDays * 2), maxDays), 0);
+            }
+            nbDays = day + 1;
+        }
+        return day;
+    }
+
+    //the arrivals and departures of dropped days move to the base occupancy, so later peaks do not change
+    private void dropOldestDays(long count) {
+        int dropped = (int) Math.min(count, nbDays);
+        for(int slot = 0; slot < dropped * NB_TYPES; slot++){
+            int offset = slot * MINUTES_PER_DAY;
+            for(int minute = 0; minute < MINUTES_PER_DAY; minute++){
+                baseOccupancy[slot % NB_TYPES] += occupancyDeltas[offset + minute];
+            }
+        }
+        int kept = nbDays - dropped;
+        shiftLeft(ticketCounts, dropped * NB_TYPES, kept * NB_TYPES);
+        shiftLeft(revenuesInCents, dropped * NB_TYPES, kept * NB_TYPES);
+        shiftLeft(stayMinutes, dropped * NB_TYPES, kept * NB_TYPES);
+        shiftLeft(discountedCounts, dropped * NB_TYPES, kept * NB_TYPES);
+        shiftLeft(discountsInCents, dropped * NB_TYPES, kept * NB_TYPES);
+        shiftLeft(occupancyDeltas, dropped * NB_TYPES * MINUTES_PER_DAY, kept * NB_TYPES * MINUTES_PER_DAY);
+        firstDay += count;
+        nbDays = kept;
+    }
+
+    private void resize(int capacityInDays, int offsetInDays) {
+        int capacity = Math.max(capacityInDays, nbDays + offsetInDays) * NB_TYPES;
+        int offset = offsetInDays * NB_TYPES;
+        int length = nbDays * NB_TYPES;
+        ticketCounts = copy(ticketCounts, new int[capacity], offset, length);
+        revenuesInCents = copy(revenuesInCents, new long[capacity], offset, length);
+        stayMinutes = copy(stayMinutes, new long[capacity], offset, length);
+        discountedCounts = copy(discountedCounts, new int[capacity], offset, length);
+        discountsInCents = copy(discountsInCents, new long[capacity], offset, length);
+        occupancyDeltas = copy(occupancyDeltas, new int[capacity * MINUTES_PER_DAY], offset * MINUTES_PER_DAY,
+                length * MINUTES_PER_DAY);
+    }
+
+    private void removeSkipped(int id) {
+        int position = Arrays.binarySearch(skippedIds, 0, nbSkipped, id);
+        if(position >= 0){
+            System.arraycopy(skippedIds, position + 1, skippedIds, position, nbSkipped - position - 1);
+            System.arraycopy(skippedChecksLeft, position + 1, skippedChecksLeft, position, nbSkipped - position - 1);
+            nbSkipped--;
+        }
+    }
+
+    private void sortPending() {
+        if(!pendingSorted){
+            Arrays.sort(pendingIds, 0, nbPending);
+            pendingSorted = true;
+        }
+    }
+
+    private static <T> T copy(T source, T target, int offset, int length) {
+        System.arraycopy(source, 0, target, offset, length);
+        return target;
+    }
+
+    private static void shiftLeft(Object array, int from, int length) {
+        System.arraycopy(array, from, array, 0, length);
+        if(array instanceof int[]){
+            Arrays.fill((int[]) array, length, from + length, 0);
+        }else{
+            Arrays.fill((long[]) array, length, from + length, 0L);
+        }
+    }
+
+    private static long toEpochMinute(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+}
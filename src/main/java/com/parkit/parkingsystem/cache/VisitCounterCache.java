@@ -0,0 +1,119 @@
+package com.parkit.parkingsystem.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+//number of tickets per vehicle registration number, least recently used entries go first when full
+public class VisitCounterCache {
+
+    private static final int NB_LOAD_STRIPES = 64;
+
+    private final int maxSize;
+    private final Map<String, Integer> visits;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    //bumped when a vehicle that is not cached gets a ticket, so a count read from the database before that is not cached
+    private final int[] loadStamps = new int[NB_LOAD_STRIPES];
+    //tickets saved but not committed yet: a count read from the database meanwhile may or may not include them
+    private final int[] pendingIncrements = new int[NB_LOAD_STRIPES];
+
+    public VisitCounterCache(int maxSize) {
+        if(maxSize < 1){
+            throw new IllegalArgumentException("Invalid cache size: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.visits = new LinkedHashMap<String, Integer>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+                return size() > VisitCounterCache.this.maxSize;
+            }
+        };
+    }
+
+    //returns -1 when the vehicle is not cached
+    public int get(String vehicleRegNumber) {
+        Integer nbTicket;
+        synchronized (visits) {
+            nbTicket = visits.get(vehicleRegNumber);
+        }
+        if(nbTicket == null){
+            missCount.incrementAndGet();
+            return -1;
+        }
+        hitCount.incrementAndGet();
+        return nbTicket;
+    }
+
+    //taken before reading the count from the database, and handed back to putIfAbsent
+    public int getLoadStamp(String vehicleRegNumber) {
+        synchronized (visits) {
+            return loadStamps[stripe(vehicleRegNumber)];
+        }
+    }
+
+    //ignored when the vehicle got a ticket since the stamp was taken, or one is still uncommitted, as the count read
+    //may not include it
+    public boolean putIfAbsent(String vehicleRegNumber, int nbTicket, int loadStamp) {
+        synchronized (visits) {
+            int stripe = stripe(vehicleRegNumber);
+            if(loadStamps[stripe] != loadStamp || pendingIncrements[stripe] != 0){
+                return false;
+            }
+            return visits.putIfAbsent(vehicleRegNumber, nbTicket) == null;
+        }
+    }
+
+    //a ticket was saved for the vehicle: other gates keep reading the committed count until endIncrement
+    public void beginIncrement(String vehicleRegNumber) {
+        synchronized (visits) {
+            int stripe = stripe(vehicleRegNumber);
+            pendingIncrements[stripe]++;
+            loadStamps[stripe]++;
+        }
+    }
+
+    //only counts vehicles already cached, others are read from the database on their next lookup
+    public void endIncrement(String vehicleRegNumber, boolean committed) {
+        synchronized (visits) {
+            int stripe = stripe(vehicleRegNumber);
+            pendingIncrements[stripe]--;
+            loadStamps[stripe]++;
+            if(committed){
+                visits.computeIfPresent(vehicleRegNumber, (key, nbTicket) -> nbTicket + 1);
+            }else{
+                visits.remove(vehicleRegNumber);
+            }
+        }
+    }
+
+    public void remove(String vehicleRegNumber) {
+        synchronized (visits) {
+            visits.remove(vehicleRegNumber);
+            loadStamps[stripe(vehicleRegNumber)]++;
+        }
+    }
+
+    public int size() {
+        synchronized (visits) {
+            return visits.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    private static int stripe(String vehicleRegNumber) {
+        return (vehicleRegNumber.hashCode() & 0x7fffffff) % NB_LOAD_STRIPES;
+    }
+
+    @Override
+    public String toString() {
+        return "size=" + size() + "/" + maxSize + ", hits=" + hitCount.get() + ", misses=" + missCount.get();
+    }
+}
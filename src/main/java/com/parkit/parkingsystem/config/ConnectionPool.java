@@ -0,0 +1,226 @@
+package com.parkit.parkingsystem.config;
+
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.metrics.Timer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ConnectionPool {
+
+    private static final Logger logger = LogManager.getLogger("ConnectionPool");
+
+    private static final Timer CONNECTION_ACQUIRE_TIMER = Metrics.timer("db_connection_acquire");
+
+    private final ConnectionPoolConfig config;
+    private final LinkedBlockingDeque<PooledConnection> idleConnections = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowedConnections = ConcurrentHashMap.newKeySet();
+    private final Semaphore permits;
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong destroyedCount = new AtomicLong();
+    private final AtomicLong validationFailureCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+    private final AtomicLong preparedStatementCount = new AtomicLong();
+    private final AtomicLong statementCacheHitCount = new AtomicLong();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    public ConnectionPool(ConnectionPoolConfig config) {
+        if(config.getMaxSize() < 1 || config.getMinSize() < 0 || config.getMinSize() > config.getMaxSize()){
+            throw new IllegalArgumentException("Invalid pool size: min=" + config.getMinSize() + ", max=" + config.getMaxSize());
+        }
+        this.config = config;
+        this.permits = new Semaphore(config.getMaxSize(), true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep, 0, config.getHousekeepingPeriodMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public Connection getConnection() throws SQLException {
+        long start = CONNECTION_ACQUIRE_TIMER.start();
+        try{
+            return doGetConnection();
+        }finally{
+            CONNECTION_ACQUIRE_TIMER.stop(start);
+        }
+    }
+
+    private Connection doGetConnection() throws SQLException {
+        if(closed){
+            throw new SQLException("Connection pool is closed");
+        }
+        try {
+            if(!permits.tryAcquire(config.getConnectionTimeoutMillis(), TimeUnit.MILLISECONDS)){
+                timeoutCount.incrementAndGet();
+                throw new SQLException("Timed out after " + config.getConnectionTimeoutMillis()
+                        + "ms waiting for a connection (" + getStats() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+        try {
+            PooledConnection pooledConnection;
+            while((pooledConnection = idleConnections.pollFirst()) != null){
+                if(isValid(pooledConnection)){
+                    break;
+                }
+                validationFailureCount.incrementAndGet();
+                destroy(pooledConnection);
+            }
+            if(pooledConnection == null){
+                pooledConnection = create();
+            }
+            borrowedConnections.add(pooledConnection);
+            borrowCount.incrementAndGet();
+            return pooledConnection.borrow(config.getLeakDetectionThresholdMillis() > 0);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    void release(PooledConnection pooledConnection) {
+        borrowedConnections.remove(pooledConnection);
+        try {
+            if(closed){
+                destroy(pooledConnection);
+            }else{
+                pooledConnection.reset();
+                idleConnections.offerFirst(pooledConnection);
+            }
+        } catch (SQLException e) {
+            logger.error("Error while resetting pooled connection, discarding it", e);
+            destroy(pooledConnection);
+        } finally {
+            permits.release();
+        }
+    }
+
+    public ConnectionPoolStats getStats() {
+        int idle = idleConnections.size();
+        int active = borrowedConnections.size();
+        int cachedStatements = 0;
+        for(PooledConnection pooledConnection : idleConnections){
+            cachedStatements += pooledConnection.getCachedStatementCount();
+        }
+        for(PooledConnection pooledConnection : borrowedConnections){
+            cachedStatements += pooledConnection.getCachedStatementCount();
+        }
+        return new ConnectionPoolStats(totalConnections.get(), idle, active, borrowCount.get(), createdCount.get(),
+                destroyedCount.get(), validationFailureCount.get(), timeoutCount.get(), leakCount.get(),
+                cachedStatements, preparedStatementCount.get(), statementCacheHitCount.get());
+    }
+
+    void statementPrepared() {
+        preparedStatementCount.incrementAndGet();
+    }
+
+    void statementReused() {
+        statementCacheHitCount.incrementAndGet();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooledConnection;
+        while((pooledConnection = idleConnections.pollFirst()) != null){
+            destroy(pooledConnection);
+        }
+        logger.info("Connection pool closed ({})", getStats());
+    }
+
+    private PooledConnection create() throws SQLException {
+        Connection connection = DriverManager.getConnection(config.getUrl(), config.getUser(), config.getPassword());
+        totalConnections.incrementAndGet();
+        createdCount.incrementAndGet();
+        return new PooledConnection(this, connection, config.getStatementCacheSize());
+    }
+
+    private boolean isValid(PooledConnection pooledConnection) {
+        try {
+            return pooledConnection.getPhysicalConnection().isValid(config.getValidationTimeoutSeconds());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void destroy(PooledConnection pooledConnection) {
+        totalConnections.decrementAndGet();
+        destroyedCount.incrementAndGet();
+        try {
+            pooledConnection.closePhysicalConnection();
+        } catch (SQLException e) {
+            logger.error("Error while closing pooled connection", e);
+        }
+    }
+
+    private void housekeep() {
+        try {
+            long now = System.currentTimeMillis();
+            evictIdleConnections(now);
+            detectLeaks(now);
+            fillToMinimum();
+        } catch (Exception e) {
+            logger.error("Error during connection pool housekeeping", e);
+        }
+    }
+
+    private void evictIdleConnections(long now) {
+        Iterator<PooledConnection> iterator = idleConnections.descendingIterator();
+        while(iterator.hasNext() && totalConnections.get() > config.getMinSize()){
+            PooledConnection pooledConnection = iterator.next();
+            if(now - pooledConnection.getLastUsedAt() > config.getIdleTimeoutMillis()
+                    && idleConnections.removeFirstOccurrence(pooledConnection)){
+                destroy(pooledConnection);
+            }
+        }
+    }
+
+    private void detectLeaks(long now) {
+        long threshold = config.getLeakDetectionThresholdMillis();
+        if(threshold <= 0){
+            return;
+        }
+        for(PooledConnection pooledConnection : borrowedConnections){
+            if(!pooledConnection.isLeakReported() && now - pooledConnection.getBorrowedAt() > threshold){
+                pooledConnection.setLeakReported(true);
+                leakCount.incrementAndGet();
+                logger.warn("Connection held for more than {}ms, possible leak", threshold, pooledConnection.getBorrowedFrom());
+            }
+        }
+    }
+
+    private void fillToMinimum() throws SQLException {
+        while(!closed && totalConnections.get() < config.getMinSize() && permits.tryAcquire()){
+            try {
+                idleConnections.offerLast(create());
+            } finally {
+                permits.release();
+            }
+        }
+    }
+}
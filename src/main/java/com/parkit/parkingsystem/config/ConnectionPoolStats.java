@@ -0,0 +1,91 @@
+package com.parkit.parkingsystem.config;
+
+public class ConnectionPoolStats {
+    private final int totalConnections;
+    private final int idleConnections;
+    private final int activeConnections;
+    private final long borrowCount;
+    private final long createdCount;
+    private final long destroyedCount;
+    private final long validationFailureCount;
+    private final long timeoutCount;
+    private final long leakCount;
+    private final int cachedStatements;
+    private final long preparedStatementCount;
+    private final long statementCacheHitCount;
+
+    public ConnectionPoolStats(int totalConnections, int idleConnections, int activeConnections, long borrowCount,
+                               long createdCount, long destroyedCount, long validationFailureCount,
+                               long timeoutCount, long leakCount, int cachedStatements, long preparedStatementCount,
+                               long statementCacheHitCount) {
+        this.totalConnections = totalConnections;
+        this.idleConnections = idleConnections;
+        this.activeConnections = activeConnections;
+        this.borrowCount = borrowCount;
+        this.createdCount = createdCount;
+        this.destroyedCount = destroyedCount;
+        this.validationFailureCount = validationFailureCount;
+        this.timeoutCount = timeoutCount;
+        this.leakCount = leakCount;
+        this.cachedStatements = cachedStatements;
+        this.preparedStatementCount = preparedStatementCount;
+        this.statementCacheHitCount = statementCacheHitCount;
+    }
+
+    public int getTotalConnections() {
+        return totalConnections;
+    }
+
+    public int getIdleConnections() {
+        return idleConnections;
+    }
+
+    public int getActiveConnections() {
+        return activeConnections;
+    }
+
+    public long getBorrowCount() {
+        return borrowCount;
+    }
+
+    public long getCreatedCount() {
+        return createdCount;
+    }
+
+    public long getDestroyedCount() {
+        return destroyedCount;
+    }
+
+    public long getValidationFailureCount() {
+        return validationFailureCount;
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount;
+    }
+
+    public long getLeakCount() {
+        return leakCount;
+    }
+
+    public int getCachedStatements() {
+        return cachedStatements;
+    }
+
+    public long getPreparedStatementCount() {
+        return preparedStatementCount;
+    }
+
+    public long getStatementCacheHitCount() {
+        return statementCacheHitCount;
+    }
+
+    @Override
+    public String toString() {
+        return "total=" + totalConnections + ", idle=" + idleConnections + ", active=" + activeConnections
+                + ", borrowed=" + borrowCount + ", created=" + createdCount + ", destroyed=" + destroyedCount
+                + ", validationFailures=" + validationFailureCount + ", timeouts=" + timeoutCount
+                + ", leaks=" + leakCount + ", cachedStatements=" + cachedStatements
+                + ", statementsPrepared=" + preparedStatementCount + ", statementCacheHits=" + statementCacheHitCount;
+    }
+}
@@ -4,23 +4,126 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.sql.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class DataBaseConfig {
 
     private static final Logger logger = LogManager.getLogger("DataBaseConfig");
 
+    //pools are shared by every config pointing at the same database
+    private static final Map<String, ConnectionPool> connectionPools = new ConcurrentHashMap<>();
+    //held while the pool of a database is created and its schema migrated, so callers of other databases never wait on it
+    private static final Map<String, Object> poolCreationLocks = new ConcurrentHashMap<>();
+
+    private final String dataBaseName;
+    private volatile ConnectionPool connectionPool;
+
+    public DataBaseConfig() {
+        this("prod");
+    }
+
+    //one data base per facility in a multi-facility deployment
+    public DataBaseConfig(String dataBaseName) {
+        this.dataBaseName = dataBaseName;
+    }
+
+    public String getDataBaseName() {
+        return dataBaseName;
+    }
+
     public Connection getConnection() throws ClassNotFoundException, SQLException {
-        logger.info("Create DB connection");
-        Class.forName("com.mysql.cj.jdbc.Driver");
-        return DriverManager.getConnection(
-                "jdbc:mysql://localhost:3306/prod","root","rootroot");
+        logger.debug("Create DB connection");
+        ConnectionPool pool = getConnectionPool();
+        Connection con = TransactionManager.getTransactionalConnection(pool);
+        return con != null ? con : pool.getConnection();
+    }
+
+    //the pool is looked up again once closeConnectionPools() closed it
+    public ConnectionPool getConnectionPool() throws ClassNotFoundException, SQLException {
+        ConnectionPool pool = connectionPool;
+        if(pool == null || pool.isClosed()){
+            ConnectionPoolConfig config = getConnectionPoolConfig();
+            Class.forName(config.getDriverClassName());
+            pool = getOrCreateConnectionPool(config);
+            connectionPool = pool;
+        }
+        return pool;
+    }
+
+    //a pool is only shared once its schema is migrated; when the migration fails no pool is kept and the next call retries
+    private ConnectionPool getOrCreateConnectionPool(ConnectionPoolConfig config) throws SQLException {
+        String url = config.getUrl();
+        ConnectionPool pool = connectionPools.get(url);
+        if(pool != null){
+            return pool;
+        }
+        synchronized (poolCreationLocks.computeIfAbsent(url, key -> new Object())){
+            pool = connectionPools.get(url);
+            if(pool == null){
+                pool = new ConnectionPool(config);
+                try {
+                    migrateSchema(pool);
+                } catch (SQLException | RuntimeException e) {
+                    pool.close();
+                    logger.error("Error migrating data base schema, the data base is not used", e);
+                    throw e;
+                }
+                connectionPools.put(url, pool);
+            }
+            return pool;
+        }
+    }
+
+    //runs once per data base, when its pool is created
+    protected void migrateSchema(ConnectionPool pool) throws SQLException {
+        if(!Boolean.parseBoolean(System.getProperty("parkit.db.migrate", "true"))){
+            return;
+        }
+        SchemaMigrator schemaMigrator = new SchemaMigrator(pool);
+        schemaMigrator.migrate();
+        if(getStorageBackend().isEmbedded()){
+            schemaMigrator.seedParkingSpots();
+        }
+    }
+
+    public StorageBackend getStorageBackend() {
+        return StorageBackend.fromSystemProperty("parkit.db.backend", StorageBackend.MYSQL);
+    }
+
+    protected ConnectionPoolConfig getConnectionPoolConfig() {
+        ConnectionPoolConfig config = getStorageBackend().createConnectionPoolConfig(dataBaseName);
+        //a data base on another server, e.g. a facility moved to its own instance
+        String url = System.getProperty("parkit.db." + dataBaseName + ".url");
+        if(url != null){
+            config.setUrl(url);
+        }
+        applyPoolSizing(config);
+        return config;
+    }
+
+    protected void applyPoolSizing(ConnectionPoolConfig config) {
+        config.setMinSize(Integer.getInteger("parkit.db.pool.minSize", config.getMinSize()));
+        config.setMaxSize(Integer.getInteger("parkit.db.pool.maxSize", config.getMaxSize()));
+        config.setIdleTimeoutMillis(Long.getLong("parkit.db.pool.idleTimeoutMillis", config.getIdleTimeoutMillis()));
+        config.setLeakDetectionThresholdMillis(Long.getLong("parkit.db.pool.leakDetectionThresholdMillis",
+                config.getLeakDetectionThresholdMillis()));
+        config.setStatementCacheSize(Integer.getInteger("parkit.db.pool.statementCacheSize", config.getStatementCacheSize()));
+    }
+
+    public static void closeConnectionPools() {
+        for(ConnectionPool pool : connectionPools.values()){
+            pool.close();
+        }
+        connectionPools.clear();
     }
 
     public void closeConnection(Connection con){
-        if(con!=null){
+        //connections joined to a transaction are released by the TransactionManager
+        if(con!=null && !TransactionManager.isTransactionalConnection(con)){
             try {
                 con.close();
-                logger.info("Closing DB connection");
+                logger.debug("Closing DB connection");
             } catch (SQLException e) {
                 logger.error("Error while closing connection",e);
             }
@@ -31,7 +134,7 @@ public class DataBaseConfig {
         if(ps!=null){
             try {
                 ps.close();
-                logger.info("Closing Prepared Statement");
+                logger.debug("Closing Prepared Statement");
             } catch (SQLException e) {
                 logger.error("Error while closing prepared statement",e);
             }
@@ -42,7 +145,7 @@ public class DataBaseConfig {
         if(rs!=null){
             try {
                 rs.close();
-                logger.info("Closing Result Set");
+                logger.debug("Closing Result Set");
             } catch (SQLException e) {
                 logger.error("Error while closing result set",e);
             }
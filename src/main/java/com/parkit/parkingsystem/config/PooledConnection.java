@@ -0,0 +1,130 @@
+package com.parkit.parkingsystem.config;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+class PooledConnection {
+
+    private final ConnectionPool pool;
+    private final Connection physicalConnection;
+    private final StatementCache statementCache;
+    private volatile long lastUsedAt;
+    private volatile long borrowedAt;
+    private volatile Throwable borrowedFrom;
+    private volatile boolean leakReported;
+
+    PooledConnection(ConnectionPool pool, Connection physicalConnection, int statementCacheSize) {
+        this.pool = pool;
+        this.physicalConnection = physicalConnection;
+        this.statementCache = statementCacheSize > 0 ? new StatementCache(pool, physicalConnection, statementCacheSize) : null;
+        this.lastUsedAt = System.currentTimeMillis();
+    }
+
+    Connection getPhysicalConnection() {
+        return physicalConnection;
+    }
+
+    long getLastUsedAt() {
+        return lastUsedAt;
+    }
+
+    long getBorrowedAt() {
+        return borrowedAt;
+    }
+
+    Throwable getBorrowedFrom() {
+        return borrowedFrom;
+    }
+
+    boolean isLeakReported() {
+        return leakReported;
+    }
+
+    void setLeakReported(boolean leakReported) {
+        this.leakReported = leakReported;
+    }
+
+    Connection borrow(boolean trackBorrower) {
+        borrowedAt = System.currentTimeMillis();
+        borrowedFrom = trackBorrower ? new Throwable("Connection borrowed here") : null;
+        leakReported = false;
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new Handle());
+    }
+
+    void reset() throws SQLException {
+        if(!physicalConnection.getAutoCommit()){
+            physicalConnection.rollback();
+            physicalConnection.setAutoCommit(true);
+        }
+        physicalConnection.clearWarnings();
+        lastUsedAt = System.currentTimeMillis();
+    }
+
+    int getCachedStatementCount() {
+        return statementCache == null ? 0 : statementCache.size();
+    }
+
+    void closePhysicalConnection() throws SQLException {
+        if(statementCache != null){
+            statementCache.closeAll();
+        }
+        physicalConnection.close();
+    }
+
+    //plain and generated keys statements are cached, ones with cursor options or key columns are not
+    private static boolean isCacheable(Method method) {
+        if(!method.getName().equals("prepareStatement")){
+            return false;
+        }
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        return parameterTypes.length == 1 || (parameterTypes.length == 2 && parameterTypes[1] == int.class);
+    }
+
+    //one handle per borrow, so a connection closed by a caller cannot be used after it went back to the pool
+    private class Handle implements InvocationHandler {
+        private boolean closed;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close": {
+                    if(!closed){
+                        closed = true;
+                        if(statementCache != null){
+                            statementCache.releaseAll();
+                        }
+                        pool.release(PooledConnection.this);
+                    }
+                    return null;
+                }
+                case "isClosed":
+                    return closed || physicalConnection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + physicalConnection;
+                default:
+                    if(closed){
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+                    if(statementCache != null && isCacheable(method)){
+                        return statementCache.prepare((String) args[0],
+                                args.length == 1 ? Statement.NO_GENERATED_KEYS : (Integer) args[1]);
+                    }
+                    try {
+                        return method.invoke(physicalConnection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.parkit.parkingsystem.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.stream.Collectors;
+
+//applies the scripts under db/migration in version order and records each one in schema_version,
+//so a data base created by Data.sql or by an older release is brought up to date at startup
+public class SchemaMigrator {
+
+    private static final Logger logger = LogManager.getLogger("SchemaMigrator");
+
+    //index i holds version i + 1, new scripts are appended
+    private static final String[] MIGRATIONS = {
+            "V1__baseline.sql",
+            "V2__lookup_indexes.sql",
+            "V3__ticket_archive.sql",
+            "V4__ticket_event.sql",
+            "V5__vehicle_facility.sql",
+            "V6__vehicle_visit_backfill.sql"
+    };
+
+    private static final String CREATE_SCHEMA_VERSION = "create table if not exists schema_version(VERSION int PRIMARY KEY, DESCRIPTION varchar(100) NOT NULL, INSTALLED_ON DATETIME NOT NULL)";
+    private static final String GET_SCHEMA_VERSION = "select max(VERSION) from schema_version";
+    private static final String SAVE_SCHEMA_VERSION = "insert into schema_version(VERSION, DESCRIPTION, INSTALLED_ON) values(?,?,?)";
+    private static final String COUNT_PARKING_SPOTS = "select count(*) from parking";
+
+    private final ConnectionPool connectionPool;
+
+    public SchemaMigrator(ConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
+    }
+
+    public static int getLatestVersion() {
+        return MIGRATIONS.length;
+    }
+
+    public int migrate() throws SQLException {
+        return migrate(getLatestVersion());
+    }
+
+    //returns the number of scripts applied
+    public int migrate(int targetVersion) throws SQLException {
+        try(Connection con = connectionPool.getConnection()){
+            try(Statement statement = con.createStatement()){
+                statement.execute(CREATE_SCHEMA_VERSION);
+            }
+            int currentVersion = getCurrentVersion(con);
+            int applied = 0;
+            for(int version = currentVersion + 1; version <= Math.min(targetVersion, MIGRATIONS.length); version++){
+                apply(con, version, MIGRATIONS[version - 1]);
+                applied++;
+            }
+            if(applied > 0){
+                logger.info("Migrated data base schema from version {} to {}", currentVersion, currentVersion + applied);
+            }
+            return applied;
+        }
+    }
+
+    //fills the parking table of a new data base, returns false when it already had spots
+    public boolean seedParkingSpots() throws SQLException {
+        try(Connection con = connectionPool.getConnection()){
+            try(PreparedStatement ps = con.prepareStatement(COUNT_PARKING_SPOTS);
+                ResultSet rs = ps.executeQuery()){
+                if(rs.next() && rs.getInt(1) > 0){
+                    return false;
+                }
+            }
+            try(Statement statement = con.createStatement()){
+                for(String sql : readStatements("/db/seed/parking.sql")){
+                    statement.execute(sql);
+                }
+            }
+            logger.info("Created the default parking spots");
+            return true;
+        }
+    }
+
+    public int getCurrentVersion() throws SQLException {
+        try(Connection con = connectionPool.getConnection()){
+            return getCurrentVersion(con);
+        }
+    }
+
+    private int getCurrentVersion(Connection con) throws SQLException {
+        try(PreparedStatement ps = con.prepareStatement(GET_SCHEMA_VERSION);
+            ResultSet rs = ps.executeQuery()){
+            return rs.next() ? rs.getInt(1) : 0;
+        }catch (SQLException ex){
+            //schema_version does not exist yet
+            return 0;
+        }
+    }
+
+    //MySQL commits DDL statements on its own, so a script that fails half way is not rolled back;
+    //its version is only recorded once every statement went through
+    private void apply(Connection con, int version, String script) throws SQLException {
+        logger.info("Applying schema migration {}", script);
+        try(Statement statement = con.createStatement()){
+            for(String sql : readStatements("/db/migration/" + script)){
+                statement.execute(sql);
+            }
+        }
+        try(PreparedStatement ps = con.prepareStatement(SAVE_SCHEMA_VERSION)){
+            ps.setInt(1, version);
+            ps.setString(2, script.substring(script.indexOf("__") + 2, script.lastIndexOf('.')).replace('_', ' '));
+            ps.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+            ps.execute();
+        }
+    }
+
+    private static String[] readStatements(String script) throws SQLException {
+        try(InputStream in = SchemaMigrator.class.getResourceAsStream(script)){
+            if(in == null){
+                throw new SQLException("Missing sql script " + script);
+            }
+            String sql;
+            try(BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))){
+                sql = reader.lines().collect(Collectors.joining("\n"));
+            }
+            return sql.replaceAll("(?s)/\\*.*?\\*/", "").trim().split("\\s*;\\s*");
+        }catch (IOException ex){
+            throw new SQLException("Error reading sql script " + script, ex);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.parkit.parkingsystem.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//prepared statements of one physical connection, kept open across borrows.
+//callers still close what they prepare: closing hands the statement back here, with its parameters
+//cleared, its fetch size, max rows and query timeout back to the driver defaults and its result sets closed,
+//and the least recently used one is really closed when the cache is full.
+class StatementCache {
+
+    private static final Logger logger = LogManager.getLogger("StatementCache");
+
+    private final ConnectionPool pool;
+    private final Connection physicalConnection;
+    private final int maxSize;
+    private final LinkedHashMap<String, PreparedStatement> idleStatements = new LinkedHashMap<>(16, 0.75f, true);
+    private final List<Handle> openHandles = new ArrayList<>();
+    //read from the first statement prepared, so a setting made by one borrower is not seen by the next
+    private boolean defaultsRead;
+    private int defaultFetchSize;
+    private int defaultMaxRows;
+    private int defaultQueryTimeout;
+
+    StatementCache(ConnectionPool pool, Connection physicalConnection, int maxSize) {
+        this.pool = pool;
+        this.physicalConnection = physicalConnection;
+        this.maxSize = maxSize;
+    }
+
+    synchronized PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+        String key = autoGeneratedKeys + ":" + sql;
+        PreparedStatement statement = idleStatements.remove(key);
+        if(statement == null || statement.isClosed()){
+            statement = physicalConnection.prepareStatement(sql, autoGeneratedKeys);
+            pool.statementPrepared();
+            if(!defaultsRead){
+                defaultFetchSize = statement.getFetchSize();
+                defaultMaxRows = statement.getMaxRows();
+                defaultQueryTimeout = statement.getQueryTimeout();
+                defaultsRead = true;
+            }
+        }else{
+            pool.statementReused();
+        }
+        Handle handle = new Handle(key, statement);
+        openHandles.add(handle);
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, handle);
+    }
+
+    //statements left open by the borrower go back to the cache with the connection
+    synchronized void releaseAll() {
+        for(Handle handle : new ArrayList<>(openHandles)){
+            handle.release();
+        }
+    }
+
+    synchronized void closeAll() {
+        releaseAll();
+        for(PreparedStatement statement : idleStatements.values()){
+            closeQuietly(statement);
+        }
+        idleStatements.clear();
+    }
+
+    synchronized int size() {
+        return idleStatements.size() + openHandles.size();
+    }
+
+    private synchronized void giveBack(Handle handle) {
+        openHandles.remove(handle);
+        PreparedStatement statement = handle.statement;
+        try {
+            if(statement.isClosed()){
+                return;
+            }
+            statement.clearParameters();
+            statement.clearBatch();
+            statement.clearWarnings();
+            //max rows first, as some drivers refuse a fetch size above it
+            if(statement.getMaxRows() != defaultMaxRows){
+                statement.setMaxRows(defaultMaxRows);
+            }
+            if(statement.getFetchSize() != defaultFetchSize){
+                statement.setFetchSize(defaultFetchSize);
+            }
+            if(statement.getQueryTimeout() != defaultQueryTimeout){
+                statement.setQueryTimeout(defaultQueryTimeout);
+            }
+        } catch (SQLException e) {
+            closeQuietly(statement);
+            return;
+        }
+        //the same query prepared twice on one borrow: keep the first one only
+        if(idleStatements.putIfAbsent(handle.key, statement) != null){
+            closeQuietly(statement);
+            return;
+        }
+        Iterator<Map.Entry<String, PreparedStatement>> eldest = idleStatements.entrySet().iterator();
+        while(idleStatements.size() > maxSize && eldest.hasNext()){
+            closeQuietly(eldest.next().getValue());
+            eldest.remove();
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            logger.error("Error while closing cached prepared statement", e);
+        }
+    }
+
+    private class Handle implements InvocationHandler {
+        private final String key;
+        private final PreparedStatement statement;
+        private final List<ResultSet> resultSets = new ArrayList<>(1);
+        private boolean closed;
+
+        Handle(String key, PreparedStatement statement) {
+            this.key = key;
+            this.statement = statement;
+        }
+
+        void release() {
+            if(closed){
+                return;
+            }
+            closed = true;
+            for(ResultSet resultSet : resultSets){
+                try {
+                    resultSet.close();
+                } catch (SQLException e) {
+                    logger.error("Error while closing result set of a cached statement", e);
+                }
+            }
+            giveBack(this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    release();
+                    return null;
+                case "isClosed":
+                    return closed || statement.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Cached" + statement;
+                default:
+                    if(closed){
+                        throw new SQLException("Statement has already been closed");
+                    }
+                    Object result;
+                    try {
+                        result = method.invoke(statement, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if(result instanceof ResultSet){
+                        resultSets.add((ResultSet) result);
+                    }
+                    return result;
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.parkit.parkingsystem.config;
+
+import java.io.File;
+import java.util.Locale;
+
+//where the tables live, chosen with -Dparkit.db.backend. The DAOs only speak the MySQL dialect, which the
+//embedded H2 backends run in MySQL mode, so switching needs no other change.
+//this is the only storage seam: the DAOs stay concrete JDBC classes on DataBaseConfig, as their caches, spot index
+//and write-behind queue are built on the SQL they run and would otherwise have to be written once per store.
+public enum StorageBackend {
+
+    //MySQL server on localhost, the data bases created by Data.sql
+    MYSQL {
+        @Override
+        public ConnectionPoolConfig createConnectionPoolConfig(String dataBaseName) {
+            ConnectionPoolConfig config = new ConnectionPoolConfig();
+            config.setUrl("jdbc:mysql://localhost:3306/" + dataBaseName + "?useCursorFetch=true&useServerPrepStmts=true");
+            config.setUser("root");
+            config.setPassword("rootroot");
+            return config;
+        }
+    },
+
+    //in-process H2 data base kept in files under parkit.db.embedded.dir, for sites without a MySQL server
+    EMBEDDED {
+        @Override
+        public ConnectionPoolConfig createConnectionPoolConfig(String dataBaseName) {
+            File file = new File(System.getProperty("parkit.db.embedded.dir", "data"), dataBaseName);
+            return createH2Config("jdbc:h2:file:" + file.getAbsolutePath() + ";MODE=MySQL");
+        }
+    },
+
+    //in-process H2 data base that lives as long as the JVM, for tests
+    MEMORY {
+        @Override
+        public ConnectionPoolConfig createConnectionPoolConfig(String dataBaseName) {
+            return createH2Config("jdbc:h2:mem:" + dataBaseName + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        }
+    };
+
+    public abstract ConnectionPoolConfig createConnectionPoolConfig(String dataBaseName);
+
+    //embedded data bases start empty and get the Data.sql parking spots on first use
+    public boolean isEmbedded() {
+        return this != MYSQL;
+    }
+
+    public static StorageBackend fromSystemProperty(String name, StorageBackend defaultBackend) {
+        String value = System.getProperty(name);
+        return value == null ? defaultBackend : valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+
+    private static ConnectionPoolConfig createH2Config(String url) {
+        ConnectionPoolConfig config = new ConnectionPoolConfig();
+        config.setDriverClassName("org.h2.Driver");
+        config.setUrl(url);
+        config.setUser("sa");
+        config.setPassword("");
+        return config;
+    }
+}
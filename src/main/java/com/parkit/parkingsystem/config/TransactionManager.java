@@ -0,0 +1,129 @@
+package com.parkit.parkingsystem.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class TransactionManager {
+
+    private static final Logger logger = LogManager.getLogger("TransactionManager");
+
+    private static final ThreadLocal<Transaction> currentTransaction = new ThreadLocal<>();
+
+    public void begin() {
+        if(currentTransaction.get() != null){
+            throw new IllegalStateException("A transaction is already active on this thread");
+        }
+        currentTransaction.set(new Transaction());
+    }
+
+    public void commit() throws SQLException {
+        Transaction transaction = currentTransaction.get();
+        if(transaction == null){
+            throw new IllegalStateException("No active transaction to commit");
+        }
+        try {
+            for(Connection con : transaction.connections.values()){
+                con.commit();
+            }
+        } catch (SQLException e) {
+            rollback();
+            throw e;
+        }
+        end(transaction);
+        for(Runnable action : transaction.commitActions){
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                logger.error("Error while publishing in-memory state after commit", e);
+            }
+        }
+    }
+
+    public void rollback() {
+        Transaction transaction = currentTransaction.get();
+        if(transaction == null){
+            return;
+        }
+        for(Connection con : transaction.connections.values()){
+            try {
+                con.rollback();
+            } catch (SQLException e) {
+                logger.error("Error while rolling back transaction", e);
+            }
+        }
+        end(transaction);
+        for(int i = transaction.rollbackActions.size() - 1; i >= 0; i--){
+            try {
+                transaction.rollbackActions.get(i).run();
+            } catch (RuntimeException e) {
+                logger.error("Error while undoing in-memory state on rollback", e);
+            }
+        }
+    }
+
+    //lets in-memory structures updated during a transaction undo their change if it rolls back
+    public static void onRollback(Runnable action) {
+        Transaction transaction = currentTransaction.get();
+        if(transaction != null){
+            transaction.rollbackActions.add(action);
+        }
+    }
+
+    //defers writes that must never get ahead of the data base until the transaction commits, runs them at once outside a transaction
+    public static void onCommit(Runnable action) {
+        Transaction transaction = currentTransaction.get();
+        if(transaction != null){
+            transaction.commitActions.add(action);
+        }else{
+            action.run();
+        }
+    }
+
+    public static boolean isActive() {
+        return currentTransaction.get() != null;
+    }
+
+    static Connection getTransactionalConnection(ConnectionPool pool) throws SQLException {
+        Transaction transaction = currentTransaction.get();
+        if(transaction == null){
+            return null;
+        }
+        Connection con = transaction.connections.get(pool);
+        if(con == null){
+            con = pool.getConnection();
+            con.setAutoCommit(false);
+            transaction.connections.put(pool, con);
+        }
+        return con;
+    }
+
+    static boolean isTransactionalConnection(Connection con) {
+        Transaction transaction = currentTransaction.get();
+        return transaction != null && transaction.connections.containsValue(con);
+    }
+
+    private void end(Transaction transaction) {
+        currentTransaction.remove();
+        for(Connection con : transaction.connections.values()){
+            try {
+                con.close();
+            } catch (SQLException e) {
+                logger.error("Error while closing transactional connection", e);
+            }
+        }
+    }
+
+    //connections joined by the DAOs while the transaction is open, one per pool
+    private static class Transaction {
+        private final Map<ConnectionPool, Connection> connections = new IdentityHashMap<>();
+        private final List<Runnable> rollbackActions = new ArrayList<>();
+        private final List<Runnable> commitActions = new ArrayList<>();
+    }
+}
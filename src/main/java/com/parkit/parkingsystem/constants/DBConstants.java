@@ -1,12 +1,79 @@
 package com.parkit.parkingsystem.constants;
 
+import java.util.Collections;
+
 public class DBConstants {
 
+    public static final String GET_PARKING_SPOTS = "select PARKING_NUMBER, AVAILABLE, TYPE from parking";
     public static final String GET_NEXT_PARKING_SPOT = "select min(PARKING_NUMBER) from parking where AVAILABLE = true and TYPE = ?";
+    public static final String COUNT_AVAILABLE_PARKING_SPOTS = "select count(*) from parking where TYPE = ? and AVAILABLE = true";
+    public static final String COUNT_AVAILABLE_PARKING_SPOTS_BY_TYPE = "select TYPE, count(*) from parking where AVAILABLE = true group by TYPE";
     public static final String UPDATE_PARKING_SPOT = "update parking set available = ? where PARKING_NUMBER = ?";
+    public static final String CLAIM_PARKING_SPOT = "update parking set available = false where PARKING_NUMBER = ? and available = true";
 
     public static final String SAVE_TICKET = "insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?)";
     public static final String UPDATE_TICKET = "update ticket set PRICE=?, OUT_TIME=? where ID=?";
     public static final String GET_TICKET = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE from ticket t,parking p where p.parking_number = t.parking_number and t.VEHICLE_REG_NUMBER=? order by t.IN_TIME DESC limit 1";
-    public static final String GET_NB_TICKET = "select COUNT(*) from ticket where VEHICLE_REG_NUMBER=?";
-}
\ No newline at end of file
+    public static final String GET_OPEN_TICKETS = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE, t.VEHICLE_REG_NUMBER from ticket t,parking p where p.parking_number = t.parking_number and t.OUT_TIME is null order by t.IN_TIME";
+    public static final String GET_NB_TICKET = "select NB_TICKET from vehicle_visit where VEHICLE_REG_NUMBER=?";
+    public static final String INCREMENT_NB_TICKET = "insert into vehicle_visit(VEHICLE_REG_NUMBER, NB_TICKET) values(?,1) on duplicate key update NB_TICKET = NB_TICKET + 1";
+
+    //closed tickets in ID order; a vehicle gets the discount when it has an earlier ticket, archived or not
+    public static final String GET_CLOSED_TICKETS_FOR_PRICING = "select t.ID, p.TYPE, t.IN_TIME, t.OUT_TIME, t.PRICE, least(coalesce(a.FIRST_ID, f.FIRST_ID), coalesce(f.FIRST_ID, a.FIRST_ID)) from ticket t join parking p on p.parking_number = t.parking_number"
+            + " join (select VEHICLE_REG_NUMBER, min(ID) FIRST_ID from ticket group by VEHICLE_REG_NUMBER) f on f.VEHICLE_REG_NUMBER = t.VEHICLE_REG_NUMBER"
+            + " left join (select VEHICLE_REG_NUMBER, min(ID) FIRST_ID from ticket_archive group by VEHICLE_REG_NUMBER) a on a.VEHICLE_REG_NUMBER = t.VEHICLE_REG_NUMBER"
+            + " where t.OUT_TIME is not null order by t.ID";
+    public static final String UPDATE_TICKET_PRICE = "update ticket set PRICE=? where ID=?";
+
+    //write-behind statements are keyed by vehicle and in time, so replaying a journal twice has no effect
+    public static final String SAVE_TICKET_IF_ABSENT = "insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) select ?,?,?,?,? from dual where not exists (select 1 from ticket where VEHICLE_REG_NUMBER=? and IN_TIME=?)";
+    public static final String UPDATE_TICKET_BY_VEHICLE = "update ticket set PRICE=?, OUT_TIME=? where VEHICLE_REG_NUMBER=? and IN_TIME=?";
+
+    //closed tickets older than the cutoff are moved to ticket_archive in ID ranges: the IDs of one batch, then
+    //the copy and the delete of everything up to the last of them, in one transaction
+    public static final String GET_TICKETS_TO_ARCHIVE = "select ID from ticket where OUT_TIME < ? order by ID limit ?";
+    public static final String ARCHIVE_TICKETS = "insert into ticket_archive(ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) select ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME from ticket where ID <= ? and OUT_TIME < ?";
+    public static final String DELETE_ARCHIVED_TICKETS = "delete from ticket where ID <= ? and OUT_TIME < ?";
+    public static final String GET_ARCHIVED_TICKET = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE from ticket_archive t,parking p where p.parking_number = t.parking_number and t.VEHICLE_REG_NUMBER=? order by t.IN_TIME DESC limit 1";
+    public static final String GET_TICKET_HISTORY = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE from ticket t,parking p where p.parking_number = t.parking_number and t.VEHICLE_REG_NUMBER=?"
+            + " union all select a.PARKING_NUMBER, a.ID, a.PRICE, a.IN_TIME, a.OUT_TIME, p.TYPE from ticket_archive a,parking p where p.parking_number = a.parking_number and a.VEHICLE_REG_NUMBER=? order by 4 DESC";
+
+    //analytics read tickets above a high-water mark on ID, then the ones they saw open again once closed. ticket and
+    //ticket_archive are read in one statement, so a ticket archived meanwhile is seen exactly once. the last column
+    //tells whether the vehicle had an earlier ticket, which is when the loyalty discount applied.
+    public static final String GET_TICKETS_FOR_ANALYTICS = "select t.ID, p.TYPE, t.IN_TIME, t.OUT_TIME, t.PRICE,"
+            + " case when exists(select 1 from ticket e where e.VEHICLE_REG_NUMBER = t.VEHICLE_REG_NUMBER and e.ID < t.ID)"
+            + " or exists(select 1 from ticket_archive e where e.VEHICLE_REG_NUMBER = t.VEHICLE_REG_NUMBER and e.ID < t.ID) then 1 else 0 end"
+            + " from ticket t join parking p on p.parking_number = t.parking_number where t.ID > ?"
+            + " union all select a.ID, p.TYPE, a.IN_TIME, a.OUT_TIME, a.PRICE,"
+            + " case when exists(select 1 from ticket e where e.VEHICLE_REG_NUMBER = a.VEHICLE_REG_NUMBER and e.ID < a.ID)"
+            + " or exists(select 1 from ticket_archive e where e.VEHICLE_REG_NUMBER = a.VEHICLE_REG_NUMBER and e.ID < a.ID) then 1 else 0 end"
+            + " from ticket_archive a join parking p on p.parking_number = a.parking_number where a.ID > ?";
+    //pending and skipped tickets are re-read by key, ANALYTICS_ID_BATCH_SIZE at a time, so each refresh costs the
+    //number of tickets still open rather than the ID range they span. a short batch repeats its last ID.
+    public static final int ANALYTICS_ID_BATCH_SIZE = 100;
+    private static final String ANALYTICS_ID_PARAMETERS = String.join(",", Collections.nCopies(ANALYTICS_ID_BATCH_SIZE, "?"));
+    public static final String GET_CLOSED_TICKETS_FOR_ANALYTICS = "select t.ID, p.TYPE, t.IN_TIME, t.OUT_TIME, t.PRICE,"
+            + " case when exists(select 1 from ticket e where e.VEHICLE_REG_NUMBER = t.VEHICLE_REG_NUMBER and e.ID < t.ID)"
+            + " or exists(select 1 from ticket_archive e where e.VEHICLE_REG_NUMBER = t.VEHICLE_REG_NUMBER and e.ID < t.ID) then 1 else 0 end"
+            + " from ticket t join parking p on p.parking_number = t.parking_number where t.ID in (" + ANALYTICS_ID_PARAMETERS + ") and t.OUT_TIME is not null"
+            + " union all select a.ID, p.TYPE, a.IN_TIME, a.OUT_TIME, a.PRICE,"
+            + " case when exists(select 1 from ticket e where e.VEHICLE_REG_NUMBER = a.VEHICLE_REG_NUMBER and e.ID < a.ID)"
+            + " or exists(select 1 from ticket_archive e where e.VEHICLE_REG_NUMBER = a.VEHICLE_REG_NUMBER and e.ID < a.ID) then 1 else 0 end"
+            + " from ticket_archive a join parking p on p.parking_number = a.parking_number where a.ID in (" + ANALYTICS_ID_PARAMETERS + ")";
+    public static final String GET_TICKETS_BY_ID_FOR_ANALYTICS = "select t.ID, p.TYPE, t.IN_TIME, t.OUT_TIME, t.PRICE,"
+            + " case when exists(select 1 from ticket e where e.VEHICLE_REG_NUMBER = t.VEHICLE_REG_NUMBER and e.ID < t.ID)"
+            + " or exists(select 1 from ticket_archive e where e.VEHICLE_REG_NUMBER = t.VEHICLE_REG_NUMBER and e.ID < t.ID) then 1 else 0 end"
+            + " from ticket t join parking p on p.parking_number = t.parking_number where t.ID in (" + ANALYTICS_ID_PARAMETERS + ")"
+            + " union all select a.ID, p.TYPE, a.IN_TIME, a.OUT_TIME, a.PRICE,"
+            + " case when exists(select 1 from ticket e where e.VEHICLE_REG_NUMBER = a.VEHICLE_REG_NUMBER and e.ID < a.ID)"
+            + " or exists(select 1 from ticket_archive e where e.VEHICLE_REG_NUMBER = a.VEHICLE_REG_NUMBER and e.ID < a.ID) then 1 else 0 end"
+            + " from ticket_archive a join parking p on p.parking_number = a.parking_number where a.ID in (" + ANALYTICS_ID_PARAMETERS + ")";
+
+    public static final String SAVE_TICKET_EVENT = "insert into ticket_event(EVENT_TYPE, TICKET_ID, VEHICLE_REG_NUMBER, PARKING_NUMBER, PARKING_TYPE, EVENT_TIME, PRICE) values(?,?,?,?,?,?,?)";
+    public static final String GET_TICKET_EVENTS = "select ID, EVENT_TYPE, TICKET_ID, VEHICLE_REG_NUMBER, PARKING_NUMBER, PARKING_TYPE, EVENT_TIME, PRICE from ticket_event where ID > ? order by ID";
+
+    //routing index of a multi-facility deployment, latest entry first
+    public static final String SAVE_VEHICLE_FACILITY = "insert into vehicle_facility(VEHICLE_REG_NUMBER, FACILITY_ID, LAST_IN_TIME) values(?,?,?) on duplicate key update LAST_IN_TIME = ?";
+    public static final String GET_VEHICLE_FACILITIES = "select FACILITY_ID from vehicle_facility where VEHICLE_REG_NUMBER=? order by LAST_IN_TIME DESC";
+}
@@ -0,0 +1,7 @@
+package com.parkit.parkingsystem.constants;
+
+public enum TicketEventType {
+    ENTERED,
+    PRICED,
+    EXITED
+}
@@ -0,0 +1,48 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.TicketFareBatch;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.temporal.ChronoUnit;
+
+//forward-only walk over closed tickets, holding its connection until closed
+public class ClosedTicketCursor implements AutoCloseable {
+
+    private final DataBaseConfig dataBaseConfig;
+    private final Connection con;
+    private final PreparedStatement ps;
+    private final ResultSet rs;
+
+    ClosedTicketCursor(DataBaseConfig dataBaseConfig, Connection con, PreparedStatement ps, ResultSet rs) {
+        this.dataBaseConfig = dataBaseConfig;
+        this.con = con;
+        this.ps = ps;
+        this.rs = rs;
+    }
+
+    //refills the batch with the next tickets, returns how many were read (0 once exhausted)
+    public int fill(TicketFareBatch batch) throws SQLException {
+        batch.clear();
+        while(batch.getSize() < batch.getCapacity() && rs.next()){
+            //same minute count as the exit workflow, which works on local date times
+            long durationInMinutes = ChronoUnit.MINUTES.between(rs.getTimestamp(3).toLocalDateTime(),
+                    rs.getTimestamp(4).toLocalDateTime());
+            boolean discount = rs.getInt(6) < rs.getInt(1);
+            batch.add(rs.getInt(1), ParkingType.valueOf(rs.getString(2)), durationInMinutes, discount,
+                    Math.round(rs.getDouble(5) * 100));
+        }
+        return batch.getSize();
+    }
+
+    @Override
+    public void close() {
+        dataBaseConfig.closeResultSet(rs);
+        dataBaseConfig.closePreparedStatement(ps);
+        dataBaseConfig.closeConnection(con);
+    }
+}
@@ -0,0 +1,66 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.model.TicketFareBatch;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class FareRecomputationDAO {
+
+    private static final Logger logger = LogManager.getLogger("FareRecomputationDAO");
+
+    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+    public ClosedTicketCursor openClosedTickets(int fetchSize) throws Exception {
+        Connection con = dataBaseConfig.getConnection();
+        try {
+            PreparedStatement ps = con.prepareStatement(DBConstants.GET_CLOSED_TICKETS_FOR_PRICING,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            return new ClosedTicketCursor(dataBaseConfig, con, ps, ps.executeQuery());
+        }catch (Exception ex){
+            dataBaseConfig.closeConnection(con);
+            throw ex;
+        }
+    }
+
+    //writes the prices that changed in one JDBC batch and one commit, returns how many tickets were updated
+    public int updatePrices(TicketFareBatch batch) throws Exception {
+        Connection con = null;
+        PreparedStatement ps = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            con.setAutoCommit(false);
+            ps = con.prepareStatement(DBConstants.UPDATE_TICKET_PRICE);
+            int nbUpdated = 0;
+            for(int i = 0; i < batch.getSize(); i++){
+                if(batch.isPriceChanged(i)){
+                    ps.setDouble(1, batch.getNewPriceInCents(i) / 100.0);
+                    ps.setInt(2, batch.getId(i));
+                    ps.addBatch();
+                    nbUpdated++;
+                }
+            }
+            if(nbUpdated > 0){
+                ps.executeBatch();
+            }
+            con.commit();
+            return nbUpdated;
+        }catch (SQLException ex){
+            logger.error("Error updating recomputed fares",ex);
+            if(con != null){
+                con.rollback();
+            }
+            throw ex;
+        }finally {
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+}
@@ -1,8 +1,14 @@
 package com.parkit.parkingsystem.dao;
 
+import com.parkit.parkingsystem.cache.OccupancySnapshot;
+import com.parkit.parkingsystem.cache.ParkingSpotIndex;
 import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.TransactionManager;
 import com.parkit.parkingsystem.constants.DBConstants;
 import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.metrics.Timer;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -10,25 +16,127 @@ import org.apache.logging.log4j.Logger;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
 
 public class ParkingSpotDAO {
     private static final Logger logger = LogManager.getLogger("ParkingSpotDAO");
 
+    private static final Timer GET_NEXT_AVAILABLE_SLOT_TIMER = Metrics.timer("parking_spot_dao_get_next_available_slot");
+    private static final Timer ALLOCATE_PARKING_SPOT_TIMER = Metrics.timer("parking_spot_dao_allocate_parking_spot");
+    private static final Timer UPDATE_PARKING_TIMER = Metrics.timer("parking_spot_dao_update_parking");
+    private static final Timer COUNT_AVAILABLE_SPOTS_TIMER = Metrics.timer("parking_spot_dao_count_available_spots");
+    private static final Counter FAILED_ALLOCATIONS = Metrics.counter("parking_spot_dao_failed_allocations");
+
     public DataBaseConfig dataBaseConfig = new DataBaseConfig();
 
+    private volatile ParkingSpotIndex parkingSpotIndex;
+    private volatile OccupancySnapshot occupancySnapshot;
+
+    public boolean loadParkingSpotIndex(){
+        ParkingSpotIndex index = readParkingSpotIndex();
+        if(index == null){
+            return false;
+        }
+        parkingSpotIndex = index;
+        OccupancySnapshot snapshot = occupancySnapshot;
+        if(snapshot != null){
+            try {
+                snapshot.writeSpots(index);
+            } catch (Exception ex){
+                logger.error("Error writing parking spots to the occupancy snapshot",ex);
+            }
+        }
+        return true;
+    }
+
+    //takes the index from the snapshot instead of the data base, false when the snapshot has no valid spots
+    public boolean restoreParkingSpotIndex(){
+        OccupancySnapshot snapshot = occupancySnapshot;
+        if(snapshot == null || !snapshot.isValid(OccupancySnapshot.SPOTS_VALID)){
+            return false;
+        }
+        parkingSpotIndex = snapshot.toParkingSpotIndex();
+        return true;
+    }
+
+    //builds an index from the parking table without installing it, null on error
+    public ParkingSpotIndex readParkingSpotIndex(){
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            //rows are buffered in primitive arrays until the highest number is known, no object per spot
+            int[] numbers = new int[1024];
+            byte[] states = new byte[1024];
+            int nbParkingSpots = 0;
+            int maxParkingNumber = 0;
+            try(PreparedStatement ps = con.prepareStatement(DBConstants.GET_PARKING_SPOTS);
+                ResultSet rs = ps.executeQuery()){
+                while(rs.next()){
+                    if(nbParkingSpots == numbers.length){
+                        numbers = Arrays.copyOf(numbers, nbParkingSpots * 2);
+                        states = Arrays.copyOf(states, nbParkingSpots * 2);
+                    }
+                    numbers[nbParkingSpots] = rs.getInt(1);
+                    states[nbParkingSpots] = (byte) (ParkingType.valueOf(rs.getString(3)).ordinal() << 1 | (rs.getBoolean(2) ? 1 : 0));
+                    maxParkingNumber = Math.max(maxParkingNumber, numbers[nbParkingSpots]);
+                    nbParkingSpots++;
+                }
+            }
+            ParkingType[] parkingTypes = ParkingType.values();
+            ParkingSpotIndex index = new ParkingSpotIndex(maxParkingNumber);
+            for(int i = 0; i < nbParkingSpots; i++){
+                index.setAvailable(numbers[i], parkingTypes[states[i] >> 1], (states[i] & 1) != 0);
+            }
+            return index;
+        }catch (Exception ex){
+            logger.error("Error loading parking spot availability",ex);
+            return null;
+        }finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    public ParkingSpotIndex getParkingSpotIndex(){
+        return parkingSpotIndex;
+    }
+
+    public void setOccupancySnapshot(OccupancySnapshot occupancySnapshot){
+        this.occupancySnapshot = occupancySnapshot;
+    }
+
+    public OccupancySnapshot getOccupancySnapshot(){
+        return occupancySnapshot;
+    }
+
     public int getNextAvailableSlot(ParkingType parkingType){
+        long start = GET_NEXT_AVAILABLE_SLOT_TIMER.start();
+        try{
+            return doGetNextAvailableSlot(parkingType);
+        }finally{
+            GET_NEXT_AVAILABLE_SLOT_TIMER.stop(start);
+        }
+    }
+
+    private int doGetNextAvailableSlot(ParkingType parkingType){
+        ParkingSpotIndex index = parkingSpotIndex;
+        if(index != null){
+            return index.getLowestAvailable(parkingType);
+        }
         Connection con = null;
         int result=-1;
         try {
             con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.GET_NEXT_PARKING_SPOT);
-            ps.setString(1, parkingType.toString());
-            ResultSet rs = ps.executeQuery();
-            if(rs.next()){
-                result = rs.getInt(1);
-            }
-            dataBaseConfig.closeResultSet(rs);
-            dataBaseConfig.closePreparedStatement(ps);
+            try(PreparedStatement ps = con.prepareStatement(DBConstants.GET_NEXT_PARKING_SPOT)){
+                ps.setString(1, parkingType.toString());
+                try(ResultSet rs = ps.executeQuery()){
+                    if(rs.next()){
+                        result = rs.getInt(1);
+                    }
+                }
+            }
         }catch (Exception ex){
             logger.error("Error fetching next available slot",ex);
         }finally {
@@ -37,22 +145,198 @@ public class ParkingSpotDAO {
         return result;
     }
 
-    public boolean updateParking(ParkingSpot parkingSpot){
-        //update the availability fo that parking slot
+    public int countAvailableSpots(ParkingType parkingType){
+        long start = COUNT_AVAILABLE_SPOTS_TIMER.start();
+        try{
+            return doCountAvailableSpots(parkingType);
+        }finally{
+            COUNT_AVAILABLE_SPOTS_TIMER.stop(start);
+        }
+    }
+
+    private int doCountAvailableSpots(ParkingType parkingType){
+        ParkingSpotIndex index = parkingSpotIndex;
+        if(index != null){
+            return index.countAvailable(parkingType);
+        }
         Connection con = null;
+        int result=-1;
         try {
             con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_PARKING_SPOT);
-            ps.setBoolean(1, parkingSpot.isAvailable());
-            ps.setInt(2, parkingSpot.getId());
-            int updateRowCount = ps.executeUpdate();
-            dataBaseConfig.closePreparedStatement(ps);
-            return (updateRowCount == 1);
+            try(PreparedStatement ps = con.prepareStatement(DBConstants.COUNT_AVAILABLE_PARKING_SPOTS)){
+                ps.setString(1, parkingType.toString());
+                try(ResultSet rs = ps.executeQuery()){
+                    if(rs.next()){
+                        result = rs.getInt(1);
+                    }
+                }
+            }
         }catch (Exception ex){
+            logger.error("Error counting available slots",ex);
+        }finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        return result;
+    }
+
+    //counts straight from the parking table, for checking the in-memory counters; null on error
+    public Map<ParkingType, Integer> countAvailableSpotsInDataBase(){
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            Map<ParkingType, Integer> counts = new EnumMap<>(ParkingType.class);
+            for(ParkingType parkingType : ParkingType.values()){
+                counts.put(parkingType, 0);
+            }
+            try(PreparedStatement ps = con.prepareStatement(DBConstants.COUNT_AVAILABLE_PARKING_SPOTS_BY_TYPE);
+                ResultSet rs = ps.executeQuery()){
+                while(rs.next()){
+                    counts.put(ParkingType.valueOf(rs.getString(1)), rs.getInt(2));
+                }
+            }
+            return counts;
+        }catch (Exception ex){
+            logger.error("Error counting available slots",ex);
+            return null;
+        }finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    //claims the lowest free spot of that type for the caller, or returns null when the type is full; throws when the
+    //data base could not be read or written. the claim is released again if the surrounding transaction rolls back.
+    public ParkingSpot allocateParkingSpot(ParkingType parkingType) throws Exception {
+        long start = ALLOCATE_PARKING_SPOT_TIMER.start();
+        ParkingSpot parkingSpot = null;
+        try{
+            parkingSpot = doAllocateParkingSpot(parkingType);
+            return parkingSpot;
+        }finally{
+            if(parkingSpot == null){
+                FAILED_ALLOCATIONS.increment();
+            }
+            ALLOCATE_PARKING_SPOT_TIMER.stop(start);
+        }
+    }
+
+    private ParkingSpot doAllocateParkingSpot(ParkingType parkingType) throws Exception {
+        ParkingSpotIndex index = parkingSpotIndex;
+        if(index == null){
+            int parkingNumber;
+            while((parkingNumber = getNextAvailableSlot(parkingType)) > 0){
+                ParkingSpot parkingSpot = new ParkingSpot(parkingNumber, parkingType, false);
+                if(executeParkingUpdate(parkingSpot)){
+                    recordInSnapshot(parkingSpot);
+                    return parkingSpot;
+                }
+                //taken by another writer since it was read: try the next one
+            }
+            if(parkingNumber < 0){
+                throw new SQLException("Unable to read the next free " + parkingType + " spot");
+            }
+            return null;
+        }
+        int parkingNumber;
+        while((parkingNumber = index.claimLowestAvailable(parkingType)) > 0){
+            ParkingSpot parkingSpot = new ParkingSpot(parkingNumber, parkingType, false);
+            try {
+                if(executeParkingUpdate(parkingSpot)){
+                    int claimedNumber = parkingNumber;
+                    TransactionManager.onRollback(() -> index.release(claimedNumber, parkingType));
+                    recordInSnapshot(parkingSpot);
+                    return parkingSpot;
+                }
+                //taken in the database by another writer: keep it out of the index and try the next one
+            }catch (Exception ex){
+                index.release(parkingNumber, parkingType);
+                logger.error("Error allocating parking spot",ex);
+                throw ex;
+            }
+        }
+        return null;
+    }
+
+    public boolean updateParking(ParkingSpot parkingSpot){
+        long start = UPDATE_PARKING_TIMER.start();
+        try{
+            return doUpdateParking(parkingSpot);
+        }finally{
+            UPDATE_PARKING_TIMER.stop(start);
+        }
+    }
+
+    private boolean doUpdateParking(ParkingSpot parkingSpot){
+        //update the availability fo that parking slot
+        ParkingSpotIndex index = parkingSpotIndex;
+        int number = parkingSpot.getId();
+        boolean indexed = index != null && parkingSpot.getParkingType() != null && index.contains(number);
+        ParkingType parkingType = parkingSpot.getParkingType();
+        boolean available = parkingSpot.isAvailable();
+        if(indexed && !available && !index.claim(number, parkingType)){
+            //already held by another gate in this process
+            return false;
+        }
+        try {
+            boolean updated = executeParkingUpdate(parkingSpot);
+            if(updated && parkingType != null){
+                recordInSnapshot(parkingSpot);
+            }
+            if(indexed){
+                if(available){
+                    index.release(number, parkingType);
+                    TransactionManager.onRollback(() -> index.setAvailable(number, parkingType, false));
+                }else if(updated){
+                    TransactionManager.onRollback(() -> index.release(number, parkingType));
+                }
+            }
+            return updated;
+        }catch (Exception ex){
+            if(indexed && !available){
+                index.release(number, parkingType);
+            }
             logger.error("Error updating parking info",ex);
             return false;
+        }
+    }
+
+    //the previous state is put back if the surrounding transaction rolls back
+    private void recordInSnapshot(ParkingSpot parkingSpot){
+        OccupancySnapshot snapshot = occupancySnapshot;
+        if(snapshot == null){
+            return;
+        }
+        int number = parkingSpot.getId();
+        ParkingType parkingType = parkingSpot.getParkingType();
+        boolean available = parkingSpot.isAvailable();
+        //only written once the change is committed, so the snapshot never shows a claim that rolls back
+        TransactionManager.onCommit(() -> {
+            try {
+                snapshot.setSpot(number, parkingType, available);
+            } catch (Exception ex){
+                logger.error("Error writing parking spot to the occupancy snapshot",ex);
+                snapshot.setValid(OccupancySnapshot.SPOTS_VALID, false);
+            }
+        });
+    }
+
+    private boolean executeParkingUpdate(ParkingSpot parkingSpot) throws Exception {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            //claiming only succeeds if the spot is still free, so two gates cannot take the same spot
+            String query = parkingSpot.isAvailable() ? DBConstants.UPDATE_PARKING_SPOT : DBConstants.CLAIM_PARKING_SPOT;
+            try(PreparedStatement ps = con.prepareStatement(query)){
+                if(parkingSpot.isAvailable()){
+                    ps.setBoolean(1, true);
+                    ps.setInt(2, parkingSpot.getId());
+                }else{
+                    ps.setInt(1, parkingSpot.getId());
+                }
+                int updateRowCount = ps.executeUpdate();
+                return (updateRowCount == 1);
+            }
         }finally {
             dataBaseConfig.closeConnection(con);
         }
     }
-}
\ No newline at end of file
+}
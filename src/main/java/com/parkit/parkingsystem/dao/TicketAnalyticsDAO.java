@@ -0,0 +1,96 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.cache.TicketStatistics;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+//streams tickets into TicketStatistics with a forward-only cursor, one row at a time
+public class TicketAnalyticsDAO {
+
+    private static final Logger logger = LogManager.getLogger("TicketAnalyticsDAO");
+
+    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+    //tickets above the high-water mark, open or closed; returns how many were read
+    public int readNewTickets(TicketStatistics statistics, int fetchSize) throws Exception {
+        int lastId = statistics.getHighWaterMark();
+        statistics.beginNewTickets();
+        int nbRead = read(DBConstants.GET_TICKETS_FOR_ANALYTICS, statistics, fetchSize, false, lastId, lastId);
+        statistics.endNewTickets();
+        return nbRead;
+    }
+
+    //tickets still open in the statistics that have closed since, looked up by ID; returns how many were read
+    public int readClosedPendingTickets(TicketStatistics statistics, int fetchSize) throws Exception {
+        return readByIds(DBConstants.GET_CLOSED_TICKETS_FOR_ANALYTICS, statistics.getPendingIds(), statistics, fetchSize, true);
+    }
+
+    //tickets under the high-water mark that were not committed yet when the tickets above them were read
+    public int readSkippedTickets(TicketStatistics statistics, int fetchSize) throws Exception {
+        int nbRead = readByIds(DBConstants.GET_TICKETS_BY_ID_FOR_ANALYTICS, statistics.getSkippedIds(), statistics, fetchSize, false);
+        statistics.expireSkippedIds();
+        return nbRead;
+    }
+
+    private int readByIds(String query, int[] ids, TicketStatistics statistics, int fetchSize, boolean pending) throws Exception {
+        int batchSize = DBConstants.ANALYTICS_ID_BATCH_SIZE;
+        int nbRead = 0;
+        for(int from = 0; from < ids.length; from += batchSize){
+            //once for ticket, once for ticket_archive
+            int[] parameters = new int[batchSize * 2];
+            for(int i = 0; i < batchSize; i++){
+                int id = ids[Math.min(from + i, ids.length - 1)];
+                parameters[i] = id;
+                parameters[batchSize + i] = id;
+            }
+            nbRead += read(query, statistics, fetchSize, pending, parameters);
+        }
+        return nbRead;
+    }
+
+    private int read(String query, TicketStatistics statistics, int fetchSize, boolean pending, int... parameters) throws Exception {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            try(PreparedStatement ps = con.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)){
+                ps.setFetchSize(fetchSize);
+                for(int i = 0; i < parameters.length; i++){
+                    ps.setInt(i + 1, parameters[i]);
+                }
+                int nbRead = 0;
+                try(ResultSet rs = ps.executeQuery()){
+                    while(rs.next()){
+                        int id = rs.getInt(1);
+                        ParkingType parkingType = ParkingType.valueOf(rs.getString(2));
+                        LocalDateTime inTime = rs.getTimestamp(3).toLocalDateTime();
+                        Timestamp outTime = rs.getTimestamp(4);
+                        long priceInCents = Math.round(rs.getDouble(5) * 100);
+                        boolean discount = rs.getInt(6) == 1;
+                        if(pending){
+                            statistics.closeTicket(id, parkingType, inTime, outTime.toLocalDateTime(), priceInCents, discount);
+                        }else{
+                            statistics.addTicket(id, parkingType, inTime, outTime == null ? null : outTime.toLocalDateTime(),
+                                    priceInCents, discount);
+                        }
+                        nbRead++;
+                    }
+                }
+                return nbRead;
+            }
+        }catch (Exception ex){
+            logger.error("Error reading tickets for analytics",ex);
+            throw ex;
+        }finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+//moves closed tickets from ticket to ticket_archive. vehicle_visit is left as it is, so loyalty counts
+//do not change when tickets are archived.
+public class TicketArchiveDAO {
+
+    private static final Logger logger = LogManager.getLogger("TicketArchiveDAO");
+
+    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+    //moves up to batchSize tickets closed before the cutoff in one transaction, returns how many were moved
+    public int archiveClosedTickets(LocalDateTime closedBefore, int batchSize) throws Exception {
+        Timestamp cutoff = Timestamp.valueOf(closedBefore);
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            con.setAutoCommit(false);
+            int lastId = -1;
+            try(PreparedStatement ps = con.prepareStatement(DBConstants.GET_TICKETS_TO_ARCHIVE)){
+                ps.setTimestamp(1, cutoff);
+                ps.setInt(2, batchSize);
+                try(ResultSet rs = ps.executeQuery()){
+                    while(rs.next()){
+                        lastId = rs.getInt(1);
+                    }
+                }
+            }
+            if(lastId < 0){
+                con.commit();
+                return 0;
+            }
+            int nbArchived;
+            try(PreparedStatement ps = con.prepareStatement(DBConstants.ARCHIVE_TICKETS)){
+                ps.setInt(1, lastId);
+                ps.setTimestamp(2, cutoff);
+                nbArchived = ps.executeUpdate();
+            }
+            try(PreparedStatement ps = con.prepareStatement(DBConstants.DELETE_ARCHIVED_TICKETS)){
+                ps.setInt(1, lastId);
+                ps.setTimestamp(2, cutoff);
+                int nbDeleted = ps.executeUpdate();
+                if(nbDeleted != nbArchived){
+                    throw new SQLException("Archived " + nbArchived + " tickets but deleted " + nbDeleted);
+                }
+            }
+            con.commit();
+            return nbArchived;
+        }catch (Exception ex){
+            logger.error("Error archiving closed tickets",ex);
+            if(con != null){
+                con.rollback();
+            }
+            throw ex;
+        }finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+}
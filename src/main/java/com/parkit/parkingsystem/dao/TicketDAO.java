@@ -1,8 +1,15 @@
 package com.parkit.parkingsystem.dao;
 
+import com.parkit.parkingsystem.cache.ActiveTicketCache;
+import com.parkit.parkingsystem.cache.OccupancySnapshot;
+import com.parkit.parkingsystem.cache.VisitCounterCache;
 import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.TransactionManager;
 import com.parkit.parkingsystem.constants.DBConstants;
 import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.metrics.Timer;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
 import org.apache.logging.log4j.LogManager;
@@ -11,29 +18,161 @@ import org.apache.logging.log4j.Logger;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
 
 public class TicketDAO {
 
     private static final Logger logger = LogManager.getLogger("TicketDAO");
 
+    private static final Timer SAVE_TICKET_TIMER = Metrics.timer("ticket_dao_save_ticket");
+    private static final Timer GET_TICKET_TIMER = Metrics.timer("ticket_dao_get_ticket");
+    private static final Timer UPDATE_TICKET_TIMER = Metrics.timer("ticket_dao_update_ticket");
+    private static final Timer GET_NB_TICKET_TIMER = Metrics.timer("ticket_dao_get_nb_ticket");
+    private static final Counter FAILED_WRITES = Metrics.counter("ticket_dao_failed_writes");
+
     public DataBaseConfig dataBaseConfig = new DataBaseConfig();
 
+    private volatile ActiveTicketCache activeTicketCache;
+    private volatile VisitCounterCache visitCounterCache;
+    private volatile TicketWriteBehindQueue writeBehindQueue;
+    private volatile OccupancySnapshot occupancySnapshot;
+
+    public boolean loadActiveTicketCache(int maxSize){
+        List<Ticket> openTickets = getOpenTickets();
+        if(openTickets == null){
+            return false;
+        }
+        ActiveTicketCache cache = new ActiveTicketCache(maxSize);
+        for(Ticket ticket : openTickets){
+            cache.put(ticket);
+        }
+        activeTicketCache = cache;
+        logger.info("Loaded active ticket cache: {}", cache);
+        OccupancySnapshot snapshot = occupancySnapshot;
+        if(snapshot != null){
+            try {
+                snapshot.writeOpenTickets(openTickets);
+            } catch (Exception ex){
+                logger.error("Error writing open tickets to the occupancy snapshot",ex);
+            }
+        }
+        return true;
+    }
+
+    //fills the cache from the snapshot instead of the data base, false when the snapshot has no valid tickets
+    public boolean restoreActiveTicketCache(int maxSize){
+        OccupancySnapshot snapshot = occupancySnapshot;
+        if(snapshot == null || !snapshot.isValid(OccupancySnapshot.TICKETS_VALID)){
+            return false;
+        }
+        ActiveTicketCache cache = new ActiveTicketCache(maxSize);
+        for(Ticket ticket : snapshot.getOpenTickets()){
+            //a ticket saved by the write-behind queue has no ID yet, only that queue can update it
+            if(ticket.getId() != 0 || writeBehindQueue != null){
+                cache.put(ticket);
+            }
+        }
+        activeTicketCache = cache;
+        logger.info("Restored active ticket cache from snapshot: {}", cache);
+        return true;
+    }
+
+    //tickets without an out time, null on error
+    public List<Ticket> getOpenTickets(){
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            List<Ticket> tickets = new ArrayList<>();
+            try(PreparedStatement ps = con.prepareStatement(DBConstants.GET_OPEN_TICKETS);
+                ResultSet rs = ps.executeQuery()){
+                while(rs.next()){
+                    Ticket ticket = readTicket(rs);
+                    ticket.setVehicleRegNumber(rs.getString(7));
+                    tickets.add(ticket);
+                }
+            }
+            return tickets;
+        }catch (Exception ex){
+            logger.error("Error loading active tickets",ex);
+            return null;
+        }finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    public ActiveTicketCache getActiveTicketCache(){
+        return activeTicketCache;
+    }
+
+    public void initVisitCounterCache(int maxSize){
+        visitCounterCache = new VisitCounterCache(maxSize);
+    }
+
+    public VisitCounterCache getVisitCounterCache(){
+        return visitCounterCache;
+    }
+
+    public void setOccupancySnapshot(OccupancySnapshot occupancySnapshot){
+        this.occupancySnapshot = occupancySnapshot;
+    }
+
+    public OccupancySnapshot getOccupancySnapshot(){
+        return occupancySnapshot;
+    }
+
+    public void setWriteBehindQueue(TicketWriteBehindQueue writeBehindQueue){
+        this.writeBehindQueue = writeBehindQueue;
+    }
+
+    public TicketWriteBehindQueue getWriteBehindQueue(){
+        return writeBehindQueue;
+    }
+
     public boolean saveTicket(Ticket ticket){
+        long start = SAVE_TICKET_TIMER.start();
+        try{
+            return doSaveTicket(ticket);
+        }finally{
+            SAVE_TICKET_TIMER.stop(start);
+        }
+    }
+
+    private boolean doSaveTicket(Ticket ticket){
+        TicketWriteBehindQueue queue = writeBehindQueue;
+        if(queue != null){
+            if(!queue.enqueueSave(ticket)){
+                return false;
+            }
+            countVisit(ticket.getVehicleRegNumber());
+            cacheTicket(ticket);
+            return true;
+        }
         Connection con = null;
         try {
             con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET);
-            //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
-            //ps.setInt(1,ticket.getId());
-            ps.setInt(1,ticket.getParkingSpot().getId());
-            ps.setString(2, ticket.getVehicleRegNumber());
-            ps.setDouble(3, ticket.getPrice());
-            ps.setObject(4, ticket.getInTime());
-            ps.setObject(5, ticket.getOutTime() == null ? null : ticket.getOutTime());
-            ps.execute();
+            try(PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET, Statement.RETURN_GENERATED_KEYS)){
+                //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
+                //ps.setInt(1,ticket.getId());
+                ps.setInt(1,ticket.getParkingSpot().getId());
+                ps.setString(2, ticket.getVehicleRegNumber());
+                ps.setDouble(3, ticket.getPrice());
+                ps.setObject(4, ticket.getInTime());
+                ps.setObject(5, ticket.getOutTime() == null ? null : ticket.getOutTime());
+                ps.execute();
+                try(ResultSet keys = ps.getGeneratedKeys()){
+                    if(keys.next()){
+                        ticket.setId(keys.getInt(1));
+                    }
+                }
+            }
+            incrementNbTicket(con, ticket.getVehicleRegNumber());
+            cacheTicket(ticket);
             return true;
         }catch (Exception ex){
             logger.error("Error fetching next available slot",ex);
+            FAILED_WRITES.increment();
             return false;
         }finally {
             dataBaseConfig.closeConnection(con);
@@ -41,46 +180,114 @@ public class TicketDAO {
     }
 
     public Ticket getTicket(String vehicleRegNumber) {
+        try{
+            return findTicket(vehicleRegNumber);
+        }catch (Exception ex){
+            logger.error("Error fetching ticket",ex);
+            return null;
+        }
+    }
+
+    //same as getTicket, but a data base failure is thrown instead of being reported as an unknown vehicle
+    public Ticket findTicket(String vehicleRegNumber) throws Exception {
+        long start = GET_TICKET_TIMER.start();
+        try{
+            return doFindTicket(vehicleRegNumber);
+        }finally{
+            GET_TICKET_TIMER.stop(start);
+        }
+    }
+
+    private Ticket doFindTicket(String vehicleRegNumber) throws Exception {
+        ActiveTicketCache cache = activeTicketCache;
+        if(cache != null){
+            Ticket ticket = cache.get(vehicleRegNumber);
+            if(ticket != null){
+                return ticket;
+            }
+        }
+        TicketWriteBehindQueue queue = writeBehindQueue;
+        if(queue != null){
+            Ticket ticket = queue.getPendingTicket(vehicleRegNumber);
+            if(ticket != null){
+                return ticket;
+            }
+        }
         Connection con = null;
-        Ticket ticket = null;
+        Ticket ticket;
         try {
             con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.GET_TICKET);
-            //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
-            ps.setString(1,vehicleRegNumber);
-            ResultSet rs = ps.executeQuery();
-            if(rs.next()){
-                ticket = new Ticket();
-                ParkingSpot parkingSpot = new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(6)),false);
-                ticket.setParkingSpot(parkingSpot);
-                ticket.setId(rs.getInt(2));
-                ticket.setVehicleRegNumber(vehicleRegNumber);
-                ticket.setPrice(rs.getDouble(3));
-                ticket.setInTime(rs.getTimestamp(4).toLocalDateTime());
-                ticket.setOutTime(rs.getTimestamp(5) == null ? null : rs.getTimestamp(5).toLocalDateTime());
-            }
-            dataBaseConfig.closeResultSet(rs);
-            dataBaseConfig.closePreparedStatement(ps);
-        }catch (Exception ex){
-            logger.error("Error fetching next available slot",ex);
+            ticket = readLatestTicket(con, DBConstants.GET_TICKET, vehicleRegNumber);
+            if(ticket == null){
+                //every ticket of that vehicle has been archived
+                ticket = readLatestTicket(con, DBConstants.GET_ARCHIVED_TICKET, vehicleRegNumber);
+            }
         }finally {
             dataBaseConfig.closeConnection(con);
         }
+        if(cache != null && ticket != null && ticket.getOutTime() == null){
+            cache.put(ticket);
+        }
         return ticket;
     }
 
+    //every ticket of the vehicle, from the ticket table and the archive, latest first
+    public List<Ticket> getTicketHistory(String vehicleRegNumber) {
+        Connection con = null;
+        List<Ticket> tickets = new ArrayList<>();
+        try {
+            con = dataBaseConfig.getConnection();
+            try(PreparedStatement ps = con.prepareStatement(DBConstants.GET_TICKET_HISTORY)){
+                ps.setString(1, vehicleRegNumber);
+                ps.setString(2, vehicleRegNumber);
+                try(ResultSet rs = ps.executeQuery()){
+                    while(rs.next()){
+                        Ticket ticket = readTicket(rs);
+                        ticket.setVehicleRegNumber(vehicleRegNumber);
+                        tickets.add(ticket);
+                    }
+                }
+            }
+        }catch (Exception ex){
+            logger.error("Error fetching ticket history",ex);
+        }finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        return tickets;
+    }
+
     public boolean updateTicket(Ticket ticket) {
+        long start = UPDATE_TICKET_TIMER.start();
+        try{
+            return doUpdateTicket(ticket);
+        }finally{
+            UPDATE_TICKET_TIMER.stop(start);
+        }
+    }
+
+    private boolean doUpdateTicket(Ticket ticket) {
+        TicketWriteBehindQueue queue = writeBehindQueue;
+        if(queue != null){
+            if(!queue.enqueueUpdate(ticket)){
+                return false;
+            }
+            cacheTicket(ticket);
+            return true;
+        }
         Connection con = null;
         try {
             con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_TICKET);
-            ps.setDouble(1, ticket.getPrice());
-            ps.setObject(2, ticket.getOutTime());
-            ps.setInt(3,ticket.getId());
-            ps.execute();
+            try(PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_TICKET)){
+                ps.setDouble(1, ticket.getPrice());
+                ps.setObject(2, ticket.getOutTime());
+                ps.setInt(3,ticket.getId());
+                ps.execute();
+            }
+            cacheTicket(ticket);
             return true;
         }catch (Exception ex){
             logger.error("Error saving ticket info",ex);
+            FAILED_WRITES.increment();
             return false;
         }finally {
             dataBaseConfig.closeConnection(con);
@@ -88,16 +295,45 @@ public class TicketDAO {
     }
 
     public int getNbTicket(String vehicleRegNumber){
+        long start = GET_NB_TICKET_TIMER.start();
+        try{
+            return doGetNbTicket(vehicleRegNumber);
+        }finally{
+            GET_NB_TICKET_TIMER.stop(start);
+        }
+    }
+
+    private int doGetNbTicket(String vehicleRegNumber){
+        VisitCounterCache cache = visitCounterCache;
+        int loadStamp = 0;
+        if(cache != null){
+            int nbTicket = cache.get(vehicleRegNumber);
+            if(nbTicket >= 0){
+                return nbTicket;
+            }
+            //a ticket saved by another gate while the count is read must not be lost to a stale cache entry
+            loadStamp = cache.getLoadStamp(vehicleRegNumber);
+        }
         Connection con = null;
         int nbTicket = 0;
         try{
             con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.GET_NB_TICKET);
-            ps.setString(1, vehicleRegNumber);
-            ResultSet rs = ps.executeQuery();
-            rs.first();
-            nbTicket = rs.getInt(1);
-            dataBaseConfig.closePreparedStatement(ps);
+            try(PreparedStatement ps = con.prepareStatement(DBConstants.GET_NB_TICKET)){
+                ps.setString(1, vehicleRegNumber);
+                try(ResultSet rs = ps.executeQuery()){
+                    if(rs.next()){
+                        nbTicket = rs.getInt(1);
+                    }
+                }
+            }
+            TicketWriteBehindQueue queue = writeBehindQueue;
+            if(queue != null){
+                //saves still queued are not counted in the table yet
+                nbTicket += queue.getPendingSaveCount(vehicleRegNumber);
+            }
+            if(cache != null){
+                cache.putIfAbsent(vehicleRegNumber, nbTicket, loadStamp);
+            }
         }catch (Exception ex){
             logger.error("Error fetching next available slot",ex);
         }finally {
@@ -105,4 +341,85 @@ public class TicketDAO {
         }
         return nbTicket;
     }
+
+    //the per vehicle counter is kept next to the ticket insert, in the same transaction
+    private void incrementNbTicket(Connection con, String vehicleRegNumber) throws Exception {
+        try(PreparedStatement ps = con.prepareStatement(DBConstants.INCREMENT_NB_TICKET)){
+            ps.setString(1, vehicleRegNumber);
+            ps.execute();
+        }
+        countVisit(vehicleRegNumber);
+    }
+
+    //the cached count only moves once the ticket commits, so other gates never see a visit that may roll back
+    private void countVisit(String vehicleRegNumber){
+        VisitCounterCache cache = visitCounterCache;
+        if(cache != null){
+            cache.beginIncrement(vehicleRegNumber);
+            TransactionManager.onCommit(() -> cache.endIncrement(vehicleRegNumber, true));
+            //only invalidates: nothing was counted yet
+            TransactionManager.onRollback(() -> cache.endIncrement(vehicleRegNumber, false));
+        }
+    }
+
+    //write-through: open tickets are cached, closed ones evicted, and a rolled back change just drops the entry
+    private void cacheTicket(Ticket ticket){
+        ActiveTicketCache cache = activeTicketCache;
+        if(cache != null){
+            Ticket previous = cache.put(ticket);
+            String vehicleRegNumber = ticket.getVehicleRegNumber();
+            //a rolled back exit must leave the still open ticket cached
+            TransactionManager.onRollback(() -> {
+                if(previous == null){
+                    cache.remove(vehicleRegNumber);
+                }else{
+                    cache.put(previous);
+                }
+            });
+        }
+        OccupancySnapshot snapshot = occupancySnapshot;
+        if(snapshot != null){
+            int parkingNumber = ticket.getParkingSpot().getId();
+            boolean open = ticket.getOutTime() == null;
+            //only written once the change is committed, so a rolled back entry or exit never reaches the snapshot
+            TransactionManager.onCommit(() -> {
+                try {
+                    if(open){
+                        snapshot.putOpenTicket(ticket);
+                    }else{
+                        snapshot.removeOpenTicket(parkingNumber);
+                    }
+                } catch (Exception ex){
+                    logger.error("Error writing ticket to the occupancy snapshot",ex);
+                    snapshot.setValid(OccupancySnapshot.TICKETS_VALID, false);
+                }
+            });
+        }
+    }
+
+    private Ticket readLatestTicket(Connection con, String query, String vehicleRegNumber) throws Exception {
+        try(PreparedStatement ps = con.prepareStatement(query)){
+            //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
+            ps.setString(1,vehicleRegNumber);
+            try(ResultSet rs = ps.executeQuery()){
+                if(rs.next()){
+                    Ticket ticket = readTicket(rs);
+                    ticket.setVehicleRegNumber(vehicleRegNumber);
+                    return ticket;
+                }
+                return null;
+            }
+        }
+    }
+
+    private Ticket readTicket(ResultSet rs) throws Exception {
+        Ticket ticket = new Ticket();
+        ParkingSpot parkingSpot = new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(6)),false);
+        ticket.setParkingSpot(parkingSpot);
+        ticket.setId(rs.getInt(2));
+        ticket.setPrice(rs.getDouble(3));
+        ticket.setInTime(rs.getTimestamp(4).toLocalDateTime());
+        ticket.setOutTime(rs.getTimestamp(5) == null ? null : rs.getTimestamp(5).toLocalDateTime());
+        return ticket;
+    }
 }
@@ -0,0 +1,89 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.cache.TicketEventViews;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.constants.TicketEventType;
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.model.TicketEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Types;
+
+//the ticket_event table is only appended to; events join the transaction of the ticket change they describe
+public class TicketEventDAO {
+
+    private static final Logger logger = LogManager.getLogger("TicketEventDAO");
+
+    private static final Counter FAILED_APPENDS = Metrics.counter("ticket_event_dao_failed_appends");
+
+    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+    public boolean append(TicketEvent event){
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            try(PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET_EVENT, Statement.RETURN_GENERATED_KEYS)){
+                ps.setString(1, event.getType().toString());
+                ps.setInt(2, event.getTicketId());
+                ps.setString(3, event.getVehicleRegNumber());
+                ps.setInt(4, event.getParkingNumber());
+                ps.setString(5, event.getParkingType().toString());
+                ps.setObject(6, event.getTime());
+                if(event.getType() == TicketEventType.ENTERED){
+                    ps.setNull(7, Types.DOUBLE);
+                }else{
+                    ps.setDouble(7, event.getPrice());
+                }
+                ps.execute();
+                try(ResultSet keys = ps.getGeneratedKeys()){
+                    if(keys.next()){
+                        event.setId(keys.getInt(1));
+                    }
+                }
+            }
+            return true;
+        }catch (Exception ex){
+            logger.error("Error appending ticket event {}", event, ex);
+            FAILED_APPENDS.increment();
+            return false;
+        }finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    //applies the events after the last one the views have seen, in log order; returns how many were read
+    public int replay(TicketEventViews views, int fetchSize) throws Exception {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            try(PreparedStatement ps = con.prepareStatement(DBConstants.GET_TICKET_EVENTS, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY)){
+                ps.setFetchSize(fetchSize);
+                ps.setInt(1, views.getLastEventId());
+                int nbRead = 0;
+                try(ResultSet rs = ps.executeQuery()){
+                    while(rs.next()){
+                        views.apply(new TicketEvent(rs.getInt(1), TicketEventType.valueOf(rs.getString(2)), rs.getInt(3),
+                                rs.getString(4), rs.getInt(5), ParkingType.valueOf(rs.getString(6)),
+                                rs.getTimestamp(7).toLocalDateTime(), rs.getDouble(8)));
+                        nbRead++;
+                    }
+                }
+                return nbRead;
+            }
+        }catch (Exception ex){
+            logger.error("Error replaying ticket events",ex);
+            throw ex;
+        }finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+}
@@ -0,0 +1,401 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.TransactionManager;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+//ticket writes acknowledged once they are in a local journal, then flushed to the ticket table in JDBC batches.
+//the journal is replayed on start, so writes accepted before a crash still reach the database. a write made in a
+//transaction is only journaled once it commits.
+public class TicketWriteBehindQueue {
+
+    private static final Logger logger = LogManager.getLogger("TicketWriteBehindQueue");
+
+    private static final byte SAVE = 'S';
+    private static final byte UPDATE = 'U';
+    private static final byte CHECKPOINT = 'C';
+
+    private final DataBaseConfig dataBaseConfig;
+    private final Path journalPath;
+    private final int batchSize;
+    private final long offerTimeoutMillis;
+    private final BlockingQueue<TicketOperation> queue;
+    //free places in the queue, taken before the journal lock so a full queue only holds up the writes that wait for it
+    private final Semaphore capacity;
+    //latest not yet flushed state of each vehicle's ticket, so reads do not miss queued writes
+    private final Map<String, TicketOperation> pendingTickets = new ConcurrentHashMap<>();
+    private final Map<String, Integer> pendingSaveCounts = new ConcurrentHashMap<>();
+    private final Object journalLock = new Object();
+    private FileChannel journal;
+    private long lastSequence;
+    private long lastFlushedSequence;
+    private volatile boolean running;
+    private Thread writerThread;
+
+    public TicketWriteBehindQueue(DataBaseConfig dataBaseConfig, Path journalPath, int capacity, int batchSize,
+                                  long offerTimeoutMillis) {
+        this.dataBaseConfig = dataBaseConfig;
+        this.journalPath = journalPath;
+        this.batchSize = batchSize;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.capacity = new Semaphore(capacity);
+    }
+
+    public synchronized void start() throws Exception {
+        if(running){
+            return;
+        }
+        List<TicketOperation> unflushed = readJournal();
+        if(!unflushed.isEmpty()){
+            logger.info("Replaying {} ticket writes from journal {}", unflushed.size(), journalPath);
+            writeToDataBase(unflushed);
+        }
+        journal = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        running = true;
+        writerThread = new Thread(this::writeLoop, "ticket-write-behind");
+        writerThread.start();
+    }
+
+    public boolean enqueueSave(Ticket ticket) {
+        return enqueue(SAVE, ticket);
+    }
+
+    public boolean enqueueUpdate(Ticket ticket) {
+        return enqueue(UPDATE, ticket);
+    }
+
+    public Ticket getPendingTicket(String vehicleRegNumber) {
+        TicketOperation operation = pendingTickets.get(vehicleRegNumber);
+        return operation == null ? null : operation.toTicket();
+    }
+
+    public int getPendingSaveCount(String vehicleRegNumber) {
+        return pendingSaveCounts.getOrDefault(vehicleRegNumber, 0);
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    //stops accepting writes, flushes everything queued and waits for the writer to finish
+    public void close() {
+        synchronized (this) {
+            if(!running){
+                return;
+            }
+            running = false;
+        }
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (journalLock) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                logger.error("Error while closing ticket journal", e);
+            }
+        }
+        logger.info("Ticket write-behind queue flushed and closed");
+    }
+
+    private boolean enqueue(byte kind, Ticket ticket) {
+        if(!running){
+            return false;
+        }
+        TicketOperation operation = new TicketOperation(kind, ticket);
+        try {
+            //backpressure: a full queue blocks the gate for a while before refusing the write.
+            //a refused write never reaches the journal, so it has no sequence number to account for.
+            if(!capacity.tryAcquire(offerTimeoutMillis, TimeUnit.MILLISECONDS)){
+                logger.error("Ticket write-behind queue full, write refused");
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        if(TransactionManager.isActive()){
+            //journaled only once the gate transaction commits, so a rolled back entry or exit never reaches the
+            //database; the place reserved above is what lets the commit not fail on a full queue
+            TransactionManager.onRollback(capacity::release);
+            TransactionManager.onCommit(() -> {
+                if(!append(operation)){
+                    logger.error("Ticket write of vehicle {} lost after its transaction committed", operation.vehicleRegNumber);
+                }
+            });
+            return true;
+        }
+        return append(operation);
+    }
+
+    private boolean append(TicketOperation operation) {
+        try {
+            //journal first, the write counts as accepted once it is on disk
+            synchronized (journalLock) {
+                operation.sequence = lastSequence + 1;
+                appendToJournal(operation);
+                lastSequence = operation.sequence;
+                //made visible before the writer can see the operation, so a flush always finds it to remove
+                addPending(operation);
+                //queued under the lock, so the queue stays in sequence order; the place was reserved by enqueue
+                queue.add(operation);
+            }
+        } catch (IOException e) {
+            capacity.release();
+            logger.error("Error appending to ticket journal", e);
+            return false;
+        }
+        return true;
+    }
+
+    private void addPending(TicketOperation operation) {
+        pendingTickets.put(operation.vehicleRegNumber, operation);
+        if(operation.kind == SAVE){
+            pendingSaveCounts.merge(operation.vehicleRegNumber, 1, Integer::sum);
+        }
+    }
+
+    private void removePending(TicketOperation operation) {
+        pendingTickets.remove(operation.vehicleRegNumber, operation);
+        if(operation.kind == SAVE){
+            pendingSaveCounts.computeIfPresent(operation.vehicleRegNumber, (key, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    private void writeLoop() {
+        List<TicketOperation> batch = new ArrayList<>(batchSize);
+        while(running || !queue.isEmpty() || !batch.isEmpty()){
+            try {
+                //a batch that failed to flush is retried as it is before anything else is taken from the queue
+                if(batch.isEmpty()){
+                    TicketOperation first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if(first == null){
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    capacity.release(batch.size());
+                }
+                flush(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                if(!running){
+                    //the batch and whatever is still queued stay in the journal and are replayed on the next start
+                    logger.error("Error flushing {} ticket writes on close, left in the journal", batch.size(), e);
+                    return;
+                }
+                logger.error("Error flushing {} ticket writes, retrying", batch.size(), e);
+                sleepBeforeRetry();
+            }
+        }
+    }
+
+    private void flush(List<TicketOperation> batch) throws Exception {
+        writeToDataBase(batch);
+        long flushedSequence = batch.get(batch.size() - 1).sequence;
+        for(TicketOperation operation : batch){
+            removePending(operation);
+        }
+        synchronized (journalLock) {
+            lastFlushedSequence = flushedSequence;
+            if(lastFlushedSequence == lastSequence){
+                //everything accepted is in the database, start the journal over
+                journal.truncate(0);
+            }else{
+                appendToJournal(new TicketOperation(CHECKPOINT, flushedSequence));
+            }
+        }
+    }
+
+    private void writeToDataBase(List<TicketOperation> operations) throws Exception {
+        Connection con = null;
+        PreparedStatement saves = null;
+        PreparedStatement counters = null;
+        PreparedStatement updates = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            con.setAutoCommit(false);
+            saves = con.prepareStatement(DBConstants.SAVE_TICKET_IF_ABSENT);
+            updates = con.prepareStatement(DBConstants.UPDATE_TICKET_BY_VEHICLE);
+            List<TicketOperation> saved = new ArrayList<>();
+            for(TicketOperation operation : operations){
+                if(operation.kind == SAVE){
+                    saves.setInt(1, operation.parkingNumber);
+                    saves.setString(2, operation.vehicleRegNumber);
+                    saves.setDouble(3, operation.price);
+                    saves.setObject(4, operation.inTime);
+                    saves.setObject(5, operation.outTime);
+                    saves.setString(6, operation.vehicleRegNumber);
+                    saves.setObject(7, operation.inTime);
+                    saves.addBatch();
+                    saved.add(operation);
+                }else{
+                    updates.setDouble(1, operation.price);
+                    updates.setObject(2, operation.outTime);
+                    updates.setString(3, operation.vehicleRegNumber);
+                    updates.setObject(4, operation.inTime);
+                    updates.addBatch();
+                }
+            }
+            if(!saved.isEmpty()){
+                int[] inserted = saves.executeBatch();
+                counters = con.prepareStatement(DBConstants.INCREMENT_NB_TICKET);
+                boolean counted = false;
+                for(int i = 0; i < inserted.length; i++){
+                    //a replayed save that was already written inserts nothing and must not be counted twice
+                    if(inserted[i] != 0){
+                        counters.setString(1, saved.get(i).vehicleRegNumber);
+                        counters.addBatch();
+                        counted = true;
+                    }
+                }
+                if(counted){
+                    counters.executeBatch();
+                }
+            }
+            if(saved.size() < operations.size()){
+                updates.executeBatch();
+            }
+            con.commit();
+        }catch (Exception ex){
+            if(con != null){
+                con.rollback();
+            }
+            throw ex;
+        }finally {
+            dataBaseConfig.closePreparedStatement(saves);
+            dataBaseConfig.closePreparedStatement(counters);
+            dataBaseConfig.closePreparedStatement(updates);
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private void appendToJournal(TicketOperation operation) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(operation.kind);
+        out.writeLong(operation.sequence);
+        if(operation.kind != CHECKPOINT){
+            out.writeInt(operation.parkingNumber);
+            out.writeUTF(operation.vehicleRegNumber);
+            out.writeDouble(operation.price);
+            out.writeLong(operation.inTime.toEpochSecond(ZoneOffset.UTC));
+            out.writeLong(operation.outTime == null ? Long.MIN_VALUE : operation.outTime.toEpochSecond(ZoneOffset.UTC));
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        while(buffer.hasRemaining()){
+            journal.write(buffer);
+        }
+        journal.force(false);
+    }
+
+    private List<TicketOperation> readJournal() throws IOException {
+        List<TicketOperation> operations = new ArrayList<>();
+        if(!Files.exists(journalPath)){
+            return operations;
+        }
+        long checkpoint = 0;
+        try(DataInputStream in = new DataInputStream(Channels.newInputStream(FileChannel.open(journalPath)))){
+            while(true){
+                byte kind = in.readByte();
+                long sequence = in.readLong();
+                if(kind == CHECKPOINT){
+                    checkpoint = Math.max(checkpoint, sequence);
+                    continue;
+                }
+                TicketOperation operation = new TicketOperation(kind, sequence);
+                operation.parkingNumber = in.readInt();
+                operation.vehicleRegNumber = in.readUTF();
+                operation.price = in.readDouble();
+                operation.inTime = LocalDateTime.ofEpochSecond(in.readLong(), 0, ZoneOffset.UTC);
+                long outTime = in.readLong();
+                operation.outTime = outTime == Long.MIN_VALUE ? null : LocalDateTime.ofEpochSecond(outTime, 0, ZoneOffset.UTC);
+                operations.add(operation);
+            }
+        } catch (EOFException e) {
+            //end of journal, or a record torn by a crash that was never acknowledged
+        }
+        long flushedUpTo = checkpoint;
+        operations.removeIf(operation -> operation.sequence <= flushedUpTo);
+        return operations;
+    }
+
+    private void sleepBeforeRetry() {
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class TicketOperation {
+        private final byte kind;
+        private long sequence;
+        private int parkingNumber;
+        private String vehicleRegNumber;
+        private double price;
+        private LocalDateTime inTime;
+        private LocalDateTime outTime;
+        private ParkingSpot parkingSpot;
+
+        TicketOperation(byte kind, long sequence) {
+            this.kind = kind;
+            this.sequence = sequence;
+        }
+
+        TicketOperation(byte kind, Ticket ticket) {
+            this.kind = kind;
+            this.parkingSpot = ticket.getParkingSpot();
+            this.parkingNumber = parkingSpot.getId();
+            this.vehicleRegNumber = ticket.getVehicleRegNumber();
+            this.price = ticket.getPrice();
+            this.inTime = ticket.getInTime();
+            this.outTime = ticket.getOutTime();
+        }
+
+        Ticket toTicket() {
+            Ticket ticket = new Ticket();
+            ticket.setParkingSpot(new ParkingSpot(parkingNumber, parkingSpot.getParkingType(), false));
+            ticket.setVehicleRegNumber(vehicleRegNumber);
+            ticket.setPrice(price);
+            ticket.setInTime(inTime);
+            ticket.setOutTime(outTime);
+            return ticket;
+        }
+    }
+}
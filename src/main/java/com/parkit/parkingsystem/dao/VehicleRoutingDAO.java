@@ -0,0 +1,64 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+//which facilities a vehicle has entered, in the main data base, so lookups by registration skip the other ones
+public class VehicleRoutingDAO {
+
+    private static final Logger logger = LogManager.getLogger("VehicleRoutingDAO");
+
+    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+    public boolean recordEntry(String vehicleRegNumber, String facilityId, LocalDateTime inTime){
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            try(PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_VEHICLE_FACILITY)){
+                ps.setString(1, vehicleRegNumber);
+                ps.setString(2, facilityId);
+                ps.setObject(3, inTime);
+                ps.setObject(4, inTime);
+                ps.execute();
+            }
+            return true;
+        }catch (Exception ex){
+            logger.error("Error recording facility {} of vehicle {}", facilityId, vehicleRegNumber, ex);
+            return false;
+        }finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    //facility IDs, the one of the latest entry first; null on error
+    public List<String> getFacilities(String vehicleRegNumber){
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            List<String> facilities = new ArrayList<>();
+            try(PreparedStatement ps = con.prepareStatement(DBConstants.GET_VEHICLE_FACILITIES)){
+                ps.setString(1, vehicleRegNumber);
+                try(ResultSet rs = ps.executeQuery()){
+                    while(rs.next()){
+                        facilities.add(rs.getString(1));
+                    }
+                }
+            }
+            return facilities;
+        }catch (Exception ex){
+            logger.error("Error fetching facilities of vehicle {}", vehicleRegNumber, ex);
+            return null;
+        }finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+}
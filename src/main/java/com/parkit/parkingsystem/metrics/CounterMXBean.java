@@ -0,0 +1,6 @@
+package com.parkit.parkingsystem.metrics;
+
+public interface CounterMXBean {
+
+    long getCount();
+}
@@ -0,0 +1,100 @@
+package com.parkit.parkingsystem.metrics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+//process wide registry of timers and counters, off unless -Dparkit.metrics.enabled=true.
+//call sites keep their timer in a static field; when disabled start() and stop() do not even read the clock.
+//enabled metrics are registered as MBeans under com.parkit.parkingsystem and rendered for Prometheus scrapes.
+public class Metrics {
+
+    private static final Logger logger = LogManager.getLogger("Metrics");
+
+    static final String DOMAIN = "com.parkit.parkingsystem";
+
+    private static final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private static final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    //volatile as setEnabled can flip it at runtime; an uncontended volatile read per timed call stays negligible
+    private static volatile boolean enabled = Boolean.getBoolean("parkit.metrics.enabled");
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static synchronized void setEnabled(boolean enabled) {
+        Metrics.enabled = enabled;
+        if(enabled){
+            timers.values().forEach(timer -> register("Timer", timer.getName(), timer));
+            counters.values().forEach(counter -> register("Counter", counter.getName(), counter));
+        }
+    }
+
+    public static Timer timer(String name) {
+        return timers.computeIfAbsent(name, key -> {
+            Timer timer = new Timer(key);
+            if(enabled){
+                register("Timer", key, timer);
+            }
+            return timer;
+        });
+    }
+
+    public static Counter counter(String name) {
+        return counters.computeIfAbsent(name, key -> {
+            Counter counter = new Counter(key);
+            if(enabled){
+                register("Counter", key, counter);
+            }
+            return counter;
+        });
+    }
+
+    //Prometheus text exposition format, timers as summaries in seconds
+    public static String toPrometheus() {
+        StringBuilder text = new StringBuilder();
+        for(Timer timer : new TreeMap<>(timers).values()){
+            String name = "parkit_" + timer.getName() + "_seconds";
+            text.append("# TYPE ").append(name).append(" summary\n");
+            text.append(name).append("{quantile=\"0.5\"} ").append(toSeconds(timer.getHistogram().getPercentile(50))).append('\n');
+            text.append(name).append("{quantile=\"0.99\"} ").append(toSeconds(timer.getHistogram().getPercentile(99))).append('\n');
+            text.append(name).append("_sum ").append(toSeconds(timer.getHistogram().getTotal())).append('\n');
+            text.append(name).append("_count ").append(timer.getCount()).append('\n');
+        }
+        for(Counter counter : new TreeMap<>(counters).values()){
+            String name = "parkit_" + counter.getName() + "_total";
+            text.append("# TYPE ").append(name).append(" counter\n");
+            text.append(name).append(' ').append(counter.getCount()).append('\n');
+        }
+        return text.toString();
+    }
+
+    public static void reset() {
+        timers.values().forEach(timer -> timer.getHistogram().reset());
+        counters.values().forEach(Counter::reset);
+    }
+
+    private static double toSeconds(long nanos) {
+        return nanos / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+
+    private static void register(String type, String name, Object mbean) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(DOMAIN + ":type=" + type + ",name=" + name);
+            if(!server.isRegistered(objectName)){
+                server.registerMBean(mbean, objectName);
+            }
+        } catch (Exception e) {
+            logger.error("Unable to register {} with JMX", name, e);
+        }
+    }
+}
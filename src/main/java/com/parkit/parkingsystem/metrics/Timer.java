@@ -0,0 +1,60 @@
+package com.parkit.parkingsystem.metrics;
+
+import com.parkit.parkingsystem.util.LatencyHistogram;
+
+import java.util.concurrent.TimeUnit;
+
+//  long start = timer.start();
+//  try{ ... }finally{ timer.stop(start); }
+public class Timer implements TimerMXBean {
+
+    private final String name;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    Timer(String name) {
+        this.name = name;
+    }
+
+    public long start() {
+        return Metrics.isEnabled() ? System.nanoTime() : 0L;
+    }
+
+    public void stop(long start) {
+        if(Metrics.isEnabled() && start != 0L){
+            histogram.record(System.nanoTime() - start);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    LatencyHistogram getHistogram() {
+        return histogram;
+    }
+
+    @Override
+    public long getCount() {
+        return histogram.getCount();
+    }
+
+    @Override
+    public long getP50Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(histogram.getPercentile(50));
+    }
+
+    @Override
+    public long getP99Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(histogram.getPercentile(99));
+    }
+
+    @Override
+    public long getMaxMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(histogram.getMax());
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return histogram.getMean() / 1000;
+    }
+}
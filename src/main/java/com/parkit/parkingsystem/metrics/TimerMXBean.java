@@ -0,0 +1,14 @@
+package com.parkit.parkingsystem.metrics;
+
+public interface TimerMXBean {
+
+    long getCount();
+
+    long getP50Micros();
+
+    long getP99Micros();
+
+    long getMaxMicros();
+
+    double getMeanMicros();
+}
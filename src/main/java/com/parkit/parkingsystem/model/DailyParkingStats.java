@@ -0,0 +1,76 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.time.LocalDate;
+
+//one day of one parking type; tickets, revenue and stays are counted on the day the vehicle left
+public class DailyParkingStats {
+    private final LocalDate date;
+    private final ParkingType parkingType;
+    private final int ticketCount;
+    private final long revenueInCents;
+    private final long stayMinutes;
+    private final int discountedTicketCount;
+    private final long discountInCents;
+    private final int peakOccupancy;
+
+    public DailyParkingStats(LocalDate date, ParkingType parkingType, int ticketCount, long revenueInCents, long stayMinutes,
+                             int discountedTicketCount, long discountInCents, int peakOccupancy) {
+        this.date = date;
+        this.parkingType = parkingType;
+        this.ticketCount = ticketCount;
+        this.revenueInCents = revenueInCents;
+        this.stayMinutes = stayMinutes;
+        this.discountedTicketCount = discountedTicketCount;
+        this.discountInCents = discountInCents;
+        this.peakOccupancy = peakOccupancy;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+
+    public int getTicketCount() {
+        return ticketCount;
+    }
+
+    public long getRevenueInCents() {
+        return revenueInCents;
+    }
+
+    public long getStayMinutes() {
+        return stayMinutes;
+    }
+
+    public double getAverageStayMinutes() {
+        return ticketCount == 0 ? 0 : (double) stayMinutes / ticketCount;
+    }
+
+    public int getDiscountedTicketCount() {
+        return discountedTicketCount;
+    }
+
+    public double getDiscountShare() {
+        return ticketCount == 0 ? 0 : (double) discountedTicketCount / ticketCount;
+    }
+
+    public long getDiscountInCents() {
+        return discountInCents;
+    }
+
+    public int getPeakOccupancy() {
+        return peakOccupancy;
+    }
+
+    @Override
+    public String toString() {
+        return date + " " + parkingType + ": " + ticketCount + " tickets, revenue=" + revenueInCents + "c, average stay="
+                + Math.round(getAverageStayMinutes()) + "min, peak occupancy=" + peakOccupancy + ", discounted="
+                + discountedTicketCount + " (" + discountInCents + "c)";
+    }
+}
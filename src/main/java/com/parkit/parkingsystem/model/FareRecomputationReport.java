@@ -0,0 +1,35 @@
+package com.parkit.parkingsystem.model;
+
+public class FareRecomputationReport {
+    private final long ticketCount;
+    private final long updatedCount;
+    private final long elapsedMillis;
+
+    public FareRecomputationReport(long ticketCount, long updatedCount, long elapsedMillis) {
+        this.ticketCount = ticketCount;
+        this.updatedCount = updatedCount;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public long getTicketCount() {
+        return ticketCount;
+    }
+
+    public long getUpdatedCount() {
+        return updatedCount;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public double getTicketsPerSecond() {
+        return elapsedMillis == 0 ? ticketCount : ticketCount * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return ticketCount + " tickets re-priced, " + updatedCount + " updated in " + elapsedMillis + "ms ("
+                + Math.round(getTicketsPerSecond()) + " tickets/s)";
+    }
+}
@@ -0,0 +1,54 @@
+package com.parkit.parkingsystem.model;
+
+public class IngestionReport {
+    private final long eventCount;
+    private final long failedCount;
+    private final long elapsedMillis;
+    private final long p50Micros;
+    private final long p99Micros;
+    private final long maxMicros;
+
+    public IngestionReport(long eventCount, long failedCount, long elapsedMillis, long p50Micros, long p99Micros, long maxMicros) {
+        this.eventCount = eventCount;
+        this.failedCount = failedCount;
+        this.elapsedMillis = elapsedMillis;
+        this.p50Micros = p50Micros;
+        this.p99Micros = p99Micros;
+        this.maxMicros = maxMicros;
+    }
+
+    public long getEventCount() {
+        return eventCount;
+    }
+
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public long getP50Micros() {
+        return p50Micros;
+    }
+
+    public long getP99Micros() {
+        return p99Micros;
+    }
+
+    public long getMaxMicros() {
+        return maxMicros;
+    }
+
+    public double getEventsPerSecond() {
+        return elapsedMillis == 0 ? eventCount : eventCount * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return eventCount + " events, " + failedCount + " failed in " + elapsedMillis + "ms ("
+                + Math.round(getEventsPerSecond()) + " events/s), latency p50=" + p50Micros + "us p99=" + p99Micros
+                + "us max=" + maxMicros + "us";
+    }
+}
@@ -0,0 +1,89 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.constants.TicketEventType;
+
+import java.time.LocalDateTime;
+
+//one entry of the ticket event log: the in time for ENTERED, the out time for PRICED and EXITED
+public class TicketEvent {
+    private int id;
+    private final TicketEventType type;
+    private final int ticketId;
+    private final String vehicleRegNumber;
+    private final int parkingNumber;
+    private final ParkingType parkingType;
+    private final LocalDateTime time;
+    private final double price;
+
+    public TicketEvent(int id, TicketEventType type, int ticketId, String vehicleRegNumber, int parkingNumber,
+                       ParkingType parkingType, LocalDateTime time, double price) {
+        this.id = id;
+        this.type = type;
+        this.ticketId = ticketId;
+        this.vehicleRegNumber = vehicleRegNumber;
+        this.parkingNumber = parkingNumber;
+        this.parkingType = parkingType;
+        this.time = time;
+        this.price = price;
+    }
+
+    public static TicketEvent entered(Ticket ticket) {
+        return of(TicketEventType.ENTERED, ticket, ticket.getInTime());
+    }
+
+    public static TicketEvent priced(Ticket ticket) {
+        return of(TicketEventType.PRICED, ticket, ticket.getOutTime());
+    }
+
+    public static TicketEvent exited(Ticket ticket) {
+        return of(TicketEventType.EXITED, ticket, ticket.getOutTime());
+    }
+
+    private static TicketEvent of(TicketEventType type, Ticket ticket, LocalDateTime time) {
+        ParkingSpot parkingSpot = ticket.getParkingSpot();
+        return new TicketEvent(0, type, ticket.getId(), ticket.getVehicleRegNumber(), parkingSpot.getId(),
+                parkingSpot.getParkingType(), time, ticket.getPrice());
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public TicketEventType getType() {
+        return type;
+    }
+
+    public int getTicketId() {
+        return ticketId;
+    }
+
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    public int getParkingNumber() {
+        return parkingNumber;
+    }
+
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+
+    public LocalDateTime getTime() {
+        return time;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + vehicleRegNumber + " at " + time + " (event " + id + ", ticket " + ticketId + ")";
+    }
+}
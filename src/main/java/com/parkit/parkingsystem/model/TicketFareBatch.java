@@ -0,0 +1,77 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+//a chunk of closed tickets laid out as primitive columns, reused from one chunk to the next
+public class TicketFareBatch {
+    private final int[] ids;
+    private final ParkingType[] parkingTypes;
+    private final long[] durationsInMinutes;
+    private final boolean[] discounts;
+    private final long[] pricesInCents;
+    private final long[] newPricesInCents;
+    private int size;
+
+    public TicketFareBatch(int capacity) {
+        ids = new int[capacity];
+        parkingTypes = new ParkingType[capacity];
+        durationsInMinutes = new long[capacity];
+        discounts = new boolean[capacity];
+        pricesInCents = new long[capacity];
+        newPricesInCents = new long[capacity];
+    }
+
+    public int getCapacity() {
+        return ids.length;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void add(int id, ParkingType parkingType, long durationInMinutes, boolean discount, long priceInCents) {
+        ids[size] = id;
+        parkingTypes[size] = parkingType;
+        durationsInMinutes[size] = durationInMinutes;
+        discounts[size] = discount;
+        pricesInCents[size] = priceInCents;
+        newPricesInCents[size] = priceInCents;
+        size++;
+    }
+
+    public int getId(int index) {
+        return ids[index];
+    }
+
+    public ParkingType getParkingType(int index) {
+        return parkingTypes[index];
+    }
+
+    public long getDurationInMinutes(int index) {
+        return durationsInMinutes[index];
+    }
+
+    public boolean isDiscount(int index) {
+        return discounts[index];
+    }
+
+    public long getPriceInCents(int index) {
+        return pricesInCents[index];
+    }
+
+    public long getNewPriceInCents(int index) {
+        return newPricesInCents[index];
+    }
+
+    public void setNewPriceInCents(int index, long newPriceInCents) {
+        newPricesInCents[index] = newPriceInCents;
+    }
+
+    public boolean isPriceChanged(int index) {
+        return newPricesInCents[index] != pricesInCents[index];
+    }
+}
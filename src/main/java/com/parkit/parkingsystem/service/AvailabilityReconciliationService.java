@@ -0,0 +1,85 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.cache.ParkingSpotIndex;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+//checks the in-memory free spot counters against the parking table from time to time.
+//a gate between its index claim and its commit shows up as a one-off difference, so the index is
+//only rebuilt when the same difference is seen on two checks in a row.
+public class AvailabilityReconciliationService {
+
+    private static final Logger logger = LogManager.getLogger("AvailabilityReconciliationService");
+
+    private final ParkingSpotDAO parkingSpotDAO;
+    private Map<ParkingType, Integer> lastDifferences = new EnumMap<>(ParkingType.class);
+    private ScheduledExecutorService scheduler;
+
+    public AvailabilityReconciliationService(ParkingSpotDAO parkingSpotDAO) {
+        this.parkingSpotDAO = parkingSpotDAO;
+    }
+
+    public synchronized void start(long periodSeconds) {
+        if(scheduler != null){
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "availability-reconciliation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::reconcile, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    public synchronized void stop() {
+        if(scheduler != null){
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    //returns true when the counters matched the data base
+    public boolean reconcile() {
+        try {
+            ParkingSpotIndex index = parkingSpotDAO.getParkingSpotIndex();
+            if(index == null){
+                return true;
+            }
+            Map<ParkingType, Integer> dataBaseCounts = parkingSpotDAO.countAvailableSpotsInDataBase();
+            if(dataBaseCounts == null){
+                return false;
+            }
+            Map<ParkingType, Integer> differences = new EnumMap<>(ParkingType.class);
+            for(ParkingType parkingType : ParkingType.values()){
+                int difference = index.countAvailable(parkingType) - dataBaseCounts.get(parkingType);
+                if(difference != 0){
+                    differences.put(parkingType, difference);
+                }
+            }
+            if(differences.isEmpty()){
+                lastDifferences = differences;
+                return true;
+            }
+            if(differences.equals(lastDifferences)){
+                logger.error("Free spot counters out of sync with the data base {}, reloading parking spot index", differences);
+                parkingSpotDAO.loadParkingSpotIndex();
+                lastDifferences = new EnumMap<>(ParkingType.class);
+            }else{
+                logger.info("Free spot counters differ from the data base {}, checking again next run", differences);
+                lastDifferences = differences;
+            }
+            return false;
+        } catch (Exception e) {
+            logger.error("Error reconciling free spot counters", e);
+            return false;
+        }
+    }
+}
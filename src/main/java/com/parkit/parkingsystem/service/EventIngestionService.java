@@ -0,0 +1,134 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.IngestionReport;
+import com.parkit.parkingsystem.util.LatencyHistogram;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+//runs newline delimited gate events through ParkingService on a pool of workers, without any console I/O.
+//events are striped by registration number, so the entry and exit of one vehicle are handled in order.
+//  ENTER,CAR,AB-123-CD
+//  EXIT,AB-123-CD
+public class EventIngestionService {
+
+    private static final Logger logger = LogManager.getLogger("EventIngestionService");
+
+    private static final Event STOP = new Event(null, 0);
+
+    private final ParkingService parkingService;
+    private final int nbWorkers;
+    private final int queueCapacity;
+
+    public EventIngestionService(ParkingService parkingService, int nbWorkers, int queueCapacity) {
+        this.parkingService = parkingService;
+        this.nbWorkers = nbWorkers;
+        this.queueCapacity = queueCapacity;
+    }
+
+    public IngestionReport ingest(BufferedReader reader) throws Exception {
+        LatencyHistogram latencies = new LatencyHistogram();
+        AtomicLong failedCount = new AtomicLong();
+        long eventCount = 0;
+        long start = System.nanoTime();
+
+        List<BlockingQueue<Event>> stripes = new ArrayList<>(nbWorkers);
+        List<Thread> workers = new ArrayList<>(nbWorkers);
+        for(int i = 0; i < nbWorkers; i++){
+            BlockingQueue<Event> stripe = new ArrayBlockingQueue<>(queueCapacity);
+            Thread worker = new Thread(() -> work(stripe, latencies, failedCount), "ingestion-worker-" + i);
+            worker.start();
+            stripes.add(stripe);
+            workers.add(worker);
+        }
+        try{
+            String line;
+            while((line = reader.readLine()) != null){
+                line = line.trim();
+                if(line.isEmpty() || line.startsWith("#")){
+                    continue;
+                }
+                eventCount++;
+                String[] fields = line.split(",");
+                String vehicleRegNumber = getVehicleRegNumber(fields);
+                if(vehicleRegNumber == null){
+                    logger.error("Invalid event: {}", line);
+                    failedCount.incrementAndGet();
+                    continue;
+                }
+                //a full stripe blocks the reader, which in turn slows the producer down
+                stripes.get(Math.floorMod(vehicleRegNumber.hashCode(), nbWorkers)).put(new Event(fields, System.nanoTime()));
+            }
+        }finally{
+            for(BlockingQueue<Event> stripe : stripes){
+                stripe.put(STOP);
+            }
+            for(Thread worker : workers){
+                worker.join();
+            }
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        return new IngestionReport(eventCount, failedCount.get(), elapsedMillis,
+                TimeUnit.NANOSECONDS.toMicros(latencies.getPercentile(50)),
+                TimeUnit.NANOSECONDS.toMicros(latencies.getPercentile(99)),
+                TimeUnit.NANOSECONDS.toMicros(latencies.getMax()));
+    }
+
+    private void work(BlockingQueue<Event> stripe, LatencyHistogram latencies, AtomicLong failedCount) {
+        try{
+            Event event;
+            while((event = stripe.take()) != STOP){
+                if(!process(event.fields)){
+                    failedCount.incrementAndGet();
+                }
+                //latency is measured from the time the event was read, so time spent queued is included
+                latencies.record(System.nanoTime() - event.readNanos);
+            }
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean process(String[] fields) {
+        try{
+            if(fields[0].trim().equalsIgnoreCase("ENTER")){
+                ParkingType parkingType = ParkingType.valueOf(fields[1].trim().toUpperCase());
+                return parkingService.parkVehicle(parkingType, fields[2].trim()) != null;
+            }else{
+                return parkingService.exitVehicle(fields[1].trim()) != null;
+            }
+        }catch(Exception e){
+            logger.error("Unable to process event {}", String.join(",", fields), e);
+            return false;
+        }
+    }
+
+    private static String getVehicleRegNumber(String[] fields) {
+        String action = fields[0].trim();
+        if(action.equalsIgnoreCase("ENTER") && fields.length == 3){
+            return fields[2].trim().isEmpty() ? null : fields[2].trim();
+        }
+        if(action.equalsIgnoreCase("EXIT") && fields.length == 2){
+            return fields[1].trim().isEmpty() ? null : fields[1].trim();
+        }
+        return null;
+    }
+
+    private static class Event {
+        private final String[] fields;
+        private final long readNanos;
+
+        Event(String[] fields, long readNanos) {
+            this.fields = fields;
+            this.readNanos = readNanos;
+        }
+    }
+}
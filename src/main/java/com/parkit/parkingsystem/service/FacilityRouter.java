@@ -0,0 +1,110 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.VehicleRoutingDAO;
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+//gate operations of a multi-facility deployment. each facility has its own data base, DAOs and caches, so spot
+//allocation and pricing in one facility never wait on another; lookups by registration go through the routing index.
+public class FacilityRouter {
+
+    private final VehicleRoutingDAO vehicleRoutingDAO;
+    private final Map<String, Facility> facilities = new LinkedHashMap<>();
+
+    public FacilityRouter(VehicleRoutingDAO vehicleRoutingDAO) {
+        this.vehicleRoutingDAO = vehicleRoutingDAO;
+    }
+
+    public void addFacility(String facilityId, ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO) {
+        facilities.put(facilityId, new Facility(new ParkingService(null, parkingSpotDAO, ticketDAO), ticketDAO));
+    }
+
+    public Set<String> getFacilityIds() {
+        return facilities.keySet();
+    }
+
+    public ParkingService getParkingService(String facilityId) {
+        return getFacility(facilityId).parkingService;
+    }
+
+    //the index is written first: an entry it does not know of could not be found again by registration,
+    //while an index row left by a refused entry only costs one extra lookup
+    public Ticket parkVehicle(String facilityId, ParkingType parkingType, String vehicleRegNumber) throws Exception {
+        Facility facility = getFacility(facilityId);
+        if(!vehicleRoutingDAO.recordEntry(vehicleRegNumber, facilityId, LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS))){
+            throw new SQLException("Unable to record the entry of " + vehicleRegNumber + " in the routing index");
+        }
+        return facility.parkingService.parkVehicle(parkingType, vehicleRegNumber);
+    }
+
+    //the facility where the vehicle is parked now, null when it has no open ticket in any of them
+    public String findParkedFacility(String vehicleRegNumber) throws Exception {
+        List<String> facilityIds = vehicleRoutingDAO.getFacilities(vehicleRegNumber);
+        if(facilityIds == null){
+            throw new SQLException("Unable to read the facilities of " + vehicleRegNumber + " from the routing index");
+        }
+        for(String facilityId : facilityIds){
+            Facility facility = facilities.get(facilityId);
+            if(facility != null){
+                Ticket ticket = facility.ticketDAO.findTicket(vehicleRegNumber);
+                if(ticket != null && ticket.getOutTime() == null){
+                    return facilityId;
+                }
+            }
+        }
+        return null;
+    }
+
+    public Ticket exitVehicle(String vehicleRegNumber) throws Exception {
+        String facilityId = findParkedFacility(vehicleRegNumber);
+        return facilityId == null ? null : getParkingService(facilityId).exitVehicle(vehicleRegNumber);
+    }
+
+    public Ticket quoteFare(String vehicleRegNumber) throws Exception {
+        String facilityId = findParkedFacility(vehicleRegNumber);
+        return facilityId == null ? null : getParkingService(facilityId).quoteFare(vehicleRegNumber);
+    }
+
+    //tickets of the vehicle in each facility it entered, latest entry first
+    public Map<String, List<Ticket>> getTicketHistory(String vehicleRegNumber) {
+        Map<String, List<Ticket>> history = new LinkedHashMap<>();
+        List<String> facilityIds = vehicleRoutingDAO.getFacilities(vehicleRegNumber);
+        if(facilityIds != null){
+            for(String facilityId : facilityIds){
+                Facility facility = facilities.get(facilityId);
+                if(facility != null){
+                    history.put(facilityId, facility.ticketDAO.getTicketHistory(vehicleRegNumber));
+                }
+            }
+        }
+        return history;
+    }
+
+    private Facility getFacility(String facilityId) {
+        Facility facility = facilities.get(facilityId);
+        if(facility == null){
+            throw new IllegalArgumentException("Unknown facility: " + facilityId);
+        }
+        return facility;
+    }
+
+    private static class Facility {
+        private final ParkingService parkingService;
+        private final TicketDAO ticketDAO;
+
+        Facility(ParkingService parkingService, TicketDAO ticketDAO) {
+            this.parkingService = parkingService;
+            this.ticketDAO = ticketDAO;
+        }
+    }
+}
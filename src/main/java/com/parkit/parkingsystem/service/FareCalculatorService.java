@@ -1,12 +1,10 @@
 package com.parkit.parkingsystem.service;
 
 import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
 import com.parkit.parkingsystem.model.Ticket;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.time.Duration;
-import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 
 public class FareCalculatorService {
 
@@ -16,43 +14,39 @@ public class FareCalculatorService {
             throw new IllegalArgumentException("Out time provided is incorrect:"+ticket.getOutTime().toString());
         }
 
-        LocalDateTime inTime = ticket.getInTime();
-        LocalDateTime outTime = ticket.getOutTime();
-        Duration durationBetweenInOut = Duration.between(inTime, outTime);
-
-        if(durationBetweenInOut.toMinutes()>=30) {
-            double duration = (((double) durationBetweenInOut.toMinutes()) / 60);
-            switch (ticket.getParkingSpot().getParkingType()) {
-                case CAR: {
-                    if(discount){
-                        ticket.setPrice(roundingPrice((duration * Fare.CAR_RATE_PER_HOUR) * 0.95));
-                    }else{
-                        ticket.setPrice(roundingPrice(duration * Fare.CAR_RATE_PER_HOUR));
-                    }
-                    break;
-                }
-                case BIKE: {
-                    if(discount){
-                        ticket.setPrice(roundingPrice((duration * Fare.BIKE_RATE_PER_HOUR) * 0.95));
-                    }else{
-                        ticket.setPrice(roundingPrice(duration * Fare.BIKE_RATE_PER_HOUR));
-                    }
-                    break;
-                }
-                default:
-                    throw new IllegalArgumentException("Unknown Parking Type");
-            }
-        }else{
-            ticket.setPrice(0);
-        }
+        long durationInMinutes = ChronoUnit.MINUTES.between(ticket.getInTime(), ticket.getOutTime());
+        long priceInCents = calculateFareInCents(ticket.getParkingSpot().getParkingType(), durationInMinutes, discount);
+        ticket.setPrice(priceInCents / 100.0);
     }
 
     public void calculateFare(Ticket ticket){
         calculateFare(ticket, false);
     }
 
-    private double roundingPrice(double originalPrice){
-        BigDecimal priceRounded = new BigDecimal(String.valueOf(originalPrice)).setScale(2, RoundingMode.HALF_UP);
-        return priceRounded.doubleValue();
+    //integer-only fare, meant for bulk callers: no allocation, and rounded half up on the exact amount
+    public long calculateFareInCents(ParkingType parkingType, long durationInMinutes, boolean discount){
+        if(durationInMinutes < 0){
+            throw new IllegalArgumentException("Parking duration provided is incorrect:" + durationInMinutes);
+        }
+        if(durationInMinutes < Fare.FREE_PARKING_MINUTES){
+            return 0;
+        }
+        long ratePerHourInCents;
+        switch (parkingType) {
+            case CAR: {
+                ratePerHourInCents = Fare.CAR_RATE_PER_HOUR_IN_CENTS;
+                break;
+            }
+            case BIKE: {
+                ratePerHourInCents = Fare.BIKE_RATE_PER_HOUR_IN_CENTS;
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown Parking Type");
+        }
+        long percentCharged = discount ? 100 - Fare.RECURRING_USER_DISCOUNT_PERCENT : 100;
+        //exact price in cents is minutes * rate * percent / (60 * 100)
+        long numerator = durationInMinutes * ratePerHourInCents * percentCharged;
+        return (numerator + 3000) / 6000;
     }
-}
\ No newline at end of file
+}
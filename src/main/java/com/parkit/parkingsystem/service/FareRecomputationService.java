@@ -0,0 +1,98 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.dao.ClosedTicketCursor;
+import com.parkit.parkingsystem.dao.FareRecomputationDAO;
+import com.parkit.parkingsystem.model.FareRecomputationReport;
+import com.parkit.parkingsystem.model.TicketFareBatch;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+
+//re-prices every closed ticket with the current Fare rates, e.g. after a tariff change or for an audit
+public class FareRecomputationService {
+
+    private static final Logger logger = LogManager.getLogger("FareRecomputationService");
+
+    private static final int SLICE_SIZE = 2048;
+
+    private final FareRecomputationDAO fareRecomputationDAO;
+    private final FareCalculatorService fareCalculatorService;
+    private final ForkJoinPool forkJoinPool;
+
+    public FareRecomputationService(FareRecomputationDAO fareRecomputationDAO, FareCalculatorService fareCalculatorService,
+                                    ForkJoinPool forkJoinPool) {
+        this.fareRecomputationDAO = fareRecomputationDAO;
+        this.fareCalculatorService = fareCalculatorService;
+        this.forkJoinPool = forkJoinPool;
+    }
+
+    //reads chunk n+1 while chunk n is being written, so two batches alternate and nothing is allocated per chunk
+    public FareRecomputationReport recomputeFares(int chunkSize) throws Exception {
+        long start = System.currentTimeMillis();
+        long nbTickets = 0;
+        long nbUpdated = 0;
+        TicketFareBatch[] batches = {new TicketFareBatch(chunkSize), new TicketFareBatch(chunkSize)};
+        ExecutorService writer = Executors.newSingleThreadExecutor(r -> new Thread(r, "fare-recomputation-writer"));
+        Future<Integer> pendingWrite = null;
+        try(ClosedTicketCursor cursor = fareRecomputationDAO.openClosedTickets(chunkSize)){
+            int current = 0;
+            while(cursor.fill(batches[current]) > 0){
+                TicketFareBatch batch = batches[current];
+                forkJoinPool.invoke(new PricingTask(batch, 0, batch.getSize()));
+                if(pendingWrite != null){
+                    nbUpdated += pendingWrite.get();
+                }
+                pendingWrite = writer.submit(() -> fareRecomputationDAO.updatePrices(batch));
+                nbTickets += batch.getSize();
+                logProgress(nbTickets, nbUpdated, start);
+                current = 1 - current;
+            }
+            if(pendingWrite != null){
+                nbUpdated += pendingWrite.get();
+            }
+        }finally {
+            writer.shutdown();
+        }
+        FareRecomputationReport report = new FareRecomputationReport(nbTickets, nbUpdated, System.currentTimeMillis() - start);
+        logger.info("Fare recomputation done: {}", report);
+        return report;
+    }
+
+    private void logProgress(long nbTickets, long nbUpdated, long start) {
+        if(logger.isInfoEnabled()){
+            long elapsed = Math.max(System.currentTimeMillis() - start, 1);
+            logger.info("Fare recomputation in progress: {} tickets priced, {} updated ({} tickets/s)", nbTickets, nbUpdated,
+                    nbTickets * 1000 / elapsed);
+        }
+    }
+
+    private class PricingTask extends RecursiveAction {
+        private final TicketFareBatch batch;
+        private final int from;
+        private final int to;
+
+        PricingTask(TicketFareBatch batch, int from, int to) {
+            this.batch = batch;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from <= SLICE_SIZE){
+                for(int i = from; i < to; i++){
+                    batch.setNewPriceInCents(i, fareCalculatorService.calculateFareInCents(batch.getParkingType(i),
+                            batch.getDurationInMinutes(i), batch.isDiscount(i)));
+                }
+            }else{
+                int middle = (from + to) >>> 1;
+                invokeAll(new PricingTask(batch, from, middle), new PricingTask(batch, middle, to));
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+//concurrent facade over ParkingService for many gates at once: each gate event is one task on the executor.
+//a future completes with the ticket, with null when the event was refused, or exceptionally when it failed.
+public class GateService implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("GateService");
+
+    private final ParkingService parkingService;
+    private final ExecutorService executor;
+
+    public GateService(ParkingService parkingService, ExecutorService executor) {
+        this.parkingService = parkingService;
+        this.executor = executor;
+    }
+
+    public CompletableFuture<Ticket> enter(ParkingType parkingType, String vehicleRegNumber) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return parkingService.parkVehicle(parkingType, vehicleRegNumber);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    public CompletableFuture<Ticket> exit(String vehicleRegNumber) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return parkingService.exitVehicle(vehicleRegNumber);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if(!executor.awaitTermination(30, TimeUnit.SECONDS)){
+                logger.error("Gate tasks still running after 30s, interrupting them");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //a virtual thread per task when the running JDK has them (21+), otherwise a fixed pool.
+    //looked up by reflection so the build keeps targeting Java 8.
+    public static ExecutorService newGateExecutor(int fallbackThreads) {
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            logger.info("Gate tasks run on virtual threads");
+            return executor;
+        } catch (ReflectiveOperationException e) {
+            logger.info("Virtual threads not available, gate tasks run on {} threads", fallbackThreads);
+            return Executors.newFixedThreadPool(fallbackThreads);
+        }
+    }
+}
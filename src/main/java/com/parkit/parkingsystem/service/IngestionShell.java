@@ -0,0 +1,72 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketWriteBehindQueue;
+import com.parkit.parkingsystem.model.IngestionReport;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+//headless counterpart of InteractiveShell: gate events come from a file, standard input ("-")
+//or connections to a local port ("tcp:<port>"), and results only go to the log
+public class IngestionShell {
+
+    private static final Logger logger = LogManager.getLogger("IngestionShell");
+
+    public static void loadIngestion(String source){
+        logger.info("Headless ingestion initialized, reading events from {}", source);
+        TicketDAO ticketDAO = InteractiveShell.createTicketDAO();
+        ParkingSpotDAO parkingSpotDAO = InteractiveShell.createParkingSpotDAO();
+        InteractiveShell.startSnapshotVerification(parkingSpotDAO, ticketDAO);
+        ParkingService parkingService = new ParkingService(null, parkingSpotDAO, ticketDAO);
+        InteractiveShell.attachTicketEventLog(parkingService);
+        EventIngestionService ingestionService = new EventIngestionService(parkingService,
+                Integer.getInteger("parkit.ingest.workers", 8),
+                Integer.getInteger("parkit.ingest.queueCapacity", 1000));
+        try{
+            if(source.equals("-")){
+                ingest(ingestionService, new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)));
+            }else if(source.startsWith("tcp:")){
+                listen(ingestionService, Integer.parseInt(source.substring("tcp:".length())));
+            }else{
+                try(BufferedReader reader = Files.newBufferedReader(Paths.get(source), StandardCharsets.UTF_8)){
+                    ingest(ingestionService, reader);
+                }
+            }
+        }catch(Exception e){
+            logger.error("Unable to ingest events from {}", source, e);
+        }finally{
+            TicketWriteBehindQueue writeBehindQueue = ticketDAO.getWriteBehindQueue();
+            if(writeBehindQueue != null){
+                writeBehindQueue.close();
+            }
+        }
+    }
+
+    //one connection is ingested at a time, each one until the gate controller closes it
+    private static void listen(EventIngestionService ingestionService, int port) throws Exception {
+        try(ServerSocket serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())){
+            logger.info("Listening for events on {}", serverSocket.getLocalSocketAddress());
+            while(!Thread.currentThread().isInterrupted()){
+                try(Socket socket = serverSocket.accept();
+                    BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))){
+                    ingest(ingestionService, reader);
+                }
+            }
+        }
+    }
+
+    private static void ingest(EventIngestionService ingestionService, BufferedReader reader) throws Exception {
+        IngestionReport report = ingestionService.ingest(reader);
+        logger.info("Ingested {}", report);
+    }
+}
@@ -1,24 +1,39 @@
 package com.parkit.parkingsystem.service;
 
+import com.parkit.parkingsystem.cache.OccupancySnapshot;
+import com.parkit.parkingsystem.cache.TicketEventViews;
+import com.parkit.parkingsystem.config.DataBaseConfig;
 import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketArchiveDAO;
 import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketEventDAO;
+import com.parkit.parkingsystem.dao.TicketWriteBehindQueue;
+import com.parkit.parkingsystem.dao.VehicleRoutingDAO;
 import com.parkit.parkingsystem.util.InputReaderUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+
 public class InteractiveShell {
 
     private static final Logger logger = LogManager.getLogger("InteractiveShell");
 
+    private static OccupancySnapshot occupancySnapshot;
+
     public static void loadInterface(){
         logger.info("App initialized!!!");
         System.out.println("Welcome to Parking System!");
 
         boolean continueApp = true;
         InputReaderUtil inputReaderUtil = new InputReaderUtil();
-        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
-        TicketDAO ticketDAO = new TicketDAO();
+        ParkingSpotDAO parkingSpotDAO = createParkingSpotDAO();
+        TicketDAO ticketDAO = createTicketDAO();
+        startSnapshotVerification(parkingSpotDAO, ticketDAO);
+        TicketWriteBehindQueue writeBehindQueue = ticketDAO.getWriteBehindQueue();
         ParkingService parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO);
+        attachTicketEventLog(parkingService);
 
         while(continueApp){
             loadMenu();
@@ -40,6 +55,144 @@ public class InteractiveShell {
                 default: System.out.println("Unsupported option. Please enter a number corresponding to the provided menu");
             }
         }
+        if(writeBehindQueue != null){
+            writeBehindQueue.close();
+        }
+    }
+
+    public static ParkingSpotDAO createParkingSpotDAO(){
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.setOccupancySnapshot(getOccupancySnapshot());
+        if(parkingSpotDAO.restoreParkingSpotIndex() || parkingSpotDAO.loadParkingSpotIndex()){
+            new AvailabilityReconciliationService(parkingSpotDAO)
+                    .start(Long.getLong("parkit.availability.reconcilePeriodSeconds", 60L));
+        }
+        return parkingSpotDAO;
+    }
+
+    public static TicketDAO createTicketDAO(){
+        TicketDAO ticketDAO = new TicketDAO();
+        startWriteBehindQueue(ticketDAO);
+        ticketDAO.setOccupancySnapshot(getOccupancySnapshot());
+        int activeTicketCacheSize = Integer.getInteger("parkit.cache.activeTickets.maxSize", 10000);
+        if(!ticketDAO.restoreActiveTicketCache(activeTicketCacheSize)){
+            ticketDAO.loadActiveTicketCache(activeTicketCacheSize);
+        }
+        ticketDAO.initVisitCounterCache(Integer.getInteger("parkit.cache.visitCounters.maxSize", 10000));
+        startTicketArchiving();
+        return ticketDAO;
+    }
+
+    //off unless parkit.facilities lists facility IDs. each facility has its own data base, prod_<id> unless
+    //parkit.facility.<id>.database names another one; the routing index stays in the main data base.
+    //the snapshot, write-behind queue, archiving and event log are not set up for facilities.
+    public static FacilityRouter createFacilityRouter(){
+        String facilityIds = System.getProperty("parkit.facilities");
+        if(facilityIds == null || facilityIds.trim().isEmpty()){
+            return null;
+        }
+        FacilityRouter facilityRouter = new FacilityRouter(new VehicleRoutingDAO());
+        for(String facilityId : facilityIds.split(",")){
+            facilityId = facilityId.trim();
+            DataBaseConfig dataBaseConfig = new DataBaseConfig(System.getProperty("parkit.facility." + facilityId + ".database",
+                    "prod_" + facilityId));
+            ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+            parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+            if(parkingSpotDAO.loadParkingSpotIndex()){
+                new AvailabilityReconciliationService(parkingSpotDAO)
+                        .start(Long.getLong("parkit.availability.reconcilePeriodSeconds", 60L));
+            }
+            TicketDAO ticketDAO = new TicketDAO();
+            ticketDAO.dataBaseConfig = dataBaseConfig;
+            ticketDAO.loadActiveTicketCache(Integer.getInteger("parkit.cache.activeTickets.maxSize", 10000));
+            ticketDAO.initVisitCounterCache(Integer.getInteger("parkit.cache.visitCounters.maxSize", 10000));
+            facilityRouter.addFacility(facilityId, parkingSpotDAO, ticketDAO);
+            logger.info("Facility {} served from data base {}", facilityId, dataBaseConfig.getDataBaseName());
+        }
+        return facilityRouter;
+    }
+
+    //the snapshot is off unless a file is given; it is mapped once, by the first DAO created at startup
+    public static synchronized OccupancySnapshot getOccupancySnapshot(){
+        String file = System.getProperty("parkit.snapshot.file");
+        if(occupancySnapshot == null && file != null){
+            try {
+                OccupancySnapshot snapshot = OccupancySnapshot.open(Paths.get(file));
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        snapshot.close();
+                    } catch (IOException e) {
+                        logger.error("Error closing occupancy snapshot", e);
+                    }
+                }, "occupancy-snapshot-shutdown"));
+                occupancySnapshot = snapshot;
+            } catch (IOException e) {
+                logger.error("Error mapping occupancy snapshot, starting from the data base", e);
+            }
+        }
+        return occupancySnapshot;
+    }
+
+    public static void startSnapshotVerification(ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO){
+        if(parkingSpotDAO.getOccupancySnapshot() == null){
+            return;
+        }
+        new SnapshotVerificationService(parkingSpotDAO, ticketDAO,
+                Integer.getInteger("parkit.cache.activeTickets.maxSize", 10000))
+                .start(Long.getLong("parkit.snapshot.verifyPeriodSeconds", 60L));
+    }
+
+    //off unless parkit.events.enabled is set; the views are rebuilt from the whole log before the first vehicle is served
+    public static void attachTicketEventLog(ParkingService parkingService){
+        if(!Boolean.getBoolean("parkit.events.enabled")){
+            return;
+        }
+        if(System.getProperty("parkit.ticket.writeBehind.journal") != null){
+            logger.error("The ticket event log cannot be used with the ticket write-behind queue, the event log is off");
+            return;
+        }
+        TicketEventDAO ticketEventDAO = new TicketEventDAO();
+        TicketEventViews ticketEventViews = new TicketEventViews();
+        try {
+            ticketEventDAO.replay(ticketEventViews, Integer.getInteger("parkit.events.fetchSize", 1000));
+        } catch (Exception e) {
+            logger.error("Error replaying ticket events, the event log is off", e);
+            return;
+        }
+        logger.info("Ticket event views loaded: {}", ticketEventViews);
+        parkingService.setTicketEventLog(ticketEventDAO, ticketEventViews);
+    }
+
+    //off unless a retention is given
+    private static void startTicketArchiving(){
+        Integer retentionDays = Integer.getInteger("parkit.ticket.archive.retentionDays");
+        if(retentionDays == null){
+            return;
+        }
+        new TicketArchiveService(new TicketArchiveDAO(), retentionDays,
+                Integer.getInteger("parkit.ticket.archive.batchSize", 1000))
+                .start(Long.getLong("parkit.ticket.archive.periodMinutes", 60L));
+    }
+
+    //write-behind is off unless a journal file is given; the journal is replayed before the caches are loaded
+    private static TicketWriteBehindQueue startWriteBehindQueue(TicketDAO ticketDAO){
+        String journal = System.getProperty("parkit.ticket.writeBehind.journal");
+        if(journal == null){
+            return null;
+        }
+        TicketWriteBehindQueue writeBehindQueue = new TicketWriteBehindQueue(ticketDAO.dataBaseConfig, Paths.get(journal),
+                Integer.getInteger("parkit.ticket.writeBehind.capacity", 10000),
+                Integer.getInteger("parkit.ticket.writeBehind.batchSize", 500),
+                Long.getLong("parkit.ticket.writeBehind.offerTimeoutMillis", 5000L));
+        try {
+            writeBehindQueue.start();
+        } catch (Exception e) {
+            logger.error("Error starting ticket write-behind queue, tickets are written synchronously", e);
+            return null;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(writeBehindQueue::close, "ticket-write-behind-shutdown"));
+        ticketDAO.setWriteBehindQueue(writeBehindQueue);
+        return writeBehindQueue;
     }
 
     private static void loadMenu(){
@@ -1,14 +1,22 @@
 package com.parkit.parkingsystem.service;
 
+import com.parkit.parkingsystem.cache.TicketEventViews;
+import com.parkit.parkingsystem.config.TransactionManager;
 import com.parkit.parkingsystem.constants.ParkingType;
 import com.parkit.parkingsystem.dao.ParkingSpotDAO;
 import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketEventDAO;
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.metrics.Timer;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.model.TicketEvent;
 import com.parkit.parkingsystem.util.InputReaderUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 
@@ -16,16 +24,43 @@ public class ParkingService {
 
     private static final Logger logger = LogManager.getLogger("ParkingService");
 
-    private static FareCalculatorService fareCalculatorService = new FareCalculatorService();
+    private static final Timer INCOMING_VEHICLE_TIMER = Metrics.timer("parking_service_incoming_vehicle");
+    private static final Timer EXITING_VEHICLE_TIMER = Metrics.timer("parking_service_exiting_vehicle");
+    private static final Timer FARE_CALCULATION_TIMER = Metrics.timer("parking_service_fare_calculation");
+    private static final Counter REFUSED_ENTRIES = Metrics.counter("parking_service_refused_entries");
 
     private InputReaderUtil inputReaderUtil;
     private ParkingSpotDAO parkingSpotDAO;
     private TicketDAO ticketDAO;
+    private FareCalculatorService fareCalculatorService;
+    private TransactionManager transactionManager = new TransactionManager();
+    private TicketEventDAO ticketEventDAO;
+    private TicketEventViews ticketEventViews;
 
     public ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO){
+        this(inputReaderUtil, parkingSpotDAO, ticketDAO, new FareCalculatorService());
+    }
+
+    public ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO,
+                          FareCalculatorService fareCalculatorService){
         this.inputReaderUtil = inputReaderUtil;
         this.parkingSpotDAO = parkingSpotDAO;
         this.ticketDAO = ticketDAO;
+        this.fareCalculatorService = fareCalculatorService;
+    }
+
+    //entries and exits are then also logged as events, and fare quotes are read from the views built on that log.
+    //not with the write-behind queue: its tickets have no ID yet and are saved outside the event's transaction
+    public void setTicketEventLog(TicketEventDAO ticketEventDAO, TicketEventViews ticketEventViews){
+        if(ticketEventDAO != null && ticketDAO.getWriteBehindQueue() != null){
+            throw new IllegalStateException("The ticket event log cannot be used with the ticket write-behind queue");
+        }
+        this.ticketEventDAO = ticketEventDAO;
+        this.ticketEventViews = ticketEventViews;
+    }
+
+    public TicketEventViews getTicketEventViews(){
+        return ticketEventViews;
     }
 
     public void processIncomingVehicle() {
@@ -33,22 +68,14 @@ public class ParkingService {
             ParkingSpot parkingSpot = getNextParkingNumberIfAvailable();
             if(parkingSpot !=null && parkingSpot.getId() > 0){
                 String vehicleRegNumber = getVehicleRegNumber();
-                parkingSpot.setAvailable(false);
-                parkingSpotDAO.updateParking(parkingSpot);
-
-                LocalDateTime inTime = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
-                Ticket ticket = new Ticket();
-                ticket.setParkingSpot(parkingSpot);
-                ticket.setVehicleRegNumber(vehicleRegNumber);
-                ticket.setPrice(0);
-                ticket.setInTime(inTime);
-                ticket.setOutTime(null);
-                if(ticketDAO.saveTicket(ticket)){
+                VehicleEntry entry = parkVehicle(parkingSpot.getParkingType(), vehicleRegNumber, true);
+                if(entry != null){
+                    Ticket ticket = entry.ticket;
                     System.out.println("Generated Ticket and saved in DB");
-                    System.out.println("Please park your vehicle in spot number: " + parkingSpot.getId());
-                    System.out.println("Recorded in-time for vehicle number: " + vehicleRegNumber + " is: " + inTime);
+                    System.out.println("Please park your vehicle in spot number: " + ticket.getParkingSpot().getId());
+                    System.out.println("Recorded in-time for vehicle number: " + vehicleRegNumber + " is: " + ticket.getInTime());
 
-                    if(ticketDAO.getNbTicket(ticket.getVehicleRegNumber()) > 1){
+                    if(entry.recurringUser){
                         System.out.println("Happy to see you again! As a regular user of our parking, you will receive a 5% discount.");
                     }
                 }else{
@@ -60,6 +87,86 @@ public class ParkingService {
         }
     }
 
+    //entry without console I/O: returns the saved ticket, or null when no spot of that type is free.
+    //throws when the data base failed, in which case nothing was saved
+    public Ticket parkVehicle(ParkingType parkingType, String vehicleRegNumber) throws Exception {
+        VehicleEntry entry = parkVehicle(parkingType, vehicleRegNumber, false);
+        return entry == null ? null : entry.ticket;
+    }
+
+    private VehicleEntry parkVehicle(ParkingType parkingType, String vehicleRegNumber, boolean countVisits) throws Exception {
+        long start = INCOMING_VEHICLE_TIMER.start();
+        try{
+            return doParkVehicle(parkingType, vehicleRegNumber, countVisits);
+        }finally{
+            INCOMING_VEHICLE_TIMER.stop(start);
+        }
+    }
+
+    private VehicleEntry doParkVehicle(ParkingType parkingType, String vehicleRegNumber, boolean countVisits) throws Exception {
+        LocalDateTime inTime = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        Ticket ticket = new Ticket();
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setPrice(0);
+        ticket.setInTime(inTime);
+        ticket.setOutTime(null);
+
+        //claiming the spot and saving the ticket share one connection and one commit.
+        //the spot is claimed only now, as another gate may have taken the one offered while the driver was typing.
+        boolean committed = false;
+        boolean recurringUser = false;
+        TicketEvent[] events = null;
+        transactionManager.begin();
+        try{
+            ParkingSpot parkingSpot = parkingSpotDAO.allocateParkingSpot(parkingType);
+            if(parkingSpot == null){
+                REFUSED_ENTRIES.increment();
+                return null;
+            }
+            ticket.setParkingSpot(parkingSpot);
+            //read in the transaction before the ticket is saved: a queued save is not counted until it commits
+            recurringUser = countVisits && ticketDAO.getNbTicket(vehicleRegNumber) > 0;
+            if(!ticketDAO.saveTicket(ticket)){
+                throw new SQLException("Unable to save the ticket of " + vehicleRegNumber);
+            }
+            events = ticketEventDAO == null ? null : new TicketEvent[]{TicketEvent.entered(ticket)};
+            if(!appendEvents(events)){
+                throw new SQLException("Unable to log the entry of " + vehicleRegNumber);
+            }
+            transactionManager.commit();
+            committed = true;
+        }finally{
+            if(!committed){
+                //also hands the claimed spot back to the allocator
+                transactionManager.rollback();
+            }
+        }
+        publishEvents(events);
+        return new VehicleEntry(ticket, recurringUser);
+    }
+
+    //appended in the transaction of the ticket change, so the log holds exactly what was committed
+    private boolean appendEvents(TicketEvent[] events){
+        if(events == null){
+            return true;
+        }
+        for(TicketEvent event : events){
+            if(!ticketEventDAO.append(event)){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void publishEvents(TicketEvent[] events){
+        TicketEventViews views = ticketEventViews;
+        if(events != null && views != null){
+            for(TicketEvent event : events){
+                views.apply(event);
+            }
+        }
+    }
+
     private String getVehicleRegNumber() throws Exception {
         System.out.println("Please type the vehicle registration number and press enter key");
         return inputReaderUtil.readVehicleRegistrationNumber();
@@ -103,30 +210,107 @@ public class ParkingService {
         }
     }
 
+    public int getAvailableSpotCount(ParkingType parkingType){
+        return parkingSpotDAO.countAvailableSpots(parkingType);
+    }
+
+    //fare the vehicle would pay leaving now, nothing is written; null when it has no open ticket
+    public Ticket quoteFare(String vehicleRegNumber){
+        TicketEventViews views = ticketEventViews;
+        if(views != null){
+            Ticket ticket = views.getOpenTicket(vehicleRegNumber);
+            if(ticket == null){
+                return null;
+            }
+            ticket.setOutTime(LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS));
+            fareCalculatorService.calculateFare(ticket, views.getVisitCount(vehicleRegNumber) > 1);
+            return ticket;
+        }
+        Ticket ticket = ticketDAO.getTicket(vehicleRegNumber);
+        if(ticket == null || ticket.getOutTime() != null){
+            return null;
+        }
+        ticket.setOutTime(LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS));
+        fareCalculatorService.calculateFare(ticket, ticketDAO.getNbTicket(vehicleRegNumber) > 1);
+        return ticket;
+    }
+
     public void processExitingVehicle() {
         try{
             String vehicleRegNumber = getVehicleRegNumber();
-            Ticket ticket = ticketDAO.getTicket(vehicleRegNumber);
+            Ticket ticket = exitVehicle(vehicleRegNumber);
+            if(ticket != null) {
+                System.out.println("Please pay the parking fare: " + ticket.getPrice());
+                System.out.println("Recorded out-time for vehicle number: " + ticket.getVehicleRegNumber() + " is: " + ticket.getOutTime());
+            }else{
+                System.out.println("Unable to update ticket information. Error occurred");
+            }
+        }catch(Exception e){
+            logger.error("Unable to process exiting vehicle",e);
+        }
+    }
+
+    //exit without console I/O: returns the priced ticket, or null when the vehicle has no open ticket.
+    //throws when the data base failed, in which case the ticket stays open
+    public Ticket exitVehicle(String vehicleRegNumber) throws Exception {
+        long start = EXITING_VEHICLE_TIMER.start();
+        try{
+            return doExitVehicle(vehicleRegNumber);
+        }finally{
+            EXITING_VEHICLE_TIMER.stop(start);
+        }
+    }
+
+    private Ticket doExitVehicle(String vehicleRegNumber) throws Exception {
+        boolean committed = false;
+        try{
+            transactionManager.begin();
+            Ticket ticket = ticketDAO.findTicket(vehicleRegNumber);
+            if(ticket == null || ticket.getOutTime() != null){
+                return null;
+            }
             LocalDateTime outTime = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
             ticket.setOutTime(outTime);
 
-            if(ticketDAO.getNbTicket(ticket.getVehicleRegNumber()) > 1){
+            boolean recurringUser = ticketDAO.getNbTicket(ticket.getVehicleRegNumber()) > 1;
+            long fareStart = FARE_CALCULATION_TIMER.start();
+            if(recurringUser){
                 fareCalculatorService.calculateFare(ticket, true);
             }else{
                 fareCalculatorService.calculateFare(ticket);
             }
+            FARE_CALCULATION_TIMER.stop(fareStart);
 
-            if(ticketDAO.updateTicket(ticket)) {
-                ParkingSpot parkingSpot = ticket.getParkingSpot();
-                parkingSpot.setAvailable(true);
-                parkingSpotDAO.updateParking(parkingSpot);
-                System.out.println("Please pay the parking fare: " + ticket.getPrice());
-                System.out.println("Recorded out-time for vehicle number: " + ticket.getVehicleRegNumber() + " is: " + outTime);
-            }else{
-                System.out.println("Unable to update ticket information. Error occurred");
+            if(!ticketDAO.updateTicket(ticket)) {
+                throw new SQLException("Unable to update the ticket of " + vehicleRegNumber);
             }
-        }catch(Exception e){
-            logger.error("Unable to process exiting vehicle",e);
+            ParkingSpot parkingSpot = ticket.getParkingSpot();
+            parkingSpot.setAvailable(true);
+            if(!parkingSpotDAO.updateParking(parkingSpot)){
+                throw new SQLException("Unable to free parking spot " + parkingSpot.getId());
+            }
+            TicketEvent[] events = ticketEventDAO == null ? null : new TicketEvent[]{TicketEvent.priced(ticket), TicketEvent.exited(ticket)};
+            if(!appendEvents(events)){
+                throw new SQLException("Unable to log the exit of " + vehicleRegNumber);
+            }
+            transactionManager.commit();
+            committed = true;
+            publishEvents(events);
+            return ticket;
+        }finally{
+            if(!committed){
+                transactionManager.rollback();
+            }
+        }
+    }
+
+    private static class VehicleEntry {
+        private final Ticket ticket;
+        private final boolean recurringUser;
+
+        VehicleEntry(Ticket ticket, boolean recurringUser) {
+            this.ticket = ticket;
+            this.recurringUser = recurringUser;
         }
     }
 }
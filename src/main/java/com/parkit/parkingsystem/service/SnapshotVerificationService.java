@@ -0,0 +1,92 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.cache.OccupancySnapshot;
+import com.parkit.parkingsystem.cache.ParkingSpotIndex;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+//checks the occupancy snapshot the app started from against the parking and ticket tables, right after
+//startup and then from time to time. like the free spot counters, a gate in the middle of a transaction
+//shows up as a one-off difference, so the index, the ticket cache and the snapshot are only reloaded from
+//the data base when the same spots differ on two checks in a row.
+public class SnapshotVerificationService {
+
+    private static final Logger logger = LogManager.getLogger("SnapshotVerificationService");
+
+    private final ParkingSpotDAO parkingSpotDAO;
+    private final TicketDAO ticketDAO;
+    private final int activeTicketCacheSize;
+    private int[] lastDifferences = new int[0];
+    private ScheduledExecutorService scheduler;
+
+    public SnapshotVerificationService(ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO, int activeTicketCacheSize) {
+        this.parkingSpotDAO = parkingSpotDAO;
+        this.ticketDAO = ticketDAO;
+        this.activeTicketCacheSize = activeTicketCacheSize;
+    }
+
+    public synchronized void start(long periodSeconds) {
+        if(scheduler != null){
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snapshot-verification");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::verify, 0, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    public synchronized void stop() {
+        if(scheduler != null){
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    //returns true when the snapshot matched the data base
+    public boolean verify() {
+        try {
+            OccupancySnapshot snapshot = parkingSpotDAO.getOccupancySnapshot();
+            if(snapshot == null){
+                return true;
+            }
+            ParkingSpotIndex dataBaseIndex = parkingSpotDAO.readParkingSpotIndex();
+            List<Ticket> openTickets = ticketDAO.getOpenTickets();
+            if(dataBaseIndex == null || openTickets == null){
+                return false;
+            }
+            int[] differences = snapshot.findDifferences(dataBaseIndex, openTickets);
+            if(differences.length == 0){
+                lastDifferences = differences;
+                snapshot.force();
+                return true;
+            }
+            if(Arrays.equals(differences, lastDifferences)){
+                logger.error("Occupancy snapshot out of sync with the data base on {} spots, reloading from the data base",
+                        differences.length);
+                parkingSpotDAO.loadParkingSpotIndex();
+                ticketDAO.loadActiveTicketCache(activeTicketCacheSize);
+                snapshot.force();
+                lastDifferences = new int[0];
+            }else{
+                logger.info("Occupancy snapshot differs from the data base on {} spots, checking again next run",
+                        differences.length);
+                lastDifferences = differences;
+            }
+            return false;
+        } catch (Exception e) {
+            logger.error("Error verifying occupancy snapshot", e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.cache.TicketStatistics;
+import com.parkit.parkingsystem.dao.TicketAnalyticsDAO;
+import com.parkit.parkingsystem.model.DailyParkingStats;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+//revenue, stays, peak occupancy and loyalty discounts per day and parking type. the first refresh reads the whole
+//history once, later ones only the tickets created or closed since.
+public class TicketAnalyticsService {
+
+    private static final Logger logger = LogManager.getLogger("TicketAnalyticsService");
+
+    private final TicketAnalyticsDAO ticketAnalyticsDAO;
+    private final int maxDays;
+    private final int fetchSize;
+    private volatile TicketStatistics statistics;
+    private ScheduledExecutorService scheduler;
+
+    public TicketAnalyticsService(TicketAnalyticsDAO ticketAnalyticsDAO, int maxDays, int fetchSize) {
+        this.ticketAnalyticsDAO = ticketAnalyticsDAO;
+        this.maxDays = maxDays;
+        this.fetchSize = fetchSize;
+        this.statistics = new TicketStatistics(maxDays);
+    }
+
+    public synchronized void start(long periodMinutes) {
+        if(scheduler != null){
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ticket-analytics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::refreshQuietly, 0, periodMinutes, TimeUnit.MINUTES);
+    }
+
+    public synchronized void stop() {
+        if(scheduler != null){
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    //returns the number of tickets read
+    public synchronized int refresh() throws Exception {
+        long start = System.currentTimeMillis();
+        TicketStatistics current = statistics;
+        int nbRead = ticketAnalyticsDAO.readClosedPendingTickets(current, fetchSize);
+        nbRead += ticketAnalyticsDAO.readSkippedTickets(current, fetchSize);
+        try {
+            nbRead += ticketAnalyticsDAO.readNewTickets(current, fetchSize);
+        } catch (Exception e) {
+            //new tickets do not come in ID order, so a partial read leaves no mark to resume from
+            statistics = new TicketStatistics(maxDays);
+            throw e;
+        }
+        logger.info("Ticket analytics refreshed in {}ms: {} tickets read, {}", System.currentTimeMillis() - start, nbRead,
+                current);
+        return nbRead;
+    }
+
+    public List<DailyParkingStats> getDailyStats(LocalDate from, LocalDate to) {
+        return statistics.getDailyStats(from, to);
+    }
+
+    public TicketStatistics getStatistics() {
+        return statistics;
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            logger.error("Error refreshing ticket analytics", e);
+        }
+    }
+}
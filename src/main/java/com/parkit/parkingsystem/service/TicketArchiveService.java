@@ -0,0 +1,70 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.dao.TicketArchiveDAO;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+//keeps the ticket table to recent history: closed tickets older than the retention are moved to the archive
+//in small transactions, so gates are never blocked behind one long delete
+public class TicketArchiveService {
+
+    private static final Logger logger = LogManager.getLogger("TicketArchiveService");
+
+    private final TicketArchiveDAO ticketArchiveDAO;
+    private final int retentionDays;
+    private final int batchSize;
+    private ScheduledExecutorService scheduler;
+
+    public TicketArchiveService(TicketArchiveDAO ticketArchiveDAO, int retentionDays, int batchSize) {
+        this.ticketArchiveDAO = ticketArchiveDAO;
+        this.retentionDays = retentionDays;
+        this.batchSize = batchSize;
+    }
+
+    public synchronized void start(long periodMinutes) {
+        if(scheduler != null){
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ticket-archive");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::archiveQuietly, 0, periodMinutes, TimeUnit.MINUTES);
+    }
+
+    public synchronized void stop() {
+        if(scheduler != null){
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    //returns the number of tickets archived
+    public int archive() throws Exception {
+        LocalDateTime closedBefore = LocalDateTime.now().minusDays(retentionDays);
+        int nbArchived = 0;
+        int nbMoved;
+        do {
+            nbMoved = ticketArchiveDAO.archiveClosedTickets(closedBefore, batchSize);
+            nbArchived += nbMoved;
+        } while(nbMoved >= batchSize && !Thread.currentThread().isInterrupted());
+        if(nbArchived > 0){
+            logger.info("Archived {} tickets closed before {}", nbArchived, closedBefore);
+        }
+        return nbArchived;
+    }
+
+    private void archiveQuietly() {
+        try {
+            archive();
+        } catch (Exception e) {
+            logger.error("Error archiving tickets", e);
+        }
+    }
+}
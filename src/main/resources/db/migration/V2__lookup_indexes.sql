@@ -0,0 +1,9 @@
+/* Latest ticket of a vehicle (GET_TICKET, order by IN_TIME desc limit 1), the write-behind statements keyed on */
+/* vehicle and in time, and the first ticket ID of a vehicle for the fare recomputation discount */
+create index ticket_vehicle_in_time on ticket(VEHICLE_REG_NUMBER, IN_TIME);
+
+/* Open tickets loaded into the active ticket cache at startup */
+create index ticket_out_time on ticket(OUT_TIME);
+
+/* Covers GET_NEXT_PARKING_SPOT and the availability counts without reading the table */
+create index parking_type_available on parking(TYPE, AVAILABLE, PARKING_NUMBER);
@@ -0,0 +1,14 @@
+/* Closed tickets moved out of the ticket table once they are old enough, see TicketArchiveDAO. */
+/* IDs are kept so the first ticket of a vehicle can still be told apart from its later ones. */
+create table ticket_archive(
+ ID int PRIMARY KEY,
+ PARKING_NUMBER int NOT NULL,
+ VEHICLE_REG_NUMBER varchar(10) NOT NULL,
+ PRICE double,
+ IN_TIME DATETIME NOT NULL,
+ OUT_TIME DATETIME NOT NULL);
+
+create index ticket_archive_vehicle_in_time on ticket_archive(VEHICLE_REG_NUMBER, IN_TIME);
+
+/* Old history is dropped or exported by in time ranges */
+create index ticket_archive_in_time on ticket_archive(IN_TIME);
@@ -0,0 +1,22 @@
+/* Append-only log of what happened to tickets, see TicketEventDAO. Rows are only ever inserted. */
+create table ticket_event(
+ ID int PRIMARY KEY AUTO_INCREMENT,
+ EVENT_TYPE varchar(10) NOT NULL,
+ TICKET_ID int NOT NULL,
+ VEHICLE_REG_NUMBER varchar(10) NOT NULL,
+ PARKING_NUMBER int NOT NULL,
+ PARKING_TYPE varchar(10) NOT NULL,
+ EVENT_TIME DATETIME NOT NULL,
+ PRICE double);
+
+/* History from before the log, in time order: an entry per ticket, then the pricing and exit of the closed ones. */
+/* Exits go before entries at the same second, so a spot freed and taken again is replayed in that order. */
+insert into ticket_event(EVENT_TYPE, TICKET_ID, VEHICLE_REG_NUMBER, PARKING_NUMBER, PARKING_TYPE, EVENT_TIME, PRICE)
+ select e.EVENT_TYPE, h.ID, h.VEHICLE_REG_NUMBER, h.PARKING_NUMBER, p.TYPE,
+  case when e.POSITION = 0 then h.IN_TIME else h.OUT_TIME end, case when e.POSITION = 0 then null else h.PRICE end
+ from (select ID, VEHICLE_REG_NUMBER, PARKING_NUMBER, PRICE, IN_TIME, OUT_TIME from ticket_archive
+  union all select ID, VEHICLE_REG_NUMBER, PARKING_NUMBER, PRICE, IN_TIME, OUT_TIME from ticket) h
+ join parking p on p.PARKING_NUMBER = h.PARKING_NUMBER
+ join (select 'ENTERED' EVENT_TYPE, 0 POSITION from dual union all select 'PRICED', 1 from dual
+  union all select 'EXITED', 2 from dual) e on e.POSITION = 0 or h.OUT_TIME is not null
+ order by case when e.POSITION = 0 then h.IN_TIME else h.OUT_TIME end, case when e.POSITION = 0 then 1 else 0 end, h.ID, e.POSITION;
@@ -0,0 +1,7 @@
+/* Routing index of a multi-facility deployment, kept in the main data base: the facilities each vehicle has */
+/* entered, so a lookup by registration only queries those facilities. Facility data bases leave it empty. */
+create table vehicle_facility(
+ VEHICLE_REG_NUMBER varchar(10) NOT NULL,
+ FACILITY_ID varchar(20) NOT NULL,
+ LAST_IN_TIME DATETIME NOT NULL,
+ PRIMARY KEY (VEHICLE_REG_NUMBER, FACILITY_ID));
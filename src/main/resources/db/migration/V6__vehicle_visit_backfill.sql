@@ -0,0 +1,14 @@
+/* A data base created before vehicle_visit existed got the table empty, so returning vehicles lost their discount. */
+/* Counts are rebuilt from the ticket history; they are only raised, so visits of history exported out of */
+/* ticket_archive are kept. */
+insert into vehicle_visit(VEHICLE_REG_NUMBER, NB_TICKET)
+select h.VEHICLE_REG_NUMBER, count(*)
+from (select VEHICLE_REG_NUMBER from ticket union all select VEHICLE_REG_NUMBER from ticket_archive) h
+where not exists (select 1 from vehicle_visit v where v.VEHICLE_REG_NUMBER = h.VEHICLE_REG_NUMBER)
+group by h.VEHICLE_REG_NUMBER;
+
+update vehicle_visit v
+set NB_TICKET = (select count(*) from ticket t where t.VEHICLE_REG_NUMBER = v.VEHICLE_REG_NUMBER)
+              + (select count(*) from ticket_archive a where a.VEHICLE_REG_NUMBER = v.VEHICLE_REG_NUMBER)
+where NB_TICKET < (select count(*) from ticket t where t.VEHICLE_REG_NUMBER = v.VEHICLE_REG_NUMBER)
+                + (select count(*) from ticket_archive a where a.VEHICLE_REG_NUMBER = v.VEHICLE_REG_NUMBER);
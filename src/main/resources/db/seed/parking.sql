@@ -0,0 +1,6 @@
+/* Parking spots of Data.sql, for embedded data bases that start empty */
+insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(1,true,'CAR');
+insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(2,true,'CAR');
+insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(3,true,'CAR');
+insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(4,true,'BIKE');
+insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(5,true,'BIKE');
@@ -0,0 +1,73 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.cache.ActiveTicketCache;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ActiveTicketCacheTest {
+
+    private Ticket openTicket(String vehicleRegNumber) {
+        Ticket ticket = new Ticket();
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setInTime(LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS));
+        return ticket;
+    }
+
+    @Test
+    public void getCountsHitsAndMisses() {
+        ActiveTicketCache cache = new ActiveTicketCache(10);
+        cache.put(openTicket("ABCDEF"));
+
+        assertNotNull(cache.get("ABCDEF"));
+        assertNull(cache.get("GHIJKL"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void closedTicketIsEvicted() {
+        ActiveTicketCache cache = new ActiveTicketCache(10);
+        Ticket ticket = openTicket("ABCDEF");
+        cache.put(ticket);
+
+        ticket.setOutTime(LocalDateTime.now());
+        cache.put(ticket);
+
+        assertNull(cache.get("ABCDEF"));
+    }
+
+    @Test
+    public void cachedTicketIsNotChangedByCaller() {
+        ActiveTicketCache cache = new ActiveTicketCache(10);
+        cache.put(openTicket("ABCDEF"));
+
+        Ticket ticket = cache.get("ABCDEF");
+        ticket.setOutTime(LocalDateTime.now());
+        ticket.getParkingSpot().setAvailable(true);
+
+        assertNull(cache.get("ABCDEF").getOutTime());
+        assertFalse(cache.get("ABCDEF").getParkingSpot().isAvailable());
+    }
+
+    @Test
+    public void leastRecentlyUsedTicketIsEvictedWhenFull() {
+        ActiveTicketCache cache = new ActiveTicketCache(2);
+        cache.put(openTicket("AAA"));
+        cache.put(openTicket("BBB"));
+        cache.get("AAA");
+        cache.put(openTicket("CCC"));
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertNull(cache.get("BBB"));
+        assertNotNull(cache.get("AAA"));
+    }
+}
@@ -0,0 +1,64 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.cache.ParkingSpotIndex;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.service.AvailabilityReconciliationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class AvailabilityReconciliationServiceTest {
+
+    @Mock
+    private ParkingSpotDAO parkingSpotDAO;
+
+    private AvailabilityReconciliationService reconciliationService;
+    private Map<ParkingType, Integer> dataBaseCounts;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        ParkingSpotIndex index = new ParkingSpotIndex(5);
+        index.release(1, ParkingType.CAR);
+        index.release(2, ParkingType.CAR);
+        index.release(4, ParkingType.BIKE);
+        when(parkingSpotDAO.getParkingSpotIndex()).thenReturn(index);
+        dataBaseCounts = new EnumMap<>(ParkingType.class);
+        dataBaseCounts.put(ParkingType.CAR, 2);
+        dataBaseCounts.put(ParkingType.BIKE, 1);
+        when(parkingSpotDAO.countAvailableSpotsInDataBase()).thenReturn(dataBaseCounts);
+        reconciliationService = new AvailabilityReconciliationService(parkingSpotDAO);
+    }
+
+    @Test
+    public void matchingCountersAreLeftAlone() {
+        assertTrue(reconciliationService.reconcile());
+        verify(parkingSpotDAO, never()).loadParkingSpotIndex();
+    }
+
+    @Test
+    public void transientDifferenceDoesNotReload() {
+        dataBaseCounts.put(ParkingType.CAR, 1);
+        assertFalse(reconciliationService.reconcile());
+        dataBaseCounts.put(ParkingType.CAR, 2);
+        assertTrue(reconciliationService.reconcile());
+        verify(parkingSpotDAO, never()).loadParkingSpotIndex();
+    }
+
+    @Test
+    public void persistentDifferenceReloadsIndex() {
+        dataBaseCounts.put(ParkingType.BIKE, 0);
+        assertFalse(reconciliationService.reconcile());
+        assertFalse(reconciliationService.reconcile());
+        verify(parkingSpotDAO, times(1)).loadParkingSpotIndex();
+    }
+}
@@ -0,0 +1,126 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.ConnectionPool;
+import com.parkit.parkingsystem.config.ConnectionPoolConfig;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.StorageBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConnectionPoolTest {
+
+    private ConnectionPool pool;
+
+    @AfterEach
+    private void tearDownPerTest() {
+        if(pool != null){
+            pool.close();
+        }
+        DataBaseConfig.closeConnectionPools();
+    }
+
+    private static ConnectionPoolConfig h2Config() {
+        ConnectionPoolConfig config = StorageBackend.MEMORY.createConnectionPoolConfig("connection-pool");
+        config.setMinSize(0);
+        config.setMaxSize(1);
+        return config;
+    }
+
+    //the housekeeper runs on its own thread, its effect is waited for rather than timed
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        for(int i = 0; i < 500 && !condition.getAsBoolean(); i++){
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    @Test
+    public void borrowTimesOutWhenThePoolIsExhausted() throws Exception {
+        ConnectionPoolConfig config = h2Config();
+        config.setConnectionTimeoutMillis(50);
+        pool = new ConnectionPool(config);
+        try(Connection con = pool.getConnection()){
+            SQLException e = assertThrows(SQLException.class, pool::getConnection);
+            assertTrue(e.getMessage().startsWith("Timed out"));
+        }
+        assertEquals(1, pool.getStats().getTimeoutCount());
+        //the permit of the borrowed connection came back
+        pool.getConnection().close();
+    }
+
+    @Test
+    public void invalidIdleConnectionIsReplaced() throws Exception {
+        pool = new ConnectionPool(h2Config());
+        Connection con = pool.getConnection();
+        Connection physicalConnection = con.unwrap(Connection.class);
+        con.close();
+        physicalConnection.close();
+
+        try(Connection replacement = pool.getConnection(); Statement statement = replacement.createStatement()){
+            assertTrue(statement.execute("select 1"));
+        }
+        assertEquals(1, pool.getStats().getValidationFailureCount());
+        assertEquals(2, pool.getStats().getCreatedCount());
+    }
+
+    @Test
+    public void idleConnectionsAreEvicted() throws Exception {
+        ConnectionPoolConfig config = h2Config();
+        config.setIdleTimeoutMillis(1);
+        config.setHousekeepingPeriodMillis(20);
+        pool = new ConnectionPool(config);
+        pool.getConnection().close();
+
+        waitUntil(() -> pool.getStats().getTotalConnections() == 0);
+        assertEquals(1, pool.getStats().getDestroyedCount());
+    }
+
+    @Test
+    public void connectionHeldTooLongIsReportedAsLeaked() throws Exception {
+        ConnectionPoolConfig config = h2Config();
+        config.setLeakDetectionThresholdMillis(1);
+        config.setHousekeepingPeriodMillis(20);
+        pool = new ConnectionPool(config);
+        try(Connection con = pool.getConnection()){
+            waitUntil(() -> pool.getStats().getLeakCount() == 1);
+        }
+    }
+
+    @Test
+    public void closedPoolRefusesBorrowsAndDestroysReturnedConnections() throws Exception {
+        pool = new ConnectionPool(h2Config());
+        Connection con = pool.getConnection();
+        pool.close();
+
+        assertTrue(pool.isClosed());
+        SQLException e = assertThrows(SQLException.class, pool::getConnection);
+        assertEquals("Connection pool is closed", e.getMessage());
+        con.close();
+        assertEquals(0, pool.getStats().getTotalConnections());
+        assertThrows(SQLException.class, con::createStatement);
+    }
+
+    @Test
+    public void dataBaseConfigReopensAPoolClosedByCloseConnectionPools() throws Exception {
+        DataBaseConfig dataBaseConfig = new DataBaseConfig() {
+            @Override
+            protected ConnectionPoolConfig getConnectionPoolConfig() {
+                return h2Config();
+            }
+        };
+        ConnectionPool first = dataBaseConfig.getConnectionPool();
+        DataBaseConfig.closeConnectionPools();
+
+        Connection con = dataBaseConfig.getConnection();
+        dataBaseConfig.closeConnection(con);
+        assertNotSame(first, dataBaseConfig.getConnectionPool());
+        assertFalse(dataBaseConfig.getConnectionPool().isClosed());
+    }
+}
@@ -0,0 +1,68 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.IngestionReport;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.EventIngestionService;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class EventIngestionServiceTest {
+
+    @Mock
+    private ParkingService parkingService;
+
+    @Test
+    public void eventsOfOneVehicleStayInOrder() throws Exception {
+        //an exit is only accepted for a vehicle that is parked, so any reordering shows up as a failure
+        Map<String, Boolean> parked = new ConcurrentHashMap<>();
+        when(parkingService.parkVehicle(any(ParkingType.class), anyString())).thenAnswer(invocation ->
+                parked.put(invocation.getArgument(1), true) == null ? new Ticket() : null);
+        when(parkingService.exitVehicle(anyString())).thenAnswer(invocation ->
+                parked.remove(invocation.getArgument(0)) != null ? new Ticket() : null);
+        StringBuilder events = new StringBuilder("# generated events\n");
+        for(int round = 0; round < 50; round++){
+            for(int vehicle = 0; vehicle < 200; vehicle++){
+                events.append("ENTER,").append(vehicle % 5 == 0 ? "BIKE" : "CAR").append(",REG").append(vehicle).append('\n');
+            }
+            for(int vehicle = 0; vehicle < 200; vehicle++){
+                events.append("EXIT,REG").append(vehicle).append('\n');
+            }
+        }
+
+        EventIngestionService ingestionService = new EventIngestionService(parkingService, 8, 16);
+        IngestionReport report = ingestionService.ingest(new BufferedReader(new StringReader(events.toString())));
+
+        assertEquals(20000, report.getEventCount());
+        assertEquals(0, report.getFailedCount());
+        assertTrue(parked.isEmpty());
+        verify(parkingService, times(10000)).exitVehicle(anyString());
+    }
+
+    @Test
+    public void invalidEventsAreCountedAsFailures() throws Exception {
+        when(parkingService.parkVehicle(ParkingType.CAR, "ABCDEF")).thenReturn(new Ticket());
+        String events = "ENTER,CAR,ABCDEF\nENTER,TRUCK,ABCDEF\nLEAVE,ABCDEF\nEXIT\n\n";
+
+        EventIngestionService ingestionService = new EventIngestionService(parkingService, 2, 4);
+        IngestionReport report = ingestionService.ingest(new BufferedReader(new StringReader(events)));
+
+        assertEquals(4, report.getEventCount());
+        assertEquals(3, report.getFailedCount());
+        verify(parkingService, never()).exitVehicle(anyString());
+    }
+}
@@ -0,0 +1,99 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.VehicleRoutingDAO;
+import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.FacilityRouter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FacilityRouterTest {
+
+    private FacilityRouter facilityRouter;
+
+    @BeforeEach
+    private void setUpPerTest() throws Exception {
+        DataBaseConfig routingConfig = DataBaseTestConfig.memoryDataBase("facility_routing");
+        execute(routingConfig, "delete from vehicle_facility");
+        VehicleRoutingDAO vehicleRoutingDAO = new VehicleRoutingDAO();
+        vehicleRoutingDAO.dataBaseConfig = routingConfig;
+        facilityRouter = new FacilityRouter(vehicleRoutingDAO);
+        for(String facilityId : new String[]{"north", "south"}){
+            DataBaseConfig dataBaseConfig = DataBaseTestConfig.memoryDataBase("facility_" + facilityId);
+            execute(dataBaseConfig, "delete from ticket", "delete from vehicle_visit", "update parking set AVAILABLE = true");
+            ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+            parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+            TicketDAO ticketDAO = new TicketDAO();
+            ticketDAO.dataBaseConfig = dataBaseConfig;
+            facilityRouter.addFacility(facilityId, parkingSpotDAO, ticketDAO);
+        }
+    }
+
+    @AfterEach
+    private void tearDownPerTest() {
+        DataBaseConfig.closeConnectionPools();
+    }
+
+    @Test
+    public void facilitiesAllocateSpotsIndependently() throws Exception {
+        Ticket north = facilityRouter.parkVehicle("north", ParkingType.CAR, "ABC");
+        Ticket south = facilityRouter.parkVehicle("south", ParkingType.CAR, "XYZ");
+
+        assertEquals(1, north.getParkingSpot().getId());
+        assertEquals(1, south.getParkingSpot().getId());
+        assertEquals(2, facilityRouter.getParkingService("north").getAvailableSpotCount(ParkingType.CAR));
+        assertEquals(2, facilityRouter.getParkingService("south").getAvailableSpotCount(ParkingType.CAR));
+    }
+
+    @Test
+    public void exitAndQuoteAreRoutedByRegistration() throws Exception {
+        facilityRouter.parkVehicle("south", ParkingType.BIKE, "ABC");
+
+        assertEquals("south", facilityRouter.findParkedFacility("ABC"));
+        assertNotNull(facilityRouter.quoteFare("ABC"));
+        Ticket ticket = facilityRouter.exitVehicle("ABC");
+        assertNotNull(ticket.getOutTime());
+        assertNull(facilityRouter.findParkedFacility("ABC"));
+        assertNull(facilityRouter.exitVehicle("ABC"));
+        assertNull(facilityRouter.quoteFare("NONE"));
+    }
+
+    @Test
+    public void historyCoversEveryFacilityTheVehicleEntered() throws Exception {
+        facilityRouter.parkVehicle("north", ParkingType.CAR, "ABC");
+        facilityRouter.exitVehicle("ABC");
+        facilityRouter.parkVehicle("south", ParkingType.CAR, "ABC");
+
+        assertEquals("south", facilityRouter.findParkedFacility("ABC"));
+        Map<String, List<Ticket>> history = facilityRouter.getTicketHistory("ABC");
+        assertEquals(2, history.size());
+        assertEquals(1, history.get("north").size());
+        assertEquals(1, history.get("south").size());
+        assertTrue(facilityRouter.getTicketHistory("NONE").isEmpty());
+    }
+
+    @Test
+    public void unknownFacilityIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> facilityRouter.parkVehicle("east", ParkingType.CAR, "ABC"));
+    }
+
+    private static void execute(DataBaseConfig dataBaseConfig, String... statements) throws Exception {
+        try(Connection con = dataBaseConfig.getConnection(); Statement statement = con.createStatement()){
+            for(String sql : statements){
+                statement.execute(sql);
+            }
+        }
+    }
+}
@@ -160,4 +160,25 @@ public class FareCalculatorServiceTest {
         fareCalculatorService.calculateFare(ticket, true);
         assertEquals(45.6, ticket.getPrice());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void calculateFareInCentsCarWithDiscount(){
+        assertEquals(6840, fareCalculatorService.calculateFareInCents(ParkingType.CAR, 2 * 24 * 60, true));
+    }
+
+    @Test
+    public void calculateFareInCentsRoundsHalfCentUp(){
+        //31 minutes of car parking cost exactly 77.5 cents
+        assertEquals(78, fareCalculatorService.calculateFareInCents(ParkingType.CAR, 31, false));
+    }
+
+    @Test
+    public void calculateFareInCentsWithLessThan30minutesParkingTime(){
+        assertEquals(0, fareCalculatorService.calculateFareInCents(ParkingType.BIKE, 29, false));
+    }
+
+    @Test
+    public void calculateFareInCentsWithNegativeDuration(){
+        assertThrows(IllegalArgumentException.class, () -> fareCalculatorService.calculateFareInCents(ParkingType.CAR, -1, false));
+    }
+}
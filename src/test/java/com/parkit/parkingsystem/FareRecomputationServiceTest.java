@@ -0,0 +1,70 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ClosedTicketCursor;
+import com.parkit.parkingsystem.dao.FareRecomputationDAO;
+import com.parkit.parkingsystem.model.FareRecomputationReport;
+import com.parkit.parkingsystem.model.TicketFareBatch;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.FareRecomputationService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class FareRecomputationServiceTest {
+
+    @Mock
+    private FareRecomputationDAO fareRecomputationDAO;
+    @Mock
+    private ClosedTicketCursor closedTicketCursor;
+
+    @Test
+    public void recomputeFaresWritesOnlyChangedPrices() throws Exception {
+        int nbTickets = 10000;
+        int[] nextId = {1};
+        when(fareRecomputationDAO.openClosedTickets(anyInt())).thenReturn(closedTicketCursor);
+        //every ticket is a 1h car stay, odd IDs are stored at the old price of 1.00 and need an update
+        when(closedTicketCursor.fill(any(TicketFareBatch.class))).thenAnswer(invocation -> {
+            TicketFareBatch batch = invocation.getArgument(0);
+            batch.clear();
+            while(batch.getSize() < batch.getCapacity() && nextId[0] <= nbTickets){
+                int id = nextId[0]++;
+                batch.add(id, ParkingType.CAR, 60, false, id % 2 == 1 ? 100 : 150);
+            }
+            return batch.getSize();
+        });
+        Map<Integer, Long> written = new HashMap<>();
+        when(fareRecomputationDAO.updatePrices(any(TicketFareBatch.class))).thenAnswer(invocation -> {
+            TicketFareBatch batch = invocation.getArgument(0);
+            int nbUpdated = 0;
+            for(int i = 0; i < batch.getSize(); i++){
+                if(batch.isPriceChanged(i)){
+                    written.put(batch.getId(i), batch.getNewPriceInCents(i));
+                    nbUpdated++;
+                }
+            }
+            return nbUpdated;
+        });
+
+        FareRecomputationService fareRecomputationService = new FareRecomputationService(fareRecomputationDAO,
+                new FareCalculatorService(), new ForkJoinPool(4));
+        FareRecomputationReport report = fareRecomputationService.recomputeFares(3000);
+
+        assertEquals(nbTickets, report.getTicketCount());
+        assertEquals(nbTickets / 2, report.getUpdatedCount());
+        assertEquals(nbTickets / 2, written.size());
+        assertEquals(Long.valueOf(150), written.get(1));
+        assertFalse(written.containsKey(2));
+    }
+}
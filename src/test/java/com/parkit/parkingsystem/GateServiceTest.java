@@ -0,0 +1,61 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.GateService;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class GateServiceTest {
+
+    @Mock
+    private ParkingService parkingService;
+
+    @Test
+    public void manyGatesAreServedConcurrently() throws Exception {
+        //each entry only returns once 50 of them are in progress at the same time, so gates served one by one
+        //would break the barrier instead of finishing
+        CyclicBarrier inProgress = new CyclicBarrier(50);
+        when(parkingService.parkVehicle(any(ParkingType.class), anyString())).thenAnswer(invocation -> {
+            inProgress.await(30, TimeUnit.SECONDS);
+            Ticket ticket = new Ticket();
+            ticket.setVehicleRegNumber(invocation.getArgument(1));
+            return ticket;
+        });
+        try(GateService gateService = new GateService(parkingService, GateService.newGateExecutor(64))){
+            List<CompletableFuture<Ticket>> tickets = new ArrayList<>();
+            for(int gate = 0; gate < 500; gate++){
+                tickets.add(gateService.enter(ParkingType.CAR, "REG" + gate));
+            }
+            CompletableFuture.allOf(tickets.toArray(new CompletableFuture[0])).get();
+
+            assertEquals("REG42", tickets.get(42).get().getVehicleRegNumber());
+        }
+        verify(parkingService, times(500)).parkVehicle(any(ParkingType.class), anyString());
+    }
+
+    @Test
+    public void failedExitCompletesExceptionally() throws Exception {
+        when(parkingService.exitVehicle("ABCDEF")).thenThrow(new NullPointerException("no ticket"));
+        try(GateService gateService = new GateService(parkingService, GateService.newGateExecutor(2))){
+            ExecutionException e = assertThrows(ExecutionException.class, () -> gateService.exit("ABCDEF").get());
+            assertTrue(e.getCause() instanceof NullPointerException);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.util.LatencyHistogram;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void emptyHistogram(){
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(99));
+    }
+
+    @Test
+    public void percentilesAreWithinBucketPrecision(){
+        LatencyHistogram histogram = new LatencyHistogram();
+        for(long value = 1; value <= 100000; value++){
+            histogram.record(value * 1000);
+        }
+        assertEquals(100000, histogram.getCount());
+        assertEquals(100000000, histogram.getMax());
+        assertEquals(50000000, histogram.getPercentile(50), 50000000 * 0.0625);
+        assertEquals(99000000, histogram.getPercentile(99), 99000000 * 0.0625);
+        assertEquals(50000500, histogram.getMean(), 1);
+    }
+
+    @Test
+    public void smallValuesAreExact(){
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(3);
+        histogram.record(3);
+        histogram.record(7);
+        assertEquals(3, histogram.getPercentile(50));
+        assertEquals(7, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void negativeValueIsRejected(){
+        assertThrows(IllegalArgumentException.class, () -> new LatencyHistogram().record(-1));
+    }
+}
@@ -0,0 +1,57 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.metrics.Timer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsTest {
+
+    @AfterEach
+    private void tearDownPerTest() {
+        Metrics.setEnabled(false);
+        Metrics.reset();
+    }
+
+    @Test
+    public void disabledMetricsRecordNothing() {
+        Metrics.setEnabled(false);
+        Timer timer = Metrics.timer("test_disabled_timer");
+        Counter counter = Metrics.counter("test_disabled_counter");
+
+        long start = timer.start();
+        timer.stop(start);
+        counter.increment();
+
+        assertEquals(0, start);
+        assertEquals(0, timer.getCount());
+        assertEquals(0, counter.getCount());
+    }
+
+    @Test
+    public void enabledMetricsAreExposedThroughJmxAndPrometheus() throws Exception {
+        Metrics.setEnabled(true);
+        Timer timer = Metrics.timer("test_enabled_timer");
+        Counter counter = Metrics.counter("test_enabled_counter");
+
+        timer.stop(timer.start());
+        counter.increment();
+        counter.increment();
+
+        assertSame(timer, Metrics.timer("test_enabled_timer"));
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        assertEquals(1L, server.getAttribute(new ObjectName("com.parkit.parkingsystem:type=Timer,name=test_enabled_timer"), "Count"));
+        assertEquals(2L, server.getAttribute(new ObjectName("com.parkit.parkingsystem:type=Counter,name=test_enabled_counter"), "Count"));
+        String text = Metrics.toPrometheus();
+        assertTrue(text.contains("# TYPE parkit_test_enabled_timer_seconds summary\n"));
+        assertTrue(text.contains("parkit_test_enabled_timer_seconds_count 1\n"));
+        assertTrue(text.contains("parkit_test_enabled_counter_total 2\n"));
+    }
+}
@@ -0,0 +1,102 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.cache.OccupancySnapshot;
+import com.parkit.parkingsystem.cache.ParkingSpotIndex;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OccupancySnapshotTest {
+
+    private Path snapshotFile;
+    private ParkingSpotIndex index;
+
+    @BeforeEach
+    private void setUpPerTest() throws Exception {
+        snapshotFile = Files.createTempFile("parkit-occupancy", ".snapshot");
+        index = new ParkingSpotIndex(5);
+        index.setAvailable(1, ParkingType.CAR, false);
+        index.setAvailable(2, ParkingType.CAR, true);
+        index.setAvailable(4, ParkingType.BIKE, true);
+    }
+
+    @AfterEach
+    private void tearDownPerTest() throws Exception {
+        Files.deleteIfExists(snapshotFile);
+    }
+
+    @Test
+    public void snapshotSurvivesReopening() throws Exception {
+        Ticket ticket = openTicket(1, "ABCDEF", 42);
+        try(OccupancySnapshot snapshot = OccupancySnapshot.open(snapshotFile)){
+            assertFalse(snapshot.isValid(OccupancySnapshot.SPOTS_VALID));
+            snapshot.writeSpots(index);
+            snapshot.writeOpenTickets(Collections.singletonList(ticket));
+        }
+
+        try(OccupancySnapshot snapshot = OccupancySnapshot.open(snapshotFile)){
+            assertTrue(snapshot.isValid(OccupancySnapshot.SPOTS_VALID | OccupancySnapshot.TICKETS_VALID));
+            ParkingSpotIndex restored = snapshot.toParkingSpotIndex();
+            assertEquals(2, restored.getLowestAvailable(ParkingType.CAR));
+            assertEquals(4, restored.getLowestAvailable(ParkingType.BIKE));
+            assertEquals(ParkingType.CAR, restored.getParkingType(1));
+            assertNull(restored.getParkingType(3));
+            List<Ticket> tickets = snapshot.getOpenTickets();
+            assertEquals(1, tickets.size());
+            assertEquals("ABCDEF", tickets.get(0).getVehicleRegNumber());
+            assertEquals(42, tickets.get(0).getId());
+            assertEquals(ticket.getInTime(), tickets.get(0).getInTime());
+            assertEquals(1, tickets.get(0).getParkingSpot().getId());
+            assertEquals(0, snapshot.findDifferences(index, Collections.singletonList(ticket)).length);
+        }
+    }
+
+    @Test
+    public void findDifferencesReportsSpotsAndTickets() throws Exception {
+        try(OccupancySnapshot snapshot = OccupancySnapshot.open(snapshotFile)){
+            snapshot.writeSpots(index);
+            snapshot.writeOpenTickets(Collections.singletonList(openTicket(1, "ABCDEF", 42)));
+            snapshot.setSpot(2, ParkingType.CAR, false);
+            snapshot.putOpenTicket(openTicket(2, "GHIJKL", 43));
+            snapshot.setSpot(4, ParkingType.BIKE, false);
+
+            //the data base only saw the first car
+            assertArrayEquals(new int[]{2, 4}, snapshot.findDifferences(index, Collections.singletonList(openTicket(1, "ABCDEF", 42))));
+            snapshot.removeOpenTicket(1);
+            assertArrayEquals(new int[]{1, 2, 4}, snapshot.findDifferences(index, Collections.singletonList(openTicket(1, "ABCDEF", 42))));
+        }
+    }
+
+    @Test
+    public void snapshotGrowsForLargeParkingNumbers() throws Exception {
+        try(OccupancySnapshot snapshot = OccupancySnapshot.open(snapshotFile)){
+            snapshot.setSpot(100000, ParkingType.BIKE, true);
+            snapshot.setValid(OccupancySnapshot.SPOTS_VALID, true);
+        }
+        try(OccupancySnapshot snapshot = OccupancySnapshot.open(snapshotFile)){
+            ParkingSpotIndex restored = snapshot.toParkingSpotIndex();
+            assertEquals(100000, restored.getLowestAvailable(ParkingType.BIKE));
+            assertEquals(0, restored.getLowestAvailable(ParkingType.CAR));
+        }
+    }
+
+    private static Ticket openTicket(int parkingNumber, String vehicleRegNumber, int id) {
+        Ticket ticket = new Ticket();
+        ticket.setId(id);
+        ticket.setParkingSpot(new ParkingSpot(parkingNumber, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(LocalDateTime.of(2020, 3, 1, 10, 30, 15));
+        return ticket;
+    }
+}
@@ -0,0 +1,150 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.api.ParkingHttpServer;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ParkingHttpServerTest {
+
+    @Mock
+    private ParkingService parkingService;
+
+    private ParkingHttpServer httpServer;
+
+    @BeforeEach
+    private void setUpPerTest() throws Exception {
+        httpServer = new ParkingHttpServer(parkingService, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                Executors.newFixedThreadPool(4));
+        httpServer.start();
+    }
+
+    @AfterEach
+    private void tearDownPerTest() {
+        httpServer.stop();
+    }
+
+    private String[] call(String method, String path) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + httpServer.getPort() + path).openConnection();
+        connection.setRequestMethod(method);
+        int status = connection.getResponseCode();
+        InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while((read = in.read(buffer)) != -1){
+            body.write(buffer, 0, read);
+        }
+        in.close();
+        return new String[]{String.valueOf(status), body.toString(StandardCharsets.UTF_8.name())};
+    }
+
+    private Ticket newTicket(){
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(3, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber("AB-123");
+        ticket.setInTime(LocalDateTime.of(2020, 1, 1, 10, 0));
+        return ticket;
+    }
+
+    @Test
+    public void entryReturnsTicket() throws Exception {
+        when(parkingService.parkVehicle(ParkingType.CAR, "AB-123")).thenReturn(newTicket());
+
+        String[] response = call("POST", "/entry?type=car&vehicle=AB-123");
+
+        assertEquals("201", response[0]);
+        assertTrue(response[1].contains("\"parkingNumber\":3"));
+        assertTrue(response[1].contains("\"inTime\":\"2020-01-01T10:00\""));
+    }
+
+    @Test
+    public void entryWithoutFreeSpotIsConflict() throws Exception {
+        when(parkingService.parkVehicle(ParkingType.BIKE, "AB-123")).thenReturn(null);
+
+        assertEquals("409", call("POST", "/entry?type=BIKE&vehicle=AB-123")[0]);
+        assertEquals("400", call("POST", "/entry?type=TRUCK&vehicle=AB-123")[0]);
+        assertEquals("405", call("GET", "/entry?type=BIKE&vehicle=AB-123")[0]);
+    }
+
+    @Test
+    public void invalidVehicleIsBadRequest() throws Exception {
+        assertEquals("400", call("POST", "/entry?type=CAR&vehicle=")[0]);
+        assertEquals("400", call("POST", "/entry?type=CAR&vehicle=%20%20")[0]);
+        assertEquals("400", call("POST", "/entry?type=CAR&vehicle=AB-123-CD-456")[0]);
+        assertEquals("400", call("POST", "/exit?vehicle=")[0]);
+        assertEquals("400", call("GET", "/quote")[0]);
+    }
+
+    @Test
+    public void exitWithoutOpenTicketIsConflict() throws Exception {
+        when(parkingService.exitVehicle("AB-123")).thenReturn(null);
+
+        String[] response = call("POST", "/exit?vehicle=%20AB-123");
+
+        assertEquals("409", response[0]);
+        assertTrue(response[1].contains("No open ticket for AB-123"));
+    }
+
+    @Test
+    public void dataBaseFailureIsServiceUnavailable() throws Exception {
+        when(parkingService.parkVehicle(ParkingType.CAR, "AB-123")).thenThrow(new SQLException("Connection pool exhausted"));
+        when(parkingService.exitVehicle("AB-123")).thenThrow(new SQLException("Connection pool exhausted"));
+
+        assertEquals("503", call("POST", "/entry?type=CAR&vehicle=AB-123")[0]);
+        assertEquals("503", call("POST", "/exit?vehicle=AB-123")[0]);
+    }
+
+    @Test
+    public void quoteAndExitReturnPrice() throws Exception {
+        Ticket ticket = newTicket();
+        ticket.setOutTime(LocalDateTime.of(2020, 1, 1, 11, 0));
+        ticket.setPrice(1.5);
+        when(parkingService.quoteFare("AB-123")).thenReturn(ticket);
+        when(parkingService.exitVehicle("AB-123")).thenReturn(ticket);
+
+        String[] quote = call("GET", "/quote?vehicle=AB-123");
+        String[] exit = call("POST", "/exit?vehicle=AB-123");
+
+        assertEquals("200", quote[0]);
+        assertTrue(quote[1].contains("\"price\":1.5"));
+        assertEquals("200", exit[0]);
+        assertTrue(exit[1].contains("\"outTime\":\"2020-01-01T11:00\""));
+    }
+
+    @Test
+    public void availabilityAndMetrics() throws Exception {
+        doReturn(2).when(parkingService).getAvailableSpotCount(ParkingType.CAR);
+        doReturn(0).when(parkingService).getAvailableSpotCount(ParkingType.BIKE);
+
+        String[] availability = call("GET", "/availability");
+        String[] metrics = call("GET", "/metrics");
+
+        assertEquals("{\"CAR\":2,\"BIKE\":0}", availability[1]);
+        assertTrue(metrics[1].contains("\"/availability\":{\"count\":1,"));
+        assertTrue(metrics[1].contains("\"p99\":"));
+    }
+}
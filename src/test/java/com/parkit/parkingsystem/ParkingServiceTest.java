@@ -46,7 +46,7 @@ public class ParkingServiceTest {
     public void processExitingVehicleTest() throws Exception {
             when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
             when(ticketDAO.getNbTicket("ABCDEF")).thenReturn(1);
-            when(ticketDAO.getTicket(anyString())).thenReturn(ticket);
+            when(ticketDAO.findTicket(anyString())).thenReturn(ticket);
             when(ticketDAO.updateTicket(any(Ticket.class))).thenReturn(true);
             when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(true);
             parkingService.processExitingVehicle();
@@ -58,7 +58,7 @@ public class ParkingServiceTest {
     public void processExitingVehicleDiscountTest() throws Exception {
             when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
             when(ticketDAO.getNbTicket("ABCDEF")).thenReturn(2);
-            when(ticketDAO.getTicket(anyString())).thenReturn(ticket);
+            when(ticketDAO.findTicket(anyString())).thenReturn(ticket);
             when(ticketDAO.updateTicket(any(Ticket.class))).thenReturn(true);
             when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(true);
 
@@ -73,18 +73,31 @@ public class ParkingServiceTest {
     public void processExitingVehicleUnableUpdateTest() throws Exception {
             when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
             when(ticketDAO.updateTicket(any(Ticket.class))).thenReturn(false);
-            when(ticketDAO.getTicket(anyString())).thenReturn(ticket);
+            when(ticketDAO.findTicket(anyString())).thenReturn(ticket);
             parkingService.processExitingVehicle();
 
             verify(parkingSpotDAO, Mockito.times(0)).updateParking(any(ParkingSpot.class));
     }
 
+    @Test
+    public void exitVehicleWithoutOpenTicketTest() throws Exception {
+            when(ticketDAO.findTicket("UNKNOWN")).thenReturn(null);
+            assertNull(parkingService.exitVehicle("UNKNOWN"));
+
+            ticket.setOutTime(LocalDateTime.now());
+            when(ticketDAO.findTicket("ABCDEF")).thenReturn(ticket);
+            assertNull(parkingService.exitVehicle("ABCDEF"));
+
+            verify(ticketDAO, Mockito.never()).updateTicket(any(Ticket.class));
+            verify(parkingSpotDAO, Mockito.never()).updateParking(any(ParkingSpot.class));
+    }
+
     @Test
     public void processIncomingVehicleTest() throws Exception {
             when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
             when(inputReaderUtil.readSelection()).thenReturn(1);
             when(parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR)).thenReturn(1);
-            when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(true);
+            when(parkingSpotDAO.allocateParkingSpot(ParkingType.CAR)).thenReturn(new ParkingSpot(1, ParkingType.CAR, false));
             when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
             when(ticketDAO.getNbTicket(anyString())).thenReturn(0);
             parkingService.processIncomingVehicle();
@@ -92,12 +105,23 @@ public class ParkingServiceTest {
             verify(ticketDAO, Mockito.times(1)).saveTicket(any(Ticket.class));
     }
 
+    @Test
+    public void processIncomingVehicleSpotTakenByAnotherGateTest() throws Exception {
+            when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
+            when(inputReaderUtil.readSelection()).thenReturn(1);
+            when(parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR)).thenReturn(1);
+            when(parkingSpotDAO.allocateParkingSpot(ParkingType.CAR)).thenReturn(null);
+            parkingService.processIncomingVehicle();
+
+            verify(ticketDAO, Mockito.never()).saveTicket(any(Ticket.class));
+    }
+
     @Test
     public void processIncomingBikeForTheSecondTimeTest() throws Exception {
             when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
             when(inputReaderUtil.readSelection()).thenReturn(2);
             when(parkingSpotDAO.getNextAvailableSlot(ParkingType.BIKE)).thenReturn(1);
-            when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(true);
+            when(parkingSpotDAO.allocateParkingSpot(ParkingType.BIKE)).thenReturn(new ParkingSpot(1, ParkingType.BIKE, false));
             when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
             when(ticketDAO.getNbTicket(anyString())).thenReturn(2);
             parkingService.processIncomingVehicle();
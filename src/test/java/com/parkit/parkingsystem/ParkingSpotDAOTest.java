@@ -0,0 +1,144 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.TransactionManager;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParkingSpotDAOTest {
+
+    private static final int NB_SPOTS = 200;
+
+    private DataBaseConfig dataBaseConfig;
+    private ParkingSpotDAO parkingSpotDAO;
+
+    @BeforeEach
+    private void setUpPerTest() throws Exception {
+        dataBaseConfig = DataBaseTestConfig.memoryDataBase("parking-spot-dao", 16);
+        execute("delete from ticket", "delete from parking");
+        try(Connection con = dataBaseConfig.getConnection(); Statement statement = con.createStatement()){
+            for(int number = 1; number <= NB_SPOTS; number++){
+                statement.addBatch("insert into parking values(" + number + ",true,'CAR')");
+            }
+            statement.executeBatch();
+        }
+        parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        assertTrue(parkingSpotDAO.loadParkingSpotIndex());
+    }
+
+    @AfterEach
+    private void tearDownPerTest() {
+        DataBaseConfig.closeConnectionPools();
+    }
+
+    @Test
+    public void spotAddedAfterTheIndexWasLoadedIsUpdatedBySql() throws Exception {
+        execute("insert into parking values(" + (NB_SPOTS + 1) + ",true,'CAR')");
+        ParkingSpot parkingSpot = new ParkingSpot(NB_SPOTS + 1, ParkingType.CAR, false);
+
+        assertTrue(parkingSpotDAO.updateParking(parkingSpot));
+        assertFalse(parkingSpotDAO.updateParking(parkingSpot));
+        assertEquals(1, count("select count(*) from parking where AVAILABLE = false"));
+        parkingSpot.setAvailable(true);
+        assertTrue(parkingSpotDAO.updateParking(parkingSpot));
+        assertEquals(NB_SPOTS, parkingSpotDAO.getParkingSpotIndex().countAvailable(ParkingType.CAR));
+    }
+
+    @Test
+    public void concurrentAllocationsWithRollbacksKeepIndexAndTableInStep() throws Exception {
+        int nbThreads = 8;
+        AtomicIntegerArray owners = new AtomicIntegerArray(NB_SPOTS + 1);
+        AtomicInteger doubleAllocations = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+        List<Future<?>> futures = new ArrayList<>();
+        for(int t = 1; t <= nbThreads; t++){
+            int gate = t;
+            futures.add(executor.submit(() -> {
+                TransactionManager transactionManager = new TransactionManager();
+                start.await();
+                for(int round = 0; round < 200; round++){
+                    transactionManager.begin();
+                    ParkingSpot parkingSpot = parkingSpotDAO.allocateParkingSpot(ParkingType.CAR);
+                    if(parkingSpot == null){
+                        transactionManager.rollback();
+                        continue;
+                    }
+                    int number = parkingSpot.getId();
+                    if(!owners.compareAndSet(number, 0, gate)){
+                        doubleAllocations.incrementAndGet();
+                    }
+                    int outcome = ThreadLocalRandom.current().nextInt(3);
+                    if(outcome == 0){
+                        //the entry failed after the claim: the spot goes back to the index and the table
+                        owners.set(number, 0);
+                        transactionManager.rollback();
+                    }else{
+                        transactionManager.commit();
+                        if(outcome == 1){
+                            owners.set(number, 0);
+                            parkingSpot.setAvailable(true);
+                            assertTrue(parkingSpotDAO.updateParking(parkingSpot));
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for(Future<?> future : futures){
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(0, doubleAllocations.get());
+        int held = 0;
+        for(int number = 1; number <= NB_SPOTS; number++){
+            boolean taken = owners.get(number) != 0;
+            if(taken){
+                held++;
+            }
+            assertEquals(!taken, parkingSpotDAO.getParkingSpotIndex().isAvailable(number, ParkingType.CAR), "spot " + number);
+        }
+        assertEquals(held, count("select count(*) from parking where AVAILABLE = false"));
+        assertEquals(NB_SPOTS - held, parkingSpotDAO.getParkingSpotIndex().countAvailable(ParkingType.CAR));
+    }
+
+    private void execute(String... statements) throws Exception {
+        try(Connection con = dataBaseConfig.getConnection(); Statement statement = con.createStatement()){
+            for(String sql : statements){
+                statement.execute(sql);
+            }
+        }
+    }
+
+    private int count(String sql) throws Exception {
+        try(Connection con = dataBaseConfig.getConnection(); Statement statement = con.createStatement();
+            ResultSet rs = statement.executeQuery(sql)){
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
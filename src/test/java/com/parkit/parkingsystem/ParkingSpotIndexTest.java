@@ -0,0 +1,165 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.cache.ParkingSpotIndex;
+import com.parkit.parkingsystem.constants.ParkingType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParkingSpotIndexTest {
+
+    private ParkingSpotIndex parkingSpotIndex;
+
+    @BeforeEach
+    public void setUpPerTest() {
+        parkingSpotIndex = new ParkingSpotIndex(100000);
+        parkingSpotIndex.setAvailable(1, ParkingType.CAR, true);
+        parkingSpotIndex.setAvailable(2, ParkingType.CAR, true);
+        parkingSpotIndex.setAvailable(3, ParkingType.CAR, true);
+        parkingSpotIndex.setAvailable(4, ParkingType.BIKE, true);
+        parkingSpotIndex.setAvailable(5, ParkingType.BIKE, true);
+    }
+
+    @Test
+    public void getLowestAvailableByType() {
+        assertEquals(1, parkingSpotIndex.getLowestAvailable(ParkingType.CAR));
+        assertEquals(4, parkingSpotIndex.getLowestAvailable(ParkingType.BIKE));
+    }
+
+    @Test
+    public void getLowestAvailableAfterSpotTaken() {
+        parkingSpotIndex.setAvailable(1, ParkingType.CAR, false);
+        assertEquals(2, parkingSpotIndex.getLowestAvailable(ParkingType.CAR));
+
+        parkingSpotIndex.setAvailable(1, ParkingType.CAR, true);
+        assertEquals(1, parkingSpotIndex.getLowestAvailable(ParkingType.CAR));
+    }
+
+    @Test
+    public void getParkingTypeByNumber() {
+        parkingSpotIndex.setAvailable(2, ParkingType.CAR, false);
+
+        assertEquals(ParkingType.CAR, parkingSpotIndex.getParkingType(2));
+        assertFalse(parkingSpotIndex.isAvailable(2, ParkingType.CAR));
+        assertEquals(ParkingType.BIKE, parkingSpotIndex.getParkingType(5));
+        assertTrue(parkingSpotIndex.isAvailable(5, ParkingType.BIKE));
+        assertNull(parkingSpotIndex.getParkingType(6));
+        assertFalse(parkingSpotIndex.contains(6));
+        assertNull(parkingSpotIndex.getParkingType(200000));
+        assertFalse(parkingSpotIndex.isAvailable(200000, ParkingType.CAR));
+    }
+
+    @Test
+    public void getLowestAvailableWhenFull() {
+        parkingSpotIndex.setAvailable(4, ParkingType.BIKE, false);
+        parkingSpotIndex.setAvailable(5, ParkingType.BIKE, false);
+        assertEquals(0, parkingSpotIndex.getLowestAvailable(ParkingType.BIKE));
+    }
+
+    @Test
+    public void getLowestAvailableAcrossSummaryWords() {
+        parkingSpotIndex.setAvailable(1, ParkingType.CAR, false);
+        parkingSpotIndex.setAvailable(2, ParkingType.CAR, false);
+        parkingSpotIndex.setAvailable(3, ParkingType.CAR, false);
+        parkingSpotIndex.setAvailable(70000, ParkingType.CAR, true);
+        parkingSpotIndex.setAvailable(5000, ParkingType.CAR, true);
+        assertEquals(5000, parkingSpotIndex.getLowestAvailable(ParkingType.CAR));
+    }
+
+    @Test
+    public void claimIsExclusive() {
+        assertTrue(parkingSpotIndex.claim(2, ParkingType.CAR));
+        assertFalse(parkingSpotIndex.claim(2, ParkingType.CAR));
+        assertEquals(1, parkingSpotIndex.claimLowestAvailable(ParkingType.CAR));
+        assertEquals(3, parkingSpotIndex.claimLowestAvailable(ParkingType.CAR));
+        assertEquals(0, parkingSpotIndex.claimLowestAvailable(ParkingType.CAR));
+
+        parkingSpotIndex.release(2, ParkingType.CAR);
+        assertEquals(2, parkingSpotIndex.claimLowestAvailable(ParkingType.CAR));
+    }
+
+    @Test
+    public void countAvailableFollowsChanges() {
+        assertEquals(3, parkingSpotIndex.countAvailable(ParkingType.CAR));
+        assertEquals(2, parkingSpotIndex.countAvailable(ParkingType.BIKE));
+
+        parkingSpotIndex.claimLowestAvailable(ParkingType.CAR);
+        parkingSpotIndex.claim(3, ParkingType.CAR);
+        parkingSpotIndex.claim(3, ParkingType.CAR);
+        parkingSpotIndex.release(4, ParkingType.BIKE);
+        assertEquals(1, parkingSpotIndex.countAvailable(ParkingType.CAR));
+        assertEquals(2, parkingSpotIndex.countAvailable(ParkingType.BIKE));
+
+        parkingSpotIndex.setAvailable(3, ParkingType.CAR, true);
+        assertEquals(2, parkingSpotIndex.countAvailable(ParkingType.CAR));
+    }
+
+    @Test
+    public void concurrentClaimsNeverAllocateASpotTwice() throws Exception {
+        int nbSpots = 20000;
+        int nbThreads = 32;
+        ParkingSpotIndex index = new ParkingSpotIndex(nbSpots);
+        for(int number = 1; number <= nbSpots; number++){
+            index.release(number, ParkingType.CAR);
+        }
+        AtomicIntegerArray owners = new AtomicIntegerArray(nbSpots + 1);
+        AtomicInteger doubleAllocations = new AtomicInteger();
+        AtomicInteger claimed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+        List<Future<?>> futures = new ArrayList<>();
+        for(int t = 1; t <= nbThreads; t++){
+            int gate = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                //churn: claim and hand back spots, then keep the last round of claims
+                for(int round = 0; round < 2000; round++){
+                    int number = index.claimLowestAvailable(ParkingType.CAR);
+                    if(number == 0){
+                        break;
+                    }
+                    if(!owners.compareAndSet(number, 0, gate)){
+                        doubleAllocations.incrementAndGet();
+                    }
+                    if(round % 2 == 0){
+                        owners.set(number, 0);
+                        index.release(number, ParkingType.CAR);
+                    }
+                }
+                int number;
+                while((number = index.claimLowestAvailable(ParkingType.CAR)) > 0){
+                    if(!owners.compareAndSet(number, 0, gate)){
+                        doubleAllocations.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for(Future<?> future : futures){
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        for(int number = 1; number <= nbSpots; number++){
+            if(owners.get(number) != 0){
+                claimed.incrementAndGet();
+            }
+        }
+        assertEquals(0, doubleAllocations.get());
+        assertEquals(nbSpots, claimed.get());
+        assertEquals(0, index.getLowestAvailable(ParkingType.CAR));
+        assertEquals(0, index.countAvailable(ParkingType.CAR));
+    }
+}
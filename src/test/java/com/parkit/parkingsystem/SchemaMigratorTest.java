@@ -0,0 +1,129 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.ConnectionPool;
+import com.parkit.parkingsystem.config.ConnectionPoolConfig;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SchemaMigratorTest {
+
+    private ConnectionPool pool;
+    private SchemaMigrator schemaMigrator;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        ConnectionPoolConfig config = new ConnectionPoolConfig();
+        config.setDriverClassName("org.h2.Driver");
+        config.setUrl("jdbc:h2:mem:schema-migrator;MODE=MySQL");
+        config.setUser("sa");
+        config.setPassword("");
+        config.setMinSize(1);
+        config.setMaxSize(1);
+        pool = new ConnectionPool(config);
+        schemaMigrator = new SchemaMigrator(pool);
+    }
+
+    @AfterEach
+    private void tearDownPerTest() {
+        pool.close();
+    }
+
+    @Test
+    public void migrateAppliesEachScriptOnce() throws Exception {
+        assertEquals(SchemaMigrator.getLatestVersion(), schemaMigrator.migrate());
+        assertEquals(0, schemaMigrator.migrate());
+        assertEquals(SchemaMigrator.getLatestVersion(), schemaMigrator.getCurrentVersion());
+    }
+
+    @Test
+    public void migrateUpgradesFromAnOlderVersion() throws Exception {
+        assertEquals(1, schemaMigrator.migrate(1));
+        assertFalse(explain("select min(PARKING_NUMBER) from parking where AVAILABLE = true and TYPE = 'CAR'")
+                .contains("PARKING_TYPE_AVAILABLE"));
+
+        assertEquals(SchemaMigrator.getLatestVersion() - 1, schemaMigrator.migrate());
+        assertTrue(explain("select min(PARKING_NUMBER) from parking where AVAILABLE = true and TYPE = 'CAR'")
+                .contains("PARKING_TYPE_AVAILABLE"));
+        assertTrue(explain("select ID from ticket where VEHICLE_REG_NUMBER = 'ABCDEF' order by IN_TIME desc limit 1")
+                .contains("TICKET_VEHICLE_IN_TIME"));
+    }
+
+    @Test
+    public void migrateBackfillsVisitCounts() throws Exception {
+        schemaMigrator.migrate(SchemaMigrator.getLatestVersion() - 1);
+        try(Connection con = pool.getConnection(); Statement statement = con.createStatement()){
+            statement.execute("insert into parking values(1,true,'CAR')");
+            statement.execute("insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values"
+                    + "(1,'ABC',1.5,'2020-01-01 10:00:00','2020-01-01 11:00:00'),(1,'ABC',0,'2020-01-02 10:00:00',null),"
+                    + "(1,'XYZ',0,'2020-01-03 10:00:00',null)");
+            statement.execute("insert into ticket_archive values(9,1,'ABC',1.5,'2019-01-01 10:00:00','2019-01-01 11:00:00')");
+            //XYZ counted too low, OLD with visits of history no longer in the tables
+            statement.execute("insert into vehicle_visit values('XYZ',0),('OLD',4)");
+        }
+
+        assertEquals(1, schemaMigrator.migrate());
+        assertEquals(3, visitCount("ABC"));
+        assertEquals(1, visitCount("XYZ"));
+        assertEquals(4, visitCount("OLD"));
+    }
+
+    @Test
+    public void failedMigrationLeavesNoPoolBehind() throws Exception {
+        boolean[] failing = {true};
+        DataBaseConfig dataBaseConfig = new DataBaseConfig() {
+            @Override
+            protected ConnectionPoolConfig getConnectionPoolConfig() {
+                ConnectionPoolConfig config = new ConnectionPoolConfig();
+                config.setDriverClassName("org.h2.Driver");
+                config.setUrl("jdbc:h2:mem:failed-migration;MODE=MySQL;DB_CLOSE_DELAY=-1");
+                config.setUser("sa");
+                config.setPassword("");
+                return config;
+            }
+
+            @Override
+            protected void migrateSchema(ConnectionPool pool) throws SQLException {
+                if(failing[0]){
+                    throw new SQLException("migration failed");
+                }
+                super.migrateSchema(pool);
+            }
+        };
+        try {
+            assertThrows(SQLException.class, dataBaseConfig::getConnection);
+
+            failing[0] = false;
+            Connection con = dataBaseConfig.getConnection();
+            dataBaseConfig.closeConnection(con);
+            assertEquals(SchemaMigrator.getLatestVersion(), new SchemaMigrator(dataBaseConfig.getConnectionPool()).getCurrentVersion());
+        } finally {
+            DataBaseConfig.closeConnectionPools();
+        }
+    }
+
+    private int visitCount(String vehicleRegNumber) throws Exception {
+        try(Connection con = pool.getConnection(); Statement statement = con.createStatement();
+            ResultSet rs = statement.executeQuery("select NB_TICKET from vehicle_visit where VEHICLE_REG_NUMBER = '" + vehicleRegNumber + "'")){
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private String explain(String sql) throws Exception {
+        try(Connection con = pool.getConnection(); Statement statement = con.createStatement();
+            ResultSet rs = statement.executeQuery("explain " + sql)){
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+}
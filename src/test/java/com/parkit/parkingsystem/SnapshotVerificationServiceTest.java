@@ -0,0 +1,139 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.cache.OccupancySnapshot;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.TransactionManager;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.service.SnapshotVerificationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnapshotVerificationServiceTest {
+
+    private DataBaseConfig dataBaseConfig;
+    private Path snapshotFile;
+    private OccupancySnapshot snapshot;
+    private ParkingSpotDAO parkingSpotDAO;
+    private TicketDAO ticketDAO;
+
+    @BeforeEach
+    private void setUpPerTest() throws Exception {
+        dataBaseConfig = DataBaseTestConfig.memoryDataBase("snapshot-verification");
+        try(Connection con = dataBaseConfig.getConnection(); Statement statement = con.createStatement()){
+            statement.execute("delete from ticket");
+            statement.execute("delete from vehicle_visit");
+            statement.execute("update parking set available = true");
+        }
+        snapshotFile = Files.createTempFile("parkit-occupancy", ".snapshot");
+        snapshot = OccupancySnapshot.open(snapshotFile);
+        createDAOs();
+        parkingSpotDAO.loadParkingSpotIndex();
+        ticketDAO.loadActiveTicketCache(100);
+    }
+
+    @AfterEach
+    private void tearDownPerTest() throws Exception {
+        DataBaseConfig.closeConnectionPools();
+        snapshot.close();
+        Files.deleteIfExists(snapshotFile);
+    }
+
+    @Test
+    public void restartRestoresStateFromSnapshot() throws Exception {
+        ParkingService parkingService = new ParkingService(null, parkingSpotDAO, ticketDAO);
+        Ticket ticket = parkingService.parkVehicle(ParkingType.CAR, "ABCDEF");
+        assertNotNull(ticket);
+
+        createDAOs();
+        assertTrue(parkingSpotDAO.restoreParkingSpotIndex());
+        assertTrue(ticketDAO.restoreActiveTicketCache(100));
+
+        assertEquals(2, parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR));
+        assertEquals(ticket.getId(), ticketDAO.getActiveTicketCache().get("ABCDEF").getId());
+        assertTrue(new SnapshotVerificationService(parkingSpotDAO, ticketDAO, 100).verify());
+    }
+
+    @Test
+    public void verifyReloadsWhenTheDataBaseDisagreesTwice() throws Exception {
+        //a spot taken behind the app's back
+        try(Connection con = dataBaseConfig.getConnection(); Statement statement = con.createStatement()){
+            statement.execute("update parking set available = false where PARKING_NUMBER = 1");
+        }
+        SnapshotVerificationService verificationService = new SnapshotVerificationService(parkingSpotDAO, ticketDAO, 100);
+
+        assertFalse(verificationService.verify());
+        assertEquals(1, parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR));
+        assertFalse(verificationService.verify());
+        assertEquals(2, parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR));
+        assertTrue(verificationService.verify());
+    }
+
+    @Test
+    public void rolledBackChangesNeverReachTheSnapshot() throws Exception {
+        ParkingService parkingService = new ParkingService(null, parkingSpotDAO, ticketDAO);
+        Ticket ticket = parkingService.parkVehicle(ParkingType.CAR, "ABCDEF");
+        TransactionManager transactionManager = new TransactionManager();
+
+        //a claim and an exit, both rolled back
+        transactionManager.begin();
+        try {
+            assertEquals(2, parkingSpotDAO.allocateParkingSpot(ParkingType.CAR).getId());
+        } finally {
+            transactionManager.rollback();
+        }
+        assertTrue(snapshot.toParkingSpotIndex().isAvailable(2, ParkingType.CAR));
+        Ticket exit = ticketDAO.getTicket("ABCDEF");
+        exit.setOutTime(LocalDateTime.now());
+        ParkingSpot released = exit.getParkingSpot();
+        released.setAvailable(true);
+        transactionManager.begin();
+        try {
+            assertTrue(ticketDAO.updateTicket(exit));
+            assertTrue(parkingSpotDAO.updateParking(released));
+            //nothing is written before the commit
+            assertEquals(1, snapshot.getOpenTickets().size());
+            assertFalse(snapshot.toParkingSpotIndex().isAvailable(1, ParkingType.CAR));
+        } finally {
+            transactionManager.rollback();
+        }
+
+        assertEquals(ticket.getId(), ticketDAO.getActiveTicketCache().get("ABCDEF").getId());
+        assertEquals(1, snapshot.getOpenTickets().size());
+        assertFalse(snapshot.toParkingSpotIndex().isAvailable(1, ParkingType.CAR));
+        assertTrue(new SnapshotVerificationService(parkingSpotDAO, ticketDAO, 100).verify());
+
+        //the same exit, committed this time
+        transactionManager.begin();
+        assertTrue(ticketDAO.updateTicket(exit));
+        assertTrue(parkingSpotDAO.updateParking(released));
+        transactionManager.commit();
+
+        assertNull(ticketDAO.getActiveTicketCache().get("ABCDEF"));
+        assertTrue(snapshot.getOpenTickets().isEmpty());
+        assertTrue(snapshot.toParkingSpotIndex().isAvailable(1, ParkingType.CAR));
+    }
+
+    private void createDAOs() {
+        parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        parkingSpotDAO.setOccupancySnapshot(snapshot);
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO.setOccupancySnapshot(snapshot);
+    }
+}
@@ -0,0 +1,148 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.ConnectionPool;
+import com.parkit.parkingsystem.config.ConnectionPoolConfig;
+import com.parkit.parkingsystem.config.ConnectionPoolStats;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StatementCacheTest {
+
+    private ConnectionPool pool;
+    private ParkingSpotDAO parkingSpotDAO;
+    private TicketDAO ticketDAO;
+
+    @BeforeEach
+    private void setUpPerTest() throws Exception {
+        DataBaseConfig dataBaseConfig = new DataBaseConfig() {
+            @Override
+            protected ConnectionPoolConfig getConnectionPoolConfig() {
+                ConnectionPoolConfig config = new ConnectionPoolConfig();
+                config.setDriverClassName("org.h2.Driver");
+                config.setUrl("jdbc:h2:mem:statement-cache;MODE=MySQL;DB_CLOSE_DELAY=-1");
+                config.setUser("sa");
+                config.setPassword("");
+                config.setMinSize(0);
+                config.setMaxSize(2);
+                config.setStatementCacheSize(8);
+                return config;
+            }
+        };
+        pool = dataBaseConfig.getConnectionPool();
+        try(Connection con = dataBaseConfig.getConnection(); Statement statement = con.createStatement()){
+            statement.execute("drop all objects");
+            statement.execute("create table parking(PARKING_NUMBER int PRIMARY KEY, AVAILABLE bool NOT NULL, TYPE varchar(10) NOT NULL)");
+            statement.execute("create table vehicle_visit(VEHICLE_REG_NUMBER varchar(10) PRIMARY KEY, NB_TICKET int NOT NULL)");
+            statement.execute("insert into parking values(1,true,'CAR'),(2,true,'CAR'),(3,true,'BIKE')");
+            statement.execute("insert into vehicle_visit values('ABCDEF',3)");
+        }
+        parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+    }
+
+    @AfterEach
+    private void tearDownPerTest() {
+        DataBaseConfig.closeConnectionPools();
+    }
+
+    @Test
+    public void repeatedDaoCallsReuseTheSameStatements() {
+        ConnectionPoolStats before = pool.getStats();
+        int nbOperations = 0;
+        for(int i = 0; i < 25000; i++){
+            int parkingNumber = parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR);
+            ParkingSpot parkingSpot = new ParkingSpot(parkingNumber, ParkingType.CAR, false);
+            assertTrue(parkingSpotDAO.updateParking(parkingSpot));
+            parkingSpot.setAvailable(true);
+            assertTrue(parkingSpotDAO.updateParking(parkingSpot));
+            assertEquals(3, ticketDAO.getNbTicket("ABCDEF"));
+            nbOperations += 4;
+        }
+        ConnectionPoolStats after = pool.getStats();
+
+        //four distinct queries on at most two connections
+        long prepared = after.getPreparedStatementCount() - before.getPreparedStatementCount();
+        assertTrue(prepared <= 8, "prepared " + prepared + " statements");
+        assertEquals(nbOperations, prepared + after.getStatementCacheHitCount() - before.getStatementCacheHitCount());
+        assertTrue(after.getCachedStatements() <= 8);
+    }
+
+    @Test
+    public void statementsLeftOpenAreReclaimedWithTheConnection() throws Exception {
+        long hits = pool.getStats().getStatementCacheHitCount();
+        Connection con = pool.getConnection();
+        PreparedStatement ps = con.prepareStatement("select count(*) from parking");
+        ResultSet rs = ps.executeQuery();
+        con.close();
+
+        assertTrue(ps.isClosed());
+        assertTrue(rs.isClosed());
+        assertThrows(SQLException.class, ps::executeQuery);
+        try(Connection reused = pool.getConnection();
+            PreparedStatement again = reused.prepareStatement("select count(*) from parking");
+            ResultSet count = again.executeQuery()){
+            assertTrue(count.next());
+            assertEquals(3, count.getInt(1));
+        }
+        assertEquals(hits + 1, pool.getStats().getStatementCacheHitCount());
+    }
+
+    @Test
+    public void settingsOfOneBorrowerAreResetForTheNext() throws Exception {
+        try(Connection con = pool.getConnection()){
+            int fetchSize;
+            int maxRows;
+            int queryTimeout;
+            try(PreparedStatement ps = con.prepareStatement("select PARKING_NUMBER from parking")){
+                fetchSize = ps.getFetchSize();
+                maxRows = ps.getMaxRows();
+                queryTimeout = ps.getQueryTimeout();
+                ps.setFetchSize(fetchSize + 7);
+                ps.setMaxRows(1);
+                ps.setQueryTimeout(queryTimeout + 5);
+            }
+            long hits = pool.getStats().getStatementCacheHitCount();
+            try(PreparedStatement ps = con.prepareStatement("select PARKING_NUMBER from parking")){
+                assertEquals(hits + 1, pool.getStats().getStatementCacheHitCount());
+                assertEquals(fetchSize, ps.getFetchSize());
+                assertEquals(maxRows, ps.getMaxRows());
+                assertEquals(queryTimeout, ps.getQueryTimeout());
+                int nbRows = 0;
+                try(ResultSet rs = ps.executeQuery()){
+                    while(rs.next()){
+                        nbRows++;
+                    }
+                }
+                assertEquals(3, nbRows);
+            }
+        }
+    }
+
+    @Test
+    public void cacheEvictsTheLeastRecentlyUsedStatement() throws Exception {
+        try(Connection con = pool.getConnection()){
+            for(int i = 0; i < 20; i++){
+                try(PreparedStatement ps = con.prepareStatement("select " + i + " from parking")){
+                    ps.executeQuery().close();
+                }
+            }
+        }
+        assertTrue(pool.getStats().getCachedStatements() <= 8);
+    }
+}
@@ -0,0 +1,73 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.StorageBackend;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StorageBackendTest {
+
+    private Path dataDirectory;
+
+    @BeforeEach
+    private void setUpPerTest() throws Exception {
+        dataDirectory = Files.createTempDirectory("parkit-embedded");
+        System.setProperty("parkit.db.embedded.dir", dataDirectory.toString());
+    }
+
+    @AfterEach
+    private void tearDownPerTest() {
+        DataBaseConfig.closeConnectionPools();
+        System.clearProperty("parkit.db.embedded.dir");
+        File[] files = dataDirectory.toFile().listFiles();
+        if(files != null){
+            for(File file : files){
+                file.delete();
+            }
+        }
+        dataDirectory.toFile().delete();
+    }
+
+    @Test
+    public void embeddedBackendKeepsItsDataAcrossRestarts() {
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = new EmbeddedDataBaseConfig();
+        assertEquals(3, parkingSpotDAO.countAvailableSpots(ParkingType.CAR));
+        assertEquals(2, parkingSpotDAO.countAvailableSpots(ParkingType.BIKE));
+        assertTrue(parkingSpotDAO.updateParking(new ParkingSpot(1, ParkingType.CAR, false)));
+
+        DataBaseConfig.closeConnectionPools();
+        parkingSpotDAO.dataBaseConfig = new EmbeddedDataBaseConfig();
+
+        assertEquals(2, parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR));
+        assertEquals(2, parkingSpotDAO.countAvailableSpots(ParkingType.CAR));
+    }
+
+    @Test
+    public void backendIsReadFromSystemProperty() {
+        assertEquals(StorageBackend.MYSQL, StorageBackend.fromSystemProperty("parkit.test.unset", StorageBackend.MYSQL));
+        System.setProperty("parkit.test.backend", "embedded");
+        try {
+            assertEquals(StorageBackend.EMBEDDED, StorageBackend.fromSystemProperty("parkit.test.backend", StorageBackend.MYSQL));
+        } finally {
+            System.clearProperty("parkit.test.backend");
+        }
+    }
+
+    private static class EmbeddedDataBaseConfig extends DataBaseConfig {
+        @Override
+        public StorageBackend getStorageBackend() {
+            return StorageBackend.EMBEDDED;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.cache.TicketStatistics;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketAnalyticsDAO;
+import com.parkit.parkingsystem.dao.TicketArchiveDAO;
+import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
+import com.parkit.parkingsystem.model.DailyParkingStats;
+import com.parkit.parkingsystem.service.TicketAnalyticsService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TicketAnalyticsServiceTest {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2020, 3, 1);
+    private static final LocalDate SECOND_DAY = LocalDate.of(2020, 3, 2);
+
+    private DataBaseConfig dataBaseConfig;
+    private TicketAnalyticsDAO ticketAnalyticsDAO;
+
+    @BeforeEach
+    private void setUpPerTest() throws Exception {
+        dataBaseConfig = DataBaseTestConfig.memoryDataBase("ticket-analytics");
+        try(Connection con = dataBaseConfig.getConnection(); Statement statement = con.createStatement()){
+            statement.execute("delete from ticket_archive");
+            statement.execute("delete from ticket");
+            statement.execute("delete from parking");
+            statement.execute("insert into parking values(1,true,'CAR'),(2,true,'BIKE')");
+        }
+        saveTicket(1, 1, "A", at(FIRST_DAY, 10, 0), at(FIRST_DAY, 12, 0), 3.0);
+        saveTicket(2, 1, "B", at(FIRST_DAY, 11, 0), at(SECOND_DAY, 9, 0), 33.0);
+        saveTicket(3, 2, "C", at(FIRST_DAY, 8, 0), at(FIRST_DAY, 8, 20), 0);
+        saveTicket(4, 1, "A", at(SECOND_DAY, 10, 0), null, 0);
+
+        ticketAnalyticsDAO = new TicketAnalyticsDAO();
+        ticketAnalyticsDAO.dataBaseConfig = dataBaseConfig;
+    }
+
+    @AfterEach
+    private void tearDownPerTest() {
+        DataBaseConfig.closeConnectionPools();
+    }
+
+    @Test
+    public void refreshAggregatesPerDayAndType() throws Exception {
+        TicketAnalyticsService ticketAnalyticsService = new TicketAnalyticsService(ticketAnalyticsDAO, 400, 2);
+        assertEquals(4, ticketAnalyticsService.refresh());
+
+        List<DailyParkingStats> stats = ticketAnalyticsService.getDailyStats(FIRST_DAY, SECOND_DAY);
+        assertEquals(4, stats.size());
+        DailyParkingStats firstDayCars = find(stats, FIRST_DAY, ParkingType.CAR);
+        assertEquals(1, firstDayCars.getTicketCount());
+        assertEquals(300, firstDayCars.getRevenueInCents());
+        assertEquals(120, firstDayCars.getAverageStayMinutes());
+        assertEquals(2, firstDayCars.getPeakOccupancy());
+        assertEquals(1, find(stats, FIRST_DAY, ParkingType.BIKE).getPeakOccupancy());
+        DailyParkingStats secondDayCars = find(stats, SECOND_DAY, ParkingType.CAR);
+        assertEquals(1, secondDayCars.getTicketCount());
+        assertEquals(22 * 60, secondDayCars.getStayMinutes());
+        //B left at 9:00, the open ticket of A arrived at 10:00
+        assertEquals(1, secondDayCars.getPeakOccupancy());
+        assertEquals(1, ticketAnalyticsService.getStatistics().getPendingCount());
+    }
+
+    @Test
+    public void refreshOnlyReadsTicketsCreatedOrClosedSince() throws Exception {
+        TicketAnalyticsService ticketAnalyticsService = new TicketAnalyticsService(ticketAnalyticsDAO, 400, 2);
+        ticketAnalyticsService.refresh();
+        closeTicket(4, at(SECOND_DAY, 11, 0), 1.43);
+        saveTicket(5, 1, "D", at(SECOND_DAY, 10, 30), at(SECOND_DAY, 10, 45), 0);
+
+        assertEquals(2, ticketAnalyticsService.refresh());
+        assertEquals(0, ticketAnalyticsService.refresh());
+
+        DailyParkingStats secondDayCars = find(ticketAnalyticsService.getDailyStats(SECOND_DAY, SECOND_DAY), SECOND_DAY, ParkingType.CAR);
+        assertEquals(3, secondDayCars.getTicketCount());
+        assertEquals(3443, secondDayCars.getRevenueInCents());
+        assertEquals(2, secondDayCars.getPeakOccupancy());
+        //A came back, so its second ticket had the loyalty discount
+        assertEquals(1, secondDayCars.getDiscountedTicketCount());
+        assertEquals(8, secondDayCars.getDiscountInCents());
+        assertEquals(0, ticketAnalyticsService.getStatistics().getPendingCount());
+    }
+
+    @Test
+    public void pendingTicketsAreReadByKey() throws Exception {
+        //closed tickets between two open ones are never read again
+        saveTicket(5, 1, "D", at(SECOND_DAY, 10, 30), at(SECOND_DAY, 10, 45), 0);
+        saveTicket(6, 2, "E", at(SECOND_DAY, 11, 0), at(SECOND_DAY, 11, 30), 0);
+        saveTicket(7, 2, "F", at(SECOND_DAY, 12, 0), null, 0);
+        for(int id = 8; id < 8 + 2 * DBConstants.ANALYTICS_ID_BATCH_SIZE; id++){
+            saveTicket(id, 1, "G" + id, at(SECOND_DAY, 13, 0), null, 0);
+        }
+        TicketAnalyticsService ticketAnalyticsService = new TicketAnalyticsService(ticketAnalyticsDAO, 400, 2);
+        ticketAnalyticsService.refresh();
+        assertEquals(2 + 2 * DBConstants.ANALYTICS_ID_BATCH_SIZE, ticketAnalyticsService.getStatistics().getPendingCount());
+        assertEquals(0, ticketAnalyticsService.refresh());
+
+        closeTicket(7, at(SECOND_DAY, 12, 30), 0);
+        closeTicket(8 + 2 * DBConstants.ANALYTICS_ID_BATCH_SIZE - 1, at(SECOND_DAY, 14, 0), 1.5);
+        assertEquals(2, ticketAnalyticsService.refresh());
+        assertEquals(2 * DBConstants.ANALYTICS_ID_BATCH_SIZE, ticketAnalyticsService.getStatistics().getPendingCount());
+        assertEquals(0, ticketAnalyticsService.refresh());
+    }
+
+    @Test
+    public void ticketCommittedAfterAHigherIdIsCounted() throws Exception {
+        TicketAnalyticsService ticketAnalyticsService = new TicketAnalyticsService(ticketAnalyticsDAO, 400, 2);
+        ticketAnalyticsService.refresh();
+        //ticket 6 commits while ticket 5 is still in its gate's transaction
+        saveTicket(6, 1, "E", at(SECOND_DAY, 12, 0), at(SECOND_DAY, 13, 0), 1.5);
+        assertEquals(1, ticketAnalyticsService.refresh());
+        assertArrayEquals(new int[]{5}, ticketAnalyticsService.getStatistics().getSkippedIds());
+
+        saveTicket(5, 2, "D", at(SECOND_DAY, 11, 0), at(SECOND_DAY, 11, 30), 1.0);
+        assertEquals(1, ticketAnalyticsService.refresh());
+        assertEquals(0, ticketAnalyticsService.getStatistics().getSkippedIds().length);
+        assertEquals(1, find(ticketAnalyticsService.getDailyStats(SECOND_DAY, SECOND_DAY), SECOND_DAY, ParkingType.BIKE).getTicketCount());
+        assertEquals(0, ticketAnalyticsService.refresh());
+    }
+
+    @Test
+    public void skippedIdIsDroppedAfterItsLastCheck() throws Exception {
+        TicketAnalyticsService ticketAnalyticsService = new TicketAnalyticsService(ticketAnalyticsDAO, 400, 2);
+        ticketAnalyticsService.refresh();
+        //ticket 5 rolled back and never shows up
+        saveTicket(6, 1, "E", at(SECOND_DAY, 12, 0), at(SECOND_DAY, 13, 0), 1.5);
+        ticketAnalyticsService.refresh();
+        ticketAnalyticsService.refresh();
+        ticketAnalyticsService.refresh();
+        assertEquals(1, ticketAnalyticsService.getStatistics().getSkippedIds().length);
+        ticketAnalyticsService.refresh();
+        assertEquals(0, ticketAnalyticsService.getStatistics().getSkippedIds().length);
+    }
+
+    @Test
+    public void archivedTicketsAreCountedOnce() throws Exception {
+        TicketArchiveDAO ticketArchiveDAO = new TicketArchiveDAO();
+        ticketArchiveDAO.dataBaseConfig = dataBaseConfig;
+        assertEquals(2, ticketArchiveDAO.archiveClosedTickets(at(SECOND_DAY, 0, 0), 100));
+        closeTicket(4, at(SECOND_DAY, 11, 0), 1.43);
+
+        TicketAnalyticsService ticketAnalyticsService = new TicketAnalyticsService(ticketAnalyticsDAO, 400, 2);
+        assertEquals(4, ticketAnalyticsService.refresh());
+
+        List<DailyParkingStats> stats = ticketAnalyticsService.getDailyStats(FIRST_DAY, SECOND_DAY);
+        assertEquals(1, find(stats, FIRST_DAY, ParkingType.CAR).getTicketCount());
+        assertEquals(2, find(stats, SECOND_DAY, ParkingType.CAR).getTicketCount());
+        assertEquals(1, find(stats, SECOND_DAY, ParkingType.CAR).getDiscountedTicketCount());
+    }
+
+    @Test
+    public void oldDaysLeaveTheWindowButKeepOccupancy() {
+        TicketStatistics statistics = new TicketStatistics(2);
+        statistics.addTicket(1, ParkingType.CAR, at(FIRST_DAY, 10, 0), null, 0, false);
+        statistics.addTicket(2, ParkingType.CAR, at(FIRST_DAY.plusDays(2), 10, 0), at(FIRST_DAY.plusDays(2), 11, 0), 150, false);
+
+        List<DailyParkingStats> stats = statistics.getDailyStats(FIRST_DAY, FIRST_DAY.plusDays(2));
+        assertEquals(4, stats.size());
+        assertEquals(FIRST_DAY.plusDays(1), stats.get(0).getDate());
+        //the car parked on the first day is still there
+        assertEquals(1, find(stats, FIRST_DAY.plusDays(1), ParkingType.CAR).getPeakOccupancy());
+        assertEquals(2, find(stats, FIRST_DAY.plusDays(2), ParkingType.CAR).getPeakOccupancy());
+        assertEquals(150, find(stats, FIRST_DAY.plusDays(2), ParkingType.CAR).getRevenueInCents());
+    }
+
+    private static DailyParkingStats find(List<DailyParkingStats> stats, LocalDate date, ParkingType parkingType) {
+        for(DailyParkingStats dailyStats : stats){
+            if(dailyStats.getDate().equals(date) && dailyStats.getParkingType() == parkingType){
+                return dailyStats;
+            }
+        }
+        throw new AssertionError("No stats for " + parkingType + " on " + date);
+    }
+
+    private static LocalDateTime at(LocalDate date, int hour, int minute) {
+        return date.atTime(hour, minute);
+    }
+
+    private void saveTicket(int id, int parkingNumber, String vehicleRegNumber, LocalDateTime inTime, LocalDateTime outTime,
+                            double price) throws Exception {
+        try(Connection con = dataBaseConfig.getConnection();
+            PreparedStatement ps = con.prepareStatement("insert into ticket(ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?,?)")){
+            ps.setInt(1, id);
+            ps.setInt(2, parkingNumber);
+            ps.setString(3, vehicleRegNumber);
+            ps.setDouble(4, price);
+            ps.setTimestamp(5, Timestamp.valueOf(inTime));
+            ps.setTimestamp(6, outTime == null ? null : Timestamp.valueOf(outTime));
+            ps.execute();
+        }
+    }
+
+    private void closeTicket(int id, LocalDateTime outTime, double price) throws Exception {
+        try(Connection con = dataBaseConfig.getConnection();
+            PreparedStatement ps = con.prepareStatement("update ticket set PRICE=?, OUT_TIME=? where ID=?")){
+            ps.setDouble(1, price);
+            ps.setTimestamp(2, Timestamp.valueOf(outTime));
+            ps.setInt(3, id);
+            ps.execute();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.dao.ClosedTicketCursor;
+import com.parkit.parkingsystem.dao.FareRecomputationDAO;
+import com.parkit.parkingsystem.dao.TicketArchiveDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.model.TicketFareBatch;
+import com.parkit.parkingsystem.service.TicketArchiveService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TicketArchiveServiceTest {
+
+    private DataBaseConfig dataBaseConfig;
+    private TicketDAO ticketDAO;
+    private TicketArchiveService ticketArchiveService;
+
+    @BeforeEach
+    private void setUpPerTest() throws Exception {
+        dataBaseConfig = DataBaseTestConfig.memoryDataBase("ticket-archive");
+        try(Connection con = dataBaseConfig.getConnection(); Statement statement = con.createStatement()){
+            statement.execute("delete from ticket_archive");
+            statement.execute("delete from ticket");
+            statement.execute("delete from vehicle_visit");
+            statement.execute("delete from parking");
+            statement.execute("insert into parking values(1,true,'CAR'),(2,true,'BIKE')");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        //OLD has three tickets closed long ago, then a recent one; NEW only recent ones
+        saveTicket(1, "OLD", now.minusDays(40), now.minusDays(40).plusHours(1));
+        saveTicket(2, "OLD", now.minusDays(35), now.minusDays(35).plusHours(1));
+        saveTicket(3, "OLD", now.minusDays(31), now.minusDays(31).plusHours(1));
+        saveTicket(4, "GONE", now.minusDays(50), now.minusDays(50).plusHours(1));
+        saveTicket(5, "NEW", now.minusDays(2), now.minusDays(2).plusHours(1));
+        saveTicket(6, "OLD", now.minusDays(1), now.minusDays(1).plusHours(2));
+        saveTicket(7, "NEW", now.minusHours(1), null);
+
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        TicketArchiveDAO ticketArchiveDAO = new TicketArchiveDAO();
+        ticketArchiveDAO.dataBaseConfig = dataBaseConfig;
+        ticketArchiveService = new TicketArchiveService(ticketArchiveDAO, 30, 2);
+    }
+
+    @AfterEach
+    private void tearDownPerTest() {
+        DataBaseConfig.closeConnectionPools();
+    }
+
+    @Test
+    public void archiveMovesOldClosedTicketsInBatches() throws Exception {
+        assertEquals(4, ticketArchiveService.archive());
+
+        assertEquals(3, count("ticket"));
+        assertEquals(4, count("ticket_archive"));
+        assertEquals(0, ticketArchiveService.archive());
+        //loyalty counts are not touched
+        assertEquals(4, ticketDAO.getNbTicket("OLD"));
+    }
+
+    @Test
+    public void ticketDaoReadsBothTiers() throws Exception {
+        ticketArchiveService.archive();
+
+        assertEquals(6, ticketDAO.getTicket("OLD").getId());
+        Ticket archived = ticketDAO.getTicket("GONE");
+        assertNotNull(archived);
+        assertEquals(4, archived.getId());
+        List<Ticket> history = ticketDAO.getTicketHistory("OLD");
+        assertEquals(4, history.size());
+        assertEquals(6, history.get(0).getId());
+        assertEquals(1, history.get(3).getId());
+    }
+
+    @Test
+    public void fareRecomputationStillSeesArchivedFirstVisits() throws Exception {
+        ticketArchiveService.archive();
+
+        FareRecomputationDAO fareRecomputationDAO = new FareRecomputationDAO();
+        fareRecomputationDAO.dataBaseConfig = dataBaseConfig;
+        TicketFareBatch batch = new TicketFareBatch(10);
+        try(ClosedTicketCursor cursor = fareRecomputationDAO.openClosedTickets(10)){
+            assertEquals(2, cursor.fill(batch));
+        }
+        assertEquals(5, batch.getId(0));
+        assertFalse(batch.isDiscount(0));
+        assertEquals(6, batch.getId(1));
+        assertTrue(batch.isDiscount(1));
+    }
+
+    private void saveTicket(int id, String vehicleRegNumber, LocalDateTime inTime, LocalDateTime outTime) throws Exception {
+        try(Connection con = dataBaseConfig.getConnection()){
+            try(PreparedStatement ps = con.prepareStatement("insert into ticket(ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,1,?,1.5,?,?)")){
+                ps.setInt(1, id);
+                ps.setString(2, vehicleRegNumber);
+                ps.setTimestamp(3, Timestamp.valueOf(inTime));
+                ps.setTimestamp(4, outTime == null ? null : Timestamp.valueOf(outTime));
+                ps.execute();
+            }
+            try(PreparedStatement ps = con.prepareStatement("merge into vehicle_visit(VEHICLE_REG_NUMBER, NB_TICKET) key(VEHICLE_REG_NUMBER) values(?, coalesce((select NB_TICKET from vehicle_visit where VEHICLE_REG_NUMBER = ?), 0) + 1)")){
+                ps.setString(1, vehicleRegNumber);
+                ps.setString(2, vehicleRegNumber);
+                ps.execute();
+            }
+        }
+    }
+
+    private int count(String table) throws Exception {
+        try(Connection con = dataBaseConfig.getConnection(); Statement statement = con.createStatement();
+            ResultSet rs = statement.executeQuery("select count(*) from " + table)){
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.cache.TicketEventViews;
+import com.parkit.parkingsystem.config.ConnectionPool;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.config.StorageBackend;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketEventDAO;
+import com.parkit.parkingsystem.dao.TicketWriteBehindQueue;
+import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.model.TicketEvent;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TicketEventLogTest {
+
+    private DataBaseConfig dataBaseConfig;
+    private TicketEventDAO ticketEventDAO;
+    private TicketEventViews ticketEventViews;
+    private ParkingService parkingService;
+
+    @BeforeEach
+    private void setUpPerTest() throws Exception {
+        dataBaseConfig = DataBaseTestConfig.memoryDataBase("ticket-event");
+        execute("delete from ticket_event", "delete from ticket", "delete from vehicle_visit", "delete from parking",
+                "insert into parking values(1,true,'CAR'),(2,true,'CAR'),(3,true,'BIKE')");
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        ticketEventDAO = new TicketEventDAO();
+        ticketEventDAO.dataBaseConfig = dataBaseConfig;
+        ticketEventViews = new TicketEventViews();
+        parkingService = new ParkingService(null, parkingSpotDAO, ticketDAO);
+        parkingService.setTicketEventLog(ticketEventDAO, ticketEventViews);
+    }
+
+    @AfterEach
+    private void tearDownPerTest() {
+        DataBaseConfig.closeConnectionPools();
+    }
+
+    @Test
+    public void entriesAndExitsUpdateTheViews() throws Exception {
+        assertNotNull(parkingService.parkVehicle(ParkingType.CAR, "ABC"));
+        assertNotNull(parkingService.parkVehicle(ParkingType.BIKE, "XYZ"));
+        assertNotNull(parkingService.exitVehicle("ABC"));
+        assertNotNull(parkingService.parkVehicle(ParkingType.CAR, "ABC"));
+
+        assertEquals(5, count("ticket_event"));
+        assertEquals(1, ticketEventViews.getOccupancy(ParkingType.CAR));
+        assertEquals(1, ticketEventViews.getOccupancy(ParkingType.BIKE));
+        assertEquals(2, ticketEventViews.getVisitCount("ABC"));
+        Ticket openTicket = ticketEventViews.getOpenTicket("ABC");
+        assertNull(openTicket.getOutTime());
+        assertEquals(ParkingType.CAR, openTicket.getParkingSpot().getParkingType());
+        assertNotNull(parkingService.quoteFare("XYZ"));
+        assertNull(parkingService.quoteFare("NONE"));
+
+        //views replayed from the log end up in the same state
+        TicketEventViews replayed = new TicketEventViews();
+        assertEquals(5, ticketEventDAO.replay(replayed, 2));
+        assertEquals(ticketEventViews.getLastEventId(), replayed.getLastEventId());
+        assertEquals(1, replayed.getOccupancy(ParkingType.CAR));
+        assertEquals(2, replayed.getOpenTicketCount());
+        assertEquals(2, replayed.getVisitCount("ABC"));
+        assertEquals(0, ticketEventDAO.replay(replayed, 2));
+    }
+
+    @Test
+    public void failedAppendRollsBackTheEntry() throws Exception {
+        TicketEventDAO failingEventDAO = new TicketEventDAO() {
+            @Override
+            public boolean append(TicketEvent event) {
+                return false;
+            }
+        };
+        parkingService.setTicketEventLog(failingEventDAO, ticketEventViews);
+
+        assertThrows(SQLException.class, () -> parkingService.parkVehicle(ParkingType.CAR, "ABC"));
+
+        assertEquals(0, count("ticket"));
+        assertEquals(0, ticketEventViews.getOpenTicketCount());
+        assertEquals(3, count("parking where AVAILABLE = true"));
+    }
+
+    @Test
+    public void eventLogIsRefusedWithTheWriteBehindQueue() {
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO.setWriteBehindQueue(new TicketWriteBehindQueue(dataBaseConfig, Paths.get("tickets.journal"), 10, 10, 100));
+        ParkingService writeBehindParkingService = new ParkingService(null, parkingSpotDAO, ticketDAO);
+
+        assertThrows(IllegalStateException.class, () -> writeBehindParkingService.setTicketEventLog(ticketEventDAO, ticketEventViews));
+        assertNull(writeBehindParkingService.getTicketEventViews());
+    }
+
+    @Test
+    public void migrationLogsTheExistingHistory() throws Exception {
+        ConnectionPool pool = new ConnectionPool(StorageBackend.MEMORY.createConnectionPoolConfig("ticket-event-migration"));
+        try {
+            SchemaMigrator schemaMigrator = new SchemaMigrator(pool);
+            schemaMigrator.migrate(3);
+            try(Connection con = pool.getConnection(); Statement statement = con.createStatement()){
+                statement.execute("insert into parking values(1,false,'CAR'),(2,true,'BIKE')");
+                statement.execute("insert into ticket_archive values(1,2,'ABC',1.5,'2020-01-01 10:00:00','2020-01-01 11:00:00')");
+                statement.execute("insert into ticket values(2,1,'ABC',0,'2020-02-01 10:00:00',null)");
+                statement.execute("insert into ticket values(3,1,'XYZ',0.5,'2020-01-15 10:00:00','2020-01-15 10:45:00')");
+            }
+            schemaMigrator.migrate();
+
+            DataBaseConfig migratedConfig = new DataBaseConfig() {
+                @Override
+                public Connection getConnection() throws java.sql.SQLException {
+                    return pool.getConnection();
+                }
+            };
+            TicketEventDAO migratedEventDAO = new TicketEventDAO();
+            migratedEventDAO.dataBaseConfig = migratedConfig;
+            TicketEventViews views = new TicketEventViews();
+            assertEquals(7, migratedEventDAO.replay(views, 10));
+            assertEquals(1, views.getOpenTicketCount());
+            assertEquals(1, views.getOccupancy(ParkingType.CAR));
+            assertEquals(0, views.getOccupancy(ParkingType.BIKE));
+            assertEquals(2, views.getVisitCount("ABC"));
+            assertEquals(2, views.getOpenTicket("ABC").getId());
+        } finally {
+            pool.close();
+        }
+    }
+
+    private void execute(String... statements) throws Exception {
+        try(Connection con = dataBaseConfig.getConnection(); Statement statement = con.createStatement()){
+            for(String sql : statements){
+                statement.execute(sql);
+            }
+        }
+    }
+
+    private int count(String from) throws Exception {
+        try(Connection con = dataBaseConfig.getConnection(); Statement statement = con.createStatement();
+            ResultSet rs = statement.executeQuery("select count(*) from " + from)){
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
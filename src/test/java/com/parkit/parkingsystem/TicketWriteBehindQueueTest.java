@@ -0,0 +1,185 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketWriteBehindQueue;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TicketWriteBehindQueueTest {
+
+    @Mock
+    private DataBaseConfig dataBaseConfig;
+    @Mock
+    private Connection connection;
+    @Mock
+    private PreparedStatement saveStatement;
+    @Mock
+    private PreparedStatement counterStatement;
+
+    private Path tempDir;
+
+    @BeforeEach
+    private void setUpPerTest() throws Exception {
+        tempDir = Files.createTempDirectory("parkit-journal");
+    }
+
+    @AfterEach
+    private void tearDownPerTest() throws Exception {
+        Files.deleteIfExists(tempDir.resolve("tickets.journal"));
+        Files.deleteIfExists(tempDir);
+    }
+
+    private Ticket newTicket(){
+        return newTicket("ABCDEF");
+    }
+
+    private Ticket newTicket(String vehicleRegNumber){
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(LocalDateTime.of(2020, 1, 1, 10, 0));
+        return ticket;
+    }
+
+    private void mockDataBase() throws Exception {
+        when(dataBaseConfig.getConnection()).thenReturn(connection);
+        doReturn(saveStatement).when(connection).prepareStatement(DBConstants.SAVE_TICKET_IF_ABSENT);
+        doReturn(mock(PreparedStatement.class)).when(connection).prepareStatement(DBConstants.UPDATE_TICKET_BY_VEHICLE);
+        doReturn(counterStatement).when(connection).prepareStatement(DBConstants.INCREMENT_NB_TICKET);
+        when(saveStatement.executeBatch()).thenReturn(new int[]{1});
+    }
+
+    @Test
+    public void queuedTicketIsFlushedOnClose() throws Exception {
+        mockDataBase();
+        Path journal = tempDir.resolve("tickets.journal");
+        TicketWriteBehindQueue queue = new TicketWriteBehindQueue(dataBaseConfig, journal, 10, 10, 100);
+        queue.start();
+
+        assertTrue(queue.enqueueSave(newTicket()));
+        queue.close();
+
+        verify(saveStatement).executeBatch();
+        verify(counterStatement).executeBatch();
+        verify(connection).commit();
+        assertNull(queue.getPendingTicket("ABCDEF"));
+        assertEquals(0, queue.getPendingSaveCount("ABCDEF"));
+        assertEquals(0, Files.size(journal));
+        assertFalse(queue.enqueueSave(newTicket()));
+    }
+
+    @Test
+    public void journalIsReplayedAfterFailedFlush() throws Exception {
+        Path journal = tempDir.resolve("tickets.journal");
+        DataBaseConfig failingDataBaseConfig = mock(DataBaseConfig.class);
+        when(failingDataBaseConfig.getConnection()).thenThrow(new SQLException("data base down"));
+        TicketWriteBehindQueue failingQueue = new TicketWriteBehindQueue(failingDataBaseConfig, journal, 10, 10, 100);
+        failingQueue.start();
+        assertTrue(failingQueue.enqueueSave(newTicket()));
+        failingQueue.close();
+        //never written, so still visible to readers
+        assertEquals("ABCDEF", failingQueue.getPendingTicket("ABCDEF").getVehicleRegNumber());
+        assertEquals(1, failingQueue.getPendingSaveCount("ABCDEF"));
+        verify(saveStatement, never()).executeBatch();
+        assertTrue(Files.size(journal) > 0);
+
+        mockDataBase();
+        TicketWriteBehindQueue queue = new TicketWriteBehindQueue(dataBaseConfig, journal, 10, 10, 100);
+        queue.start();
+        queue.close();
+
+        verify(saveStatement).setString(2, "ABCDEF");
+        verify(saveStatement).executeBatch();
+        verify(connection).commit();
+    }
+
+    @Test
+    public void fullQueueRefusesWrites() throws Exception {
+        lenient().when(dataBaseConfig.getConnection()).thenAnswer(invocation -> {
+            Thread.sleep(500);
+            throw new SQLException("data base slow");
+        });
+        TicketWriteBehindQueue queue = new TicketWriteBehindQueue(dataBaseConfig, tempDir.resolve("tickets.journal"), 1, 1, 10);
+        queue.start();
+        int accepted = 0;
+        for(int i = 0; i < 5; i++){
+            if(queue.enqueueSave(newTicket())){
+                accepted++;
+            }
+        }
+        assertTrue(accepted < 5);
+        queue.close();
+    }
+
+    @Test
+    public void refusedWriteDoesNotDropAcceptedWritesOnReplay() throws Exception {
+        Path journal = tempDir.resolve("tickets.journal");
+        DataBaseConfig failingDataBaseConfig = mock(DataBaseConfig.class);
+        when(failingDataBaseConfig.getConnection()).thenThrow(new SQLException("data base down"));
+        TicketWriteBehindQueue failingQueue = new TicketWriteBehindQueue(failingDataBaseConfig, journal, 1, 1, 200);
+        failingQueue.start();
+        //the first write is taken by the writer and retried, the second fills the queue, the third is refused
+        assertTrue(failingQueue.enqueueSave(newTicket("FIRST")));
+        assertTrue(failingQueue.enqueueSave(newTicket("SECOND")));
+        assertFalse(failingQueue.enqueueSave(newTicket("REFUSED")));
+        assertNull(failingQueue.getPendingTicket("REFUSED"));
+        failingQueue.close();
+
+        mockDataBase();
+        TicketWriteBehindQueue queue = new TicketWriteBehindQueue(dataBaseConfig, journal, 10, 10, 100);
+        queue.start();
+        queue.close();
+
+        verify(saveStatement).setString(2, "FIRST");
+        verify(saveStatement).setString(2, "SECOND");
+        verify(saveStatement, never()).setString(2, "REFUSED");
+        assertEquals(0, Files.size(journal));
+    }
+
+    @Test
+    public void rolledBackExitNeverWritesTheTicket() throws Exception {
+        Path journal = tempDir.resolve("tickets.journal");
+        TicketWriteBehindQueue queue = new TicketWriteBehindQueue(dataBaseConfig, journal, 1, 10, 100);
+        queue.start();
+        TicketDAO ticketDAO = spy(new TicketDAO());
+        ticketDAO.setWriteBehindQueue(queue);
+        doReturn(newTicket()).when(ticketDAO).findTicket("ABCDEF");
+        doReturn(1).when(ticketDAO).getNbTicket("ABCDEF");
+        ParkingSpotDAO parkingSpotDAO = mock(ParkingSpotDAO.class);
+        when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenThrow(new IllegalStateException("data base down"));
+        ParkingService parkingService = new ParkingService(null, parkingSpotDAO, ticketDAO);
+
+        //the ticket update is queued before the spot is released, which then fails
+        assertThrows(IllegalStateException.class, () -> parkingService.exitVehicle("ABCDEF"));
+        verify(ticketDAO).updateTicket(any(Ticket.class));
+        assertNull(queue.getPendingTicket("ABCDEF"));
+        assertEquals(0, queue.size());
+        queue.close();
+
+        verify(dataBaseConfig, never()).getConnection();
+        assertEquals(0, Files.size(journal));
+    }
+}
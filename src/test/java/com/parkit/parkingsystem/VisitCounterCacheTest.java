@@ -0,0 +1,95 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.cache.VisitCounterCache;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VisitCounterCacheTest {
+
+    @Test
+    public void leastRecentlyUsedVehicleIsEvicted() {
+        VisitCounterCache cache = new VisitCounterCache(2);
+        assertTrue(cache.putIfAbsent("A", 1, cache.getLoadStamp("A")));
+        assertTrue(cache.putIfAbsent("B", 2, cache.getLoadStamp("B")));
+        assertEquals(1, cache.get("A"));
+        assertTrue(cache.putIfAbsent("C", 3, cache.getLoadStamp("C")));
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.get("A"));
+        assertEquals(-1, cache.get("B"));
+        assertEquals(3, cache.get("C"));
+        assertEquals(3, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void incrementOnlyCountsCachedVehicles() {
+        VisitCounterCache cache = new VisitCounterCache(10);
+        cache.putIfAbsent("A", 1, cache.getLoadStamp("A"));
+        increment(cache, "A");
+        increment(cache, "B");
+
+        assertEquals(2, cache.get("A"));
+        assertEquals(-1, cache.get("B"));
+        assertFalse(cache.putIfAbsent("A", 7, cache.getLoadStamp("A")));
+        assertEquals(2, cache.get("A"));
+    }
+
+    @Test
+    public void countReadBeforeAnotherGateSavedATicketIsNotCached() {
+        VisitCounterCache cache = new VisitCounterCache(10);
+        //a lookup misses and reads 1 from the data base...
+        int loadStamp = cache.getLoadStamp("A");
+        //...while another gate saves a second ticket for the vehicle, which is not cached yet
+        increment(cache, "A");
+        assertFalse(cache.putIfAbsent("A", 1, loadStamp));
+        assertEquals(-1, cache.get("A"));
+
+        //the next lookup reads the new count and caches it
+        assertTrue(cache.putIfAbsent("A", 2, cache.getLoadStamp("A")));
+        assertEquals(2, cache.get("A"));
+    }
+
+    @Test
+    public void removedVehicleIsNotCachedByAnEarlierRead() {
+        VisitCounterCache cache = new VisitCounterCache(10);
+        int loadStamp = cache.getLoadStamp("A");
+        cache.remove("A");
+        assertFalse(cache.putIfAbsent("A", 1, loadStamp));
+    }
+
+    @Test
+    public void uncommittedVisitIsNotCounted() {
+        VisitCounterCache cache = new VisitCounterCache(10);
+        cache.putIfAbsent("A", 1, cache.getLoadStamp("A"));
+        cache.beginIncrement("A");
+        cache.beginIncrement("B");
+        //other gates keep the committed count, and a count read from the database meanwhile is not cached
+        assertEquals(1, cache.get("A"));
+        assertFalse(cache.putIfAbsent("B", 1, cache.getLoadStamp("B")));
+
+        cache.endIncrement("A", true);
+        cache.endIncrement("B", false);
+        assertEquals(2, cache.get("A"));
+        assertEquals(-1, cache.get("B"));
+        assertTrue(cache.putIfAbsent("B", 0, cache.getLoadStamp("B")));
+    }
+
+    @Test
+    public void rolledBackVisitDropsTheVehicle() {
+        VisitCounterCache cache = new VisitCounterCache(10);
+        cache.putIfAbsent("A", 1, cache.getLoadStamp("A"));
+        int loadStamp = cache.getLoadStamp("A");
+        cache.beginIncrement("A");
+        cache.endIncrement("A", false);
+
+        assertEquals(-1, cache.get("A"));
+        assertFalse(cache.putIfAbsent("A", 2, loadStamp));
+    }
+
+    private static void increment(VisitCounterCache cache, String vehicleRegNumber) {
+        cache.beginIncrement(vehicleRegNumber);
+        cache.endIncrement(vehicleRegNumber, true);
+    }
+}
@@ -46,6 +46,9 @@ public class ParkingDataBaseIT {
     public void setUpPerTest() throws Exception {
         when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn(carRegistrationNumber);
         dataBasePrepareService.clearDataBaseEntries();
+        parkingSpotDAO.loadParkingSpotIndex();
+        ticketDAO.loadActiveTicketCache(100);
+        ticketDAO.initVisitCounterCache(100);
     }
 
     @Test
@@ -1,52 +1,44 @@
 package com.parkit.parkingsystem.integration.config;
 
+import com.parkit.parkingsystem.config.ConnectionPoolConfig;
 import com.parkit.parkingsystem.config.DataBaseConfig;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
-
-import java.sql.*;
+import com.parkit.parkingsystem.config.StorageBackend;
 
 public class DataBaseTestConfig extends DataBaseConfig {
 
-    private static final Logger logger = LogManager.getLogger("DataBaseTestConfig");
+    private final StorageBackend storageBackend;
+    private final int maxSize;
+
+    //in memory unless -Dparkit.test.db.backend=mysql asks for the test data base of Data.sql
+    public DataBaseTestConfig() {
+        this("test", StorageBackend.fromSystemProperty("parkit.test.db.backend", StorageBackend.MEMORY), 4);
+    }
+
+    private DataBaseTestConfig(String dataBaseName, StorageBackend storageBackend, int maxSize) {
+        super(dataBaseName);
+        this.storageBackend = storageBackend;
+        this.maxSize = maxSize;
+    }
 
-    public Connection getConnection() throws ClassNotFoundException, SQLException {
-        logger.info("Create DB connection");
-        Class.forName("com.mysql.cj.jdbc.Driver");
-        return DriverManager.getConnection(
-                "jdbc:mysql://localhost:3306/test","root","rootroot");
+    //H2 data base of that name for unit tests, seeded with the parking spots of Data.sql when its pool is created
+    public static DataBaseTestConfig memoryDataBase(String dataBaseName) {
+        return memoryDataBase(dataBaseName, 4);
     }
 
-    public void closeConnection(Connection con){
-        if(con!=null){
-            try {
-                con.close();
-                logger.info("Closing DB connection");
-            } catch (SQLException e) {
-                logger.error("Error while closing connection",e);
-            }
-        }
+    public static DataBaseTestConfig memoryDataBase(String dataBaseName, int maxSize) {
+        return new DataBaseTestConfig(dataBaseName, StorageBackend.MEMORY, maxSize);
     }
 
-    public void closePreparedStatement(PreparedStatement ps) {
-        if(ps!=null){
-            try {
-                ps.close();
-                logger.info("Closing Prepared Statement");
-            } catch (SQLException e) {
-                logger.error("Error while closing prepared statement",e);
-            }
-        }
+    @Override
+    public StorageBackend getStorageBackend() {
+        return storageBackend;
     }
 
-    public void closeResultSet(ResultSet rs) {
-        if(rs!=null){
-            try {
-                rs.close();
-                logger.info("Closing Result Set");
-            } catch (SQLException e) {
-                logger.error("Error while closing result set",e);
-            }
-        }
+    @Override
+    protected ConnectionPoolConfig getConnectionPoolConfig() {
+        ConnectionPoolConfig config = storageBackend.createConnectionPoolConfig(getDataBaseName());
+        config.setMinSize(1);
+        config.setMaxSize(maxSize);
+        return config;
     }
 }
@@ -3,6 +3,7 @@ package com.parkit.parkingsystem.integration.service;
 import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
 
 import java.sql.Connection;
+import java.sql.Statement;
 
 public class DataBasePrepareService {
 
@@ -14,10 +15,13 @@ public class DataBasePrepareService {
             connection = dataBaseTestConfig.getConnection();
 
             //set parking entries to available
-            connection.prepareStatement("update parking set available = true").execute();
+            try(Statement statement = connection.createStatement()){
+                statement.execute("update parking set available = true");
 
-            //clear ticket entries;
-            connection.prepareStatement("truncate table ticket").execute();
+                //clear ticket entries;
+                statement.execute("truncate table ticket");
+                statement.execute("truncate table vehicle_visit");
+            }
 
         }catch(Exception e){
             e.printStackTrace();